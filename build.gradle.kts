@@ -100,6 +100,26 @@ tasks.register<Test>("smokeTest") {
     }
 }
 
+// Microbenchmarks: `./gradlew jmh` runs the JMH benchmarks in src/jmh/java (not part of `build`).
+// Pass -Pjmh.include=<regex> to run a subset.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+    runtimeClasspath += sourceSets["main"].output + sourceSets["main"].runtimeClasspath
+}
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs JMH microbenchmarks."
+    group = "verification"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = listOf(project.findProperty("jmh.include")?.toString() ?: ".*")
+}
+
 tasks.jar {
     manifest {
         attributes(
@@ -0,0 +1,69 @@
+package com.vgl.cli.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching a command's glob list against every path of a tree: compiled {@link GlobSet} versus the
+ * former per-call {@code String.matches(globToRegex(glob))}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlobMatchBenchmark {
+
+    @Param({"10000"})
+    int paths;
+
+    private final List<String> globs = List.of("src/main/**/*.java", "docs/*.md", "build.gradle.kts", "*Test.java", "README.md");
+    private List<String> candidates;
+
+    @Setup
+    public void setUp() {
+        candidates = new ArrayList<>(paths);
+        for (int i = 0; i < paths; i++) {
+            candidates.add("src/main/java/com/vgl/pkg" + (i % 50) + "/File" + i + ((i % 3 == 0) ? ".java" : ".txt"));
+        }
+    }
+
+    @Benchmark
+    public int perCallRegex() {
+        int matched = 0;
+        for (String p : candidates) {
+            for (String g : globs) {
+                if (p.matches(GlobUtils.globToRegex(g))) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int compiledGlobSet() {
+        GlobSet set = GlobSet.compile(globs);
+        int matched = 0;
+        for (String p : candidates) {
+            if (set.matches(p)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,103 @@
+package com.vgl.cli.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Printing a large diff report to stdout redirected to a file: a line-flushed stream like the
+ * default {@code System.out} versus the same stream behind an installed {@link OutputSink}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutputSinkBenchmark {
+
+    @Param({"100"})
+    int megabytes;
+
+    private final List<String> lines = new ArrayList<>();
+    private long repeats;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        long bytes = 0;
+        for (int i = 0; i < 1000; i++) {
+            String line;
+            switch (i % 4) {
+                case 0 -> line = "  M (+3/-1 lines, 2 blocks)   src/main/java/com/vgl/pkg" + (i % 50) + "/File" + i + ".java";
+                case 1 -> line = "- return computeSomething(input, " + i + ");";
+                case 2 -> line = "+ return computeSomethingElse(input, options, " + i + ");";
+                default -> line = "  unchanged context line " + i + " of the surrounding hunk";
+            }
+            lines.add(line);
+            bytes += line.length() + 1;
+        }
+        repeats = Math.max(1, megabytes * 1024L * 1024L / bytes);
+        file = Files.createTempFile("vgl-sink-bench", ".txt");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void lineFlushedStdout() throws IOException {
+        try (PrintStream out = redirectedStdout()) {
+            print(out);
+        }
+    }
+
+    @Benchmark
+    public void outputSink() throws IOException {
+        PrintStream saved = System.out;
+        try (PrintStream out = redirectedStdout()) {
+            System.setOut(out);
+            OutputSink sink = OutputSink.install();
+            try {
+                print(System.out);
+            } finally {
+                sink.restore();
+            }
+        } finally {
+            System.setOut(saved);
+        }
+    }
+
+    // Auto-flushing on every println, as System.out does.
+    private PrintStream redirectedStdout() throws IOException {
+        return new PrintStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 8192), true, StandardCharsets.UTF_8);
+    }
+
+    private void print(PrintStream out) {
+        for (long r = 0; r < repeats; r++) {
+            for (String line : lines) {
+                out.println(line);
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.vgl.cli.commands.DeleteCommand;
 import com.vgl.cli.commands.DiffCommand;
 import com.vgl.cli.commands.HelpCommand;
 import com.vgl.cli.commands.LogCommand;
+import com.vgl.cli.commands.MaintainCommand;
 import com.vgl.cli.commands.MergeCommand;
 import com.vgl.cli.commands.PullCommand;
 import com.vgl.cli.commands.PushCommand;
@@ -66,6 +67,7 @@ public final class VglCli {
             Delete.class,
             Diff.class,
             Log.class,
+            Maintain.class,
             Merge.class,
             Pull.class,
             Push.class,
@@ -91,6 +93,14 @@ public final class VglCli {
         }
     }
 
+    @Command(name = "maintain")
+    static class Maintain implements Callable<Integer> {
+        @Override
+        public Integer call() throws Exception {
+            return new MaintainCommand().run(List.of());
+        }
+    }
+
     @Command(name = "pull")
     static class Pull implements Callable<Integer> {
 
@@ -249,6 +259,9 @@ public final class VglCli {
         @Option(names = "-vv")
         boolean veryVerbose;
 
+        @Option(names = "-dirstat")
+        boolean dirstat;
+
         @picocli.CommandLine.Parameters(arity = "0..*", paramLabel = "GLOB|*")
         List<String> globs;
 
@@ -258,6 +271,9 @@ public final class VglCli {
             if (noop) {
                 forwarded.add("-noop");
             }
+            if (dirstat) {
+                forwarded.add("-dirstat");
+            }
             int maxPairs = 0;
             if (localRepoDirs != null) {
                 maxPairs = Math.max(maxPairs, localRepoDirs.size());
@@ -322,11 +338,31 @@ public final class VglCli {
         @Option(names = "-vv")
         boolean veryVerbose;
 
+        @Option(names = "-all")
+        boolean all;
+
         @Option(names = "-graph")
         boolean graph;
 
-        @picocli.CommandLine.Parameters(arity = "0..1", paramLabel = "COMMIT")
-        String commit;
+        // Optional so that "-follow -- PATH" leaves "--" to end the options.
+        @Option(names = "-follow", paramLabel = "PATH", arity = "0..1", fallbackValue = "")
+        String follow;
+
+        @Option(names = "-grep", paramLabel = "TEXT")
+        String grep;
+
+        @Option(names = "-author", paramLabel = "NAME")
+        String author;
+
+        @Option(names = "-S", paramLabel = "TEXT")
+        String pickaxe;
+
+        @Spec
+        CommandSpec spec;
+
+        // Picocli consumes "--"; the arguments after it are paths and end this list.
+        @picocli.CommandLine.Parameters(arity = "0..*", paramLabel = "COMMIT|DATE|PATH")
+        List<String> positional;
 
         @Override
         public Integer call() throws Exception {
@@ -336,11 +372,42 @@ public final class VglCli {
             } else if (verbose) {
                 forwarded.add("-v");
             }
+            if (all) {
+                forwarded.add("-all");
+            }
             if (graph) {
                 forwarded.add("-graph");
             }
-            if (commit != null && !commit.isBlank()) {
-                forwarded.add(commit);
+            if (follow != null) {
+                forwarded.add("-follow");
+                if (!follow.isEmpty()) {
+                    forwarded.add(follow);
+                }
+            }
+            if (grep != null) {
+                forwarded.add("-grep");
+                forwarded.add(grep);
+            }
+            if (author != null) {
+                forwarded.add("-author");
+                forwarded.add(author);
+            }
+            if (pickaxe != null) {
+                forwarded.add("-S");
+                forwarded.add(pickaxe);
+            }
+            List<String> given = (positional == null) ? List.of() : positional;
+            List<String> original = spec.commandLine().getParseResult().originalArgs();
+            int dashes = original.indexOf("--");
+            int pathCount = (dashes < 0) ? 0 : Math.min(given.size(), original.size() - dashes - 1);
+            for (String p : given.subList(0, given.size() - pathCount)) {
+                if (p != null && !p.isBlank()) {
+                    forwarded.add(p);
+                }
+            }
+            if (pathCount > 0) {
+                forwarded.add("--");
+                forwarded.addAll(given.subList(given.size() - pathCount, given.size()));
             }
             return new LogCommand().run(forwarded);
         }
@@ -907,6 +974,8 @@ public final class VglCli {
                 err.println(Usage.commit());
             } else if ("abort".equals(first)) {
                 err.println(Usage.abort());
+            } else if ("maintain".equals(first)) {
+                err.println(Usage.maintain());
             } else if ("pull".equals(first)) {
                 err.println(Usage.pull());
             } else if ("push".equals(first)) {
@@ -4,6 +4,7 @@ import com.vgl.cli.commands.helpers.ArgsHelper;
 import com.vgl.cli.commands.helpers.StatusVerboseOutput;
 import com.vgl.cli.commands.helpers.Usage;
 import com.vgl.cli.commands.helpers.CommandWarnings;
+import com.vgl.cli.utils.CommitGraphs;
 import com.vgl.cli.utils.GitUtils;
 import com.vgl.cli.utils.Messages;
 import com.vgl.cli.utils.RepoResolver;
@@ -173,6 +174,8 @@ public class CommitCommand implements Command {
                 System.out.println("Commit message:");
                 System.out.println("  " + (shortId.isBlank() ? "" : shortId + " ") + oneLine);
             }
+
+            CommitGraphs.refreshIfStale(git.getRepository());
         }
 
         // Keep a warning for explicit -lr when that repo is not the current repo.
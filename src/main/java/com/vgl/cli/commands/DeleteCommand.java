@@ -1,6 +1,7 @@
 package com.vgl.cli.commands;
 
 import com.vgl.cli.commands.helpers.ArgsHelper;
+import com.vgl.cli.utils.CommitGraphs;
 import com.vgl.cli.utils.GitUtils;
 import com.vgl.cli.utils.RepoUtils;
 import com.vgl.cli.utils.Messages;
@@ -200,7 +201,7 @@ public class DeleteCommand implements Command {
                     try (RevWalk walk = new RevWalk(repo)) {
                         RevCommit head = walk.parseCommit(headId);
                         RevCommit tip = walk.parseCommit(branchId);
-                        mergedIntoCurrent = walk.isMergedInto(tip, head);
+                        mergedIntoCurrent = CommitGraphs.isAncestor(walk, tip, head);
                     }
                 }
             } catch (Exception ignored) {
@@ -1,37 +1,37 @@
 package com.vgl.cli.commands;
 
 import com.vgl.cli.commands.helpers.ArgsHelper;
+import com.vgl.cli.commands.helpers.DiffBudget;
 import com.vgl.cli.commands.helpers.DiffHelper;
 import com.vgl.cli.utils.FormatUtils;
 import com.vgl.cli.utils.GitAuth;
 import com.vgl.cli.utils.GitUtils;
 import com.vgl.cli.utils.GitRemoteOps;
+import com.vgl.cli.utils.GlobSet;
 import com.vgl.cli.utils.GlobUtils;
 import com.vgl.cli.utils.Messages;
+import com.vgl.cli.utils.MirrorCache;
+import com.vgl.cli.utils.OutputSink;
 import com.vgl.cli.utils.RepoResolver;
 import com.vgl.cli.utils.Utils;
 import com.vgl.cli.utils.VglConfig;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffAlgorithm;
-import org.eclipse.jgit.diff.DiffFormatter;
-import org.eclipse.jgit.diff.EditList;
-import org.eclipse.jgit.diff.HistogramDiff;
-import org.eclipse.jgit.diff.RawText;
-import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
@@ -58,6 +58,17 @@ public class DiffCommand implements Command {
 
     @Override
     public int run(List<String> args) throws Exception {
+        OutputSink sink = OutputSink.install();
+        DiffBudget budget = DiffBudget.fromSystemProperties();
+        try {
+            return runDiff(args, budget);
+        } finally {
+            budget.printReport(System.out);
+            sink.restore();
+        }
+    }
+
+    private int runDiff(List<String> args, DiffBudget budget) throws Exception {
         if (args.contains("-h") || args.contains("--help")) {
             System.out.println(Messages.diffUsage());
             return 0;
@@ -69,8 +80,9 @@ public class DiffCommand implements Command {
 
         int verbosityLevel = args.contains("-vv") ? 2 : (args.contains("-v") ? 1 : 0);
         boolean showAll = args.contains("-all");
+        boolean dirstat = args.contains("-dirstat");
 
-        // Remote-to-remote diff: `diff -rr URL0 -rb B0 -rr URL1 -rb B1` compares workspaces via temp clones.
+        // Remote-to-remote diff: `diff -rr URL0 -rb B0 -rr URL1 -rb B1` compares the two branch tips' trees.
         List<String> remoteUrls = valuesAfterFlagAllAllowMissing(args, "-rr");
         List<String> remoteBranches = valuesAfterFlagAllDefaultMain(args, "-rb");
         if (remoteUrls.size() >= 2) {
@@ -89,34 +101,16 @@ public class DiffCommand implements Command {
 
             List<String> globs = positionals.isEmpty() ? List.of("*") : positionals;
 
-            Path leftClone = null;
-            Path rightClone = null;
+            Path store = null;
             try {
-                try {
-                    leftClone = cloneRemoteToTemp(url1, b1);
-                } catch (Exception e) {
-                    if (e instanceof IllegalStateException && "auth required".equals(e.getMessage())) {
+                store = Files.createTempDirectory(tempBaseDir(), "vgl-diff-remote-");
+                try (RemoteTrees trees = fetchRemoteTrees(store, url1, b1, url2, b2)) {
+                    if (trees == null) {
                         return 1;
                     }
-                    if (GitAuth.handleMissingCredentialsProvider(e, url1, System.err)) {
-                        return 1;
-                    }
-                    throw e;
-                }
-                try {
-                    rightClone = cloneRemoteToTemp(url2, b2);
-                } catch (Exception e) {
-                    if (e instanceof IllegalStateException && "auth required".equals(e.getMessage())) {
-                        return 1;
-                    }
-                    if (GitAuth.handleMissingCredentialsProvider(e, url2, System.err)) {
-                        return 1;
-                    }
-                    throw e;
-                }
-
+                    Repository repo = trees.repo();
                     if (noop) {
-                        int changed = countWorkingTreeDiffBetweenRoots(leftClone, rightClone, globs);
+                        int changed = countTreeDiff(repo, trees.left(), trees.right(), globs);
                         System.out.println(Messages.diffDryRunSummary(changed));
                         return 0;
                     }
@@ -128,14 +122,17 @@ public class DiffCommand implements Command {
                     System.out.println("A: " + leftDisplay);
                     System.out.println("B: " + rightDisplay);
 
-                    boolean any = DiffHelper.diffWorkingTrees(leftClone, rightClone, globs, DiffHelper.computeVerbosity(args), showAll);
-                if (!any) {
-                    System.out.println("No differences.");
+                    DiffHelper.Verbosity dVerb = DiffHelper.computeVerbosity(args);
+                    boolean any = dirstat
+                        ? DiffHelper.printDirStat(repo, trees.left(), trees.right(), globs, dVerb, showAll, budget)
+                        : DiffHelper.diffTrees(repo, trees.left(), trees.right(), globs, dVerb, showAll, budget);
+                    if (!any) {
+                        System.out.println("No differences.");
+                    }
+                    return 0;
                 }
-                return 0;
             } finally {
-                deleteTreeQuietly(leftClone);
-                deleteTreeQuietly(rightClone);
+                deleteTreeQuietly(store);
             }
         }
 
@@ -158,7 +155,10 @@ public class DiffCommand implements Command {
             System.out.println("A: " + leftDisplay);
             System.out.println("B: " + rightDisplay);
 
-            boolean any = DiffHelper.diffWorkingTrees(left, right, globs, DiffHelper.computeVerbosity(args), showAll);
+            if (dirstat) {
+                System.err.println(Messages.diffDirStatNeedsTwoTrees());
+            }
+            boolean any = DiffHelper.diffWorkingTrees(left, right, globs, DiffHelper.computeVerbosity(args), showAll, budget);
             if (!any) {
                 System.out.println("No differences.");
             }
@@ -208,7 +208,10 @@ public class DiffCommand implements Command {
                     return 0;
                 }
 
-                boolean any = DiffHelper.diffWorkingToTree(repo, workingTree, commitTreeId, globs, dVerb, showAll);
+                if (dirstat) {
+                    System.err.println(Messages.diffDirStatNeedsTwoTrees());
+                }
+                boolean any = DiffHelper.diffWorkingToTree(repo, workingTree, commitTreeId, globs, dVerb, showAll, budget);
                 if (!any) {
                     System.out.println("No differences.");
                 }
@@ -235,7 +238,9 @@ public class DiffCommand implements Command {
                     System.out.println(Messages.diffDryRunSummary(changed));
                     return 0;
                 }
-                boolean any = DiffHelper.diffTrees(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll);
+                boolean any = dirstat
+                    ? DiffHelper.printDirStat(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll, budget)
+                    : DiffHelper.diffTrees(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll, budget);
                 if (!any) {
                     System.out.println("No differences.");
                 }
@@ -262,7 +267,9 @@ public class DiffCommand implements Command {
                     System.out.println(Messages.diffDryRunSummary(changed));
                     return 0;
                 }
-                boolean any = DiffHelper.diffTrees(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll);
+                boolean any = dirstat
+                    ? DiffHelper.printDirStat(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll, budget)
+                    : DiffHelper.diffTrees(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll, budget);
                 if (!any) {
                     System.out.println("No differences.");
                 }
@@ -286,7 +293,9 @@ public class DiffCommand implements Command {
                     System.out.println(Messages.diffDryRunSummary(changed));
                     return 0;
                 }
-                boolean any = DiffHelper.diffTrees(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll);
+                boolean any = dirstat
+                    ? DiffHelper.printDirStat(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll, budget)
+                    : DiffHelper.diffTrees(repo, t1, t2, globs, DiffHelper.computeVerbosity(args), showAll, budget);
                 if (!any) {
                     System.out.println("No differences.");
                 }
@@ -350,6 +359,7 @@ public class DiffCommand implements Command {
                 configureOriginRemote(repo, remoteUrlToUse);
                 // best-effort fetch so origin/* exists for comparisons
                 try {
+                    OutputSink.flush();
                     GitRemoteOps.fetchOrigin(repoRoot, git, remoteUrlToUse, /*required*/false, System.err);
                 } catch (Exception ignored) {
                     // best-effort
@@ -379,7 +389,9 @@ public class DiffCommand implements Command {
                     System.out.println(Messages.diffDryRunSummary(changed));
                     return 0;
                 }
-                boolean any = DiffHelper.diffTrees(repo, oldTreeId, newTreeId, globs, dVerb, showAll);
+                boolean any = dirstat
+                    ? DiffHelper.printDirStat(repo, oldTreeId, newTreeId, globs, dVerb, showAll, budget)
+                    : DiffHelper.diffTrees(repo, oldTreeId, newTreeId, globs, dVerb, showAll, budget);
                 if (!any) {
                     System.out.println("No differences.");
                 }
@@ -401,7 +413,10 @@ public class DiffCommand implements Command {
                     System.out.println(Messages.diffDryRunSummary(changed));
                     return 0;
                 }
-                boolean any = DiffHelper.diffTreeToWorking(repo, oldTreeId, workingTree, globs, dVerb, showAll);
+                if (dirstat) {
+                    System.err.println(Messages.diffDirStatNeedsTwoTrees());
+                }
+                boolean any = DiffHelper.diffTreeToWorking(repo, oldTreeId, workingTree, globs, dVerb, showAll, budget);
                 if (!any) {
                     System.out.println("No differences.");
                 }
@@ -425,7 +440,10 @@ public class DiffCommand implements Command {
                 System.out.println(Messages.diffDryRunSummary(changed));
                 return 0;
             }
-            boolean any = DiffHelper.diffTreeToWorking(repo, oldTreeId, workingTree, globs, dVerb, showAll);
+            if (dirstat) {
+                System.err.println(Messages.diffDirStatNeedsTwoTrees());
+            }
+            boolean any = DiffHelper.diffTreeToWorking(repo, oldTreeId, workingTree, globs, dVerb, showAll, budget);
             if (!any) {
                 System.out.println("No differences.");
             }
@@ -448,20 +466,156 @@ public class DiffCommand implements Command {
         }
     }
 
-    private static Path cloneRemoteToTemp(String remoteUrl, String branch) throws Exception {
-        if (remoteUrl == null || remoteUrl.isBlank()) {
-            throw new IllegalArgumentException("remoteUrl is blank");
+    private static final String REMOTE_TIP_REF_PREFIX = "refs/vgl/diff/";
+
+    /** Both sides of a remote-to-remote diff, readable through one repository. */
+    private record RemoteTrees(Repository repo, ObjectId left, ObjectId right, List<MirrorCache.Lease> mirrors) implements AutoCloseable {
+        @Override
+        public void close() throws IOException {
+            repo.close();
+            for (MirrorCache.Lease mirror : mirrors) {
+                mirror.close();
+            }
+        }
+    }
+
+    /**
+     * Fetches the two branch tips (depth 1, no checkout) into bare stores under {@code store}, in
+     * parallel when the URLs differ. The right-hand store is linked to the left one as an object
+     * alternate, so a single repository sees both trees. Returns null if auth failed (already
+     * reported).
+     */
+    private static RemoteTrees fetchRemoteTrees(Path store, String url1, String b1, String url2, String b2) throws Exception {
+        if (MirrorCache.appliesTo(url1) && MirrorCache.appliesTo(url2)) {
+            return mirrorRemoteTrees(store, url1, b1, url2, b2);
+        }
+        Path leftDir = store.resolve("a.git");
+        Path rightDir = store.resolve("b.git");
+        boolean sameRemote = url1.equals(url2);
+        Git.init().setBare(true).setDirectory(leftDir.toFile()).call().close();
+        if (!sameRemote) {
+            Git.init().setBare(true).setDirectory(rightDir.toFile()).call().close();
+        }
+
+        OutputSink.flush();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> left = pool.submit(() -> GitRemoteOps.fetchTipsInto(leftDir, url1,
+                sameRemote ? List.of(b1, b2) : List.of(b1), REMOTE_TIP_REF_PREFIX, System.err));
+            Future<Boolean> right = sameRemote ? null : pool.submit(() -> GitRemoteOps.fetchTipsInto(rightDir, url2,
+                List.of(b2), REMOTE_TIP_REF_PREFIX, System.err));
+            if (awaitFetch(left, url1) != Boolean.TRUE || (right != null && awaitFetch(right, url2) != Boolean.TRUE)) {
+                return null;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        ObjectId rightTree = null;
+        if (!sameRemote) {
+            try (Git rightGit = GitUtils.openGit(rightDir)) {
+                rightTree = resolveTree(rightGit.getRepository(), REMOTE_TIP_REF_PREFIX + "0");
+            }
+            Path alternates = leftDir.resolve("objects").resolve("info").resolve("alternates");
+            Files.createDirectories(alternates.getParent());
+            Files.writeString(alternates, rightDir.resolve("objects").toAbsolutePath() + "\n");
+        }
+
+        Repository repo = GitUtils.openGit(leftDir).getRepository();
+        ObjectId leftTree = resolveTree(repo, REMOTE_TIP_REF_PREFIX + "0");
+        if (sameRemote) {
+            rightTree = resolveTree(repo, REMOTE_TIP_REF_PREFIX + "1");
+        }
+        if (leftTree == null || rightTree == null) {
+            repo.close();
+            throw new IOException("Cannot resolve fetched branch tips.");
+        }
+        return new RemoteTrees(repo, leftTree, rightTree, List.of());
+    }
+
+    /**
+     * Like {@link #fetchRemoteTrees}, but updates the persistent mirrors of both remotes (in
+     * parallel) and reads the trees through a scratch repository whose alternates are the mirrors.
+     */
+    private static RemoteTrees mirrorRemoteTrees(Path store, String url1, String b1, String url2, String b2) throws Exception {
+        boolean sameRemote = url1.equals(url2);
+        List<MirrorCache.Lease> mirrors = new ArrayList<>();
+        try {
+            OutputSink.flush();
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            try {
+                Future<MirrorCache.Lease> left = pool.submit(() -> MirrorCache.acquire(url1, System.err));
+                Future<MirrorCache.Lease> right = sameRemote ? null : pool.submit(() -> MirrorCache.acquire(url2, System.err));
+                MirrorCache.Lease leftMirror = awaitFetch(left, url1);
+                MirrorCache.Lease rightMirror = (right == null) ? leftMirror : awaitFetch(right, url2);
+                if (leftMirror != null) {
+                    mirrors.add(leftMirror);
+                }
+                if (rightMirror != null && rightMirror != leftMirror) {
+                    mirrors.add(rightMirror);
+                }
+                if (leftMirror == null || rightMirror == null) {
+                    closeAll(mirrors);
+                    return null;
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+
+            ObjectId leftTree;
+            ObjectId rightTree;
+            try (Git leftGit = GitUtils.openGit(mirrors.get(0).gitDir());
+                Git rightGit = GitUtils.openGit(mirrors.get(mirrors.size() - 1).gitDir())) {
+                leftTree = resolveTree(leftGit.getRepository(), Constants.R_HEADS + b1);
+                rightTree = resolveTree(rightGit.getRepository(), Constants.R_HEADS + b2);
+            }
+            if (leftTree == null || rightTree == null) {
+                throw new IOException("Cannot resolve fetched branch tips.");
+            }
+
+            Path scratch = store.resolve("a.git");
+            Git.init().setBare(true).setDirectory(scratch.toFile()).call().close();
+            StringBuilder alternates = new StringBuilder();
+            for (MirrorCache.Lease mirror : mirrors) {
+                alternates.append(mirror.gitDir().resolve("objects").toAbsolutePath()).append('\n');
+            }
+            Path alternatesFile = scratch.resolve("objects").resolve("info").resolve("alternates");
+            Files.createDirectories(alternatesFile.getParent());
+            Files.writeString(alternatesFile, alternates);
+
+            MirrorCache.evict();
+            return new RemoteTrees(GitUtils.openGit(scratch).getRepository(), leftTree, rightTree, List.copyOf(mirrors));
+        } catch (Exception e) {
+            closeAll(mirrors);
+            throw e;
         }
-        String b = (branch == null || branch.isBlank()) ? "main" : branch;
-        Path base = tempBaseDir();
-        Path dir = Files.createTempDirectory(base, "vgl-diff-remote-");
-        boolean ok = GitRemoteOps.cloneInto(dir, remoteUrl, b, System.err);
-        if (!ok) {
-            deleteTreeQuietly(dir);
-            // Auth was already reported; keep a consistent signal for callers.
-            throw new IllegalStateException("auth required");
+    }
+
+    private static void closeAll(List<MirrorCache.Lease> mirrors) {
+        for (MirrorCache.Lease mirror : mirrors) {
+            try {
+                mirror.close();
+            } catch (IOException ignored) {
+                // best-effort
+            }
+        }
+        mirrors.clear();
+    }
+
+    /** Waits for a background fetch; returns null if auth failed (already reported). */
+    private static <T> T awaitFetch(Future<T> fetch, String url) throws Exception {
+        try {
+            return fetch.get();
+        } catch (ExecutionException e) {
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            if (GitAuth.handleMissingCredentialsProvider(cause, url, System.err)) {
+                return null;
+            }
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            throw e;
         }
-        return dir;
     }
 
     private static Path tempBaseDir() throws IOException {
@@ -517,18 +671,15 @@ public class DiffCommand implements Command {
             CanonicalTreeParser newTree = new CanonicalTreeParser();
             newTree.reset(reader, newTreeId);
 
-            try (DiffFormatter df = new DiffFormatter(OutputStream.nullOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-                List<DiffEntry> diffs = df.scan(oldTree, newTree);
-                int count = 0;
-                for (DiffEntry d : diffs) {
-                    if (matchesAny(d, globs)) {
-                        count++;
-                    }
+            List<DiffEntry> diffs = DiffHelper.scanTreeDiff(repo, reader, oldTree, newTree, GlobUtils.toTreeFilter(globs));
+            int count = 0;
+            GlobSet globSet = GlobSet.compile(globs);
+            for (DiffEntry d : diffs) {
+                if (matchesAny(d, globSet)) {
+                    count++;
                 }
-                return count;
             }
+            return count;
         }
     }
 
@@ -537,18 +688,15 @@ public class DiffCommand implements Command {
             CanonicalTreeParser oldTree = new CanonicalTreeParser();
             oldTree.reset(reader, oldTreeId);
 
-            try (DiffFormatter df = new DiffFormatter(OutputStream.nullOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-                List<DiffEntry> diffs = df.scan(oldTree, workingTree);
-                int count = 0;
-                for (DiffEntry d : diffs) {
-                    if (matchesAny(d, globs)) {
-                        count++;
-                    }
+            List<DiffEntry> diffs = DiffHelper.scanWorkingTreeDiff(repo, reader, oldTree, workingTree, GlobUtils.toTreeFilter(globs));
+            int count = 0;
+            GlobSet globSet = GlobSet.compile(globs);
+            for (DiffEntry d : diffs) {
+                if (matchesAny(d, globSet)) {
+                    count++;
                 }
-                return count;
             }
+            return count;
         }
     }
 
@@ -557,18 +705,15 @@ public class DiffCommand implements Command {
             CanonicalTreeParser newTree = new CanonicalTreeParser();
             newTree.reset(reader, newTreeId);
 
-            try (DiffFormatter df = new DiffFormatter(OutputStream.nullOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-                List<DiffEntry> diffs = df.scan(workingTree, newTree);
-                int count = 0;
-                for (DiffEntry d : diffs) {
-                    if (matchesAny(d, globs)) {
-                        count++;
-                    }
+            List<DiffEntry> diffs = DiffHelper.scanWorkingTreeDiff(repo, reader, workingTree, newTree, GlobUtils.toTreeFilter(globs));
+            int count = 0;
+            GlobSet globSet = GlobSet.compile(globs);
+            for (DiffEntry d : diffs) {
+                if (matchesAny(d, globSet)) {
+                    count++;
                 }
-                return count;
             }
+            return count;
         }
     }
 
@@ -649,121 +794,10 @@ public class DiffCommand implements Command {
         return out;
     }
 
-    private static boolean diffWorkingTrees(Path leftRoot, Path rightRoot, List<String> globs, int verbosityLevel) throws IOException {
-        Map<String, byte[]> left = snapshotFiles(leftRoot, globs);
-        Map<String, byte[]> right = snapshotFiles(rightRoot, globs);
-
-        List<String> allPaths = new ArrayList<>();
-        allPaths.addAll(left.keySet());
-        for (String p : right.keySet()) {
-            if (!left.containsKey(p)) {
-                allPaths.add(p);
-            }
-        }
-        allPaths.sort(String::compareTo);
-
-        boolean any = false;
-        int totalAdded = 0;
-        int totalRemoved = 0;
-        Map<String, int[]> perFileCounts = new HashMap<>();
-
-        for (String rel : allPaths) {
-            byte[] a = left.get(rel);
-            byte[] b = right.get(rel);
-            if (Arrays.equals(a, b)) {
-                continue;
-            }
-            any = true;
-
-            if (verbosityLevel >= 1) {
-                String aName = "a/" + rel;
-                String bName = "b/" + rel;
-                System.out.println("diff --git " + aName + " " + bName);
-                if (a == null) {
-                    System.out.println("new file mode 100644");
-                    System.out.println("--- /dev/null");
-                    System.out.println("+++ " + bName);
-                } else if (b == null) {
-                    System.out.println("deleted file mode 100644");
-                    System.out.println("--- " + aName);
-                    System.out.println("+++ /dev/null");
-                } else {
-                    System.out.println("--- " + aName);
-                    System.out.println("+++ " + bName);
-                }
-
-                if (a != null && RawText.isBinary(a) || b != null && RawText.isBinary(b)) {
-                    System.out.println("Binary files differ");
-                    continue;
-                }
-
-                RawText at = new RawText(a != null ? a : new byte[0]);
-                RawText bt = new RawText(b != null ? b : new byte[0]);
-                DiffAlgorithm alg = new HistogramDiff();
-                EditList edits = alg.diff(RawTextComparator.DEFAULT, at, bt);
-                if (verbosityLevel >= 2) {
-                    try (DiffFormatter df = new DiffFormatter(System.out)) {
-                        df.setContext(3);
-                        df.format(edits, at, bt);
-                    }
-                } else {
-                    int added = 0;
-                    int removed = 0;
-                    for (org.eclipse.jgit.diff.Edit e : edits) {
-                        removed += Math.max(0, e.getEndA() - e.getBeginA());
-                        added += Math.max(0, e.getEndB() - e.getBeginB());
-                    }
-                    perFileCounts.put(rel, new int[] {added, removed});
-                    totalAdded += added;
-                    totalRemoved += removed;
-                }
-            } else {
-                // verbosityLevel == 0: collect counts without printing file headers now
-                if (a != null && RawText.isBinary(a) || b != null && RawText.isBinary(b)) {
-                    perFileCounts.put(rel, new int[] {0, 0});
-                    continue;
-                }
-                RawText at = new RawText(a != null ? a : new byte[0]);
-                RawText bt = new RawText(b != null ? b : new byte[0]);
-                DiffAlgorithm alg = new HistogramDiff();
-                EditList edits = alg.diff(RawTextComparator.DEFAULT, at, bt);
-                int added = 0;
-                int removed = 0;
-                for (org.eclipse.jgit.diff.Edit e : edits) {
-                    removed += Math.max(0, e.getEndA() - e.getBeginA());
-                    added += Math.max(0, e.getEndB() - e.getBeginB());
-                }
-                perFileCounts.put(rel, new int[] {added, removed});
-                totalAdded += added;
-                totalRemoved += removed;
-            }
-        }
-
-        if (verbosityLevel == 0 && any) {
-            System.out.println(totalFileSummary(perFileCounts, totalAdded, totalRemoved));
-            for (String rel : allPaths) {
-                if (!perFileCounts.containsKey(rel)) continue;
-                int[] ar = perFileCounts.get(rel);
-                String kind = (left.get(rel) == null) ? "A" : (right.get(rel) == null) ? "D" : "M";
-                System.out.println("  " + kind + " " + rel + " (+" + ar[0] + "/-" + ar[1] + ")");
-            }
-            System.out.println("\nUse `vgl diff -v` to see full diffs.");
-        }
-
-        return any;
-    }
-
-    private static String totalFileSummary(Map<String,int[]> perFileCounts, int totalAdded, int totalRemoved) {
-        int files = perFileCounts.size();
-        if (files == 1) {
-            return "1 file(s) changed";
-        }
-        return files + " file(s) changed - +" + totalAdded + "/-" + totalRemoved;
-    }
-
     private static int countWorkingTreeDiffBetweenRoots(Path leftRoot, Path rightRoot, List<String> globs) throws IOException {
-        Map<String, byte[]> left = snapshotFiles(leftRoot, globs);
-        Map<String, byte[]> right = snapshotFiles(rightRoot, globs);
+        java.util.Set<String> identical = DiffHelper.identicalFiles(leftRoot, rightRoot, globs);
+        Map<String, DiffHelper.Content> left = DiffHelper.snapshotFiles(leftRoot, globs, identical);
+        Map<String, DiffHelper.Content> right = DiffHelper.snapshotFiles(rightRoot, globs, identical);
 
         List<String> allPaths = new ArrayList<>();
         allPaths.addAll(left.keySet());
@@ -775,46 +809,15 @@ public class DiffCommand implements Command {
 
         int count = 0;
         for (String rel : allPaths) {
-            byte[] a = left.get(rel);
-            byte[] b = right.get(rel);
-            if (!Arrays.equals(a, b)) {
+            DiffHelper.Content a = left.get(rel);
+            DiffHelper.Content b = right.get(rel);
+            if (a == null || !a.sameBytes(b)) {
                 count++;
             }
         }
         return count;
     }
 
-    private static Map<String, byte[]> snapshotFiles(Path root, List<String> globs) throws IOException {
-        Map<String, byte[]> out = new HashMap<>();
-        if (root == null) {
-            return out;
-        }
-        if (!Files.exists(root)) {
-            return out;
-        }
-        Path absRoot = root.toAbsolutePath().normalize();
-
-        Files.walk(absRoot)
-            .filter(Files::isRegularFile)
-            .forEach(p -> {
-                Path rel = absRoot.relativize(p);
-                String relStr = rel.toString().replace('\\', '/');
-                if (relStr.startsWith(".git/") || relStr.equals(".vgl")) {
-                    return;
-                }
-                if (!GlobUtils.matchesAny(relStr, globs)) {
-                    return;
-                }
-                try {
-                    out.put(relStr, Files.readAllBytes(p));
-                } catch (IOException ignored) {
-                    // best-effort
-                }
-            });
-
-        return out;
-    }
-
     private static ObjectId resolveTree(Repository repo, String treeish) {
         if (repo == null || treeish == null || treeish.isBlank()) {
             return null;
@@ -826,69 +829,6 @@ public class DiffCommand implements Command {
         }
     }
 
-    private static boolean diffTreeToWorking(Repository repo, ObjectId oldTreeId, FileTreeIterator workingTree, List<String> globs, int verbosityLevel) throws Exception {
-        boolean any = false;
-        int totalAdded = 0;
-        int totalRemoved = 0;
-        Map<String, int[]> perFileCounts = new HashMap<>();
-        try (ObjectReader reader = repo.newObjectReader()) {
-            CanonicalTreeParser oldTree = new CanonicalTreeParser();
-            oldTree.reset(reader, oldTreeId);
-
-            try (DiffFormatter df = new DiffFormatter(OutputStream.nullOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-
-                List<DiffEntry> diffs = df.scan(oldTree, workingTree);
-                for (DiffEntry d : diffs) {
-                    if (!matchesAny(d, globs)) {
-                        continue;
-                    }
-                    any = true;
-                    if (verbosityLevel >= 1) {
-                        try (DiffFormatter dfOut = new DiffFormatter(System.out)) {
-                            dfOut.setRepository(repo);
-                            dfOut.setDetectRenames(true);
-                            dfOut.format(d);
-                        }
-                    } else {
-                        // summary mode - compute edits counts
-                        try (DiffFormatter dfHdr = new DiffFormatter(OutputStream.nullOutputStream())) {
-                            dfHdr.setRepository(repo);
-                            dfHdr.setDetectRenames(true);
-                            var fh = dfHdr.toFileHeader(d);
-                            EditList edits = fh.toEditList();
-                            int added = 0;
-                            int removed = 0;
-                            for (org.eclipse.jgit.diff.Edit e : edits) {
-                                removed += Math.max(0, e.getEndA() - e.getBeginA());
-                                added += Math.max(0, e.getEndB() - e.getBeginB());
-                            }
-                            String path = d.getNewPath();
-                            if (path == null || path.equals("/dev/null")) {
-                                path = d.getOldPath();
-                            }
-                            perFileCounts.put(path, new int[] {added, removed});
-                            totalAdded += added;
-                            totalRemoved += removed;
-                        }
-                    }
-                }
-            }
-        }
-
-        if (verbosityLevel == 0 && any) {
-            System.out.println(totalFileSummary(perFileCounts, totalAdded, totalRemoved));
-            for (Map.Entry<String,int[]> e : perFileCounts.entrySet()) {
-                int[] ar = e.getValue();
-                // infer change type: additions where old path is /dev/null not tracked here, keep M/A/D generic
-                System.out.println("  M " + e.getKey() + " (+" + ar[0] + "/-" + ar[1] + ")");
-            }
-            System.out.println("\nUse `vgl diff -v` to see full diffs.");
-        }
-        return any;
-    }
-
     private static void printCompareSourceHeader(List<String> args, String mode, Path repoRoot, String localBranch, String remoteUrl, String remoteBranch) {
         printCompareSourceHeader(args, mode, repoRoot, localBranch, remoteUrl, remoteBranch, null);
     }
@@ -950,72 +890,13 @@ public class DiffCommand implements Command {
         }
     }
 
-    private static boolean diffTrees(Repository repo, ObjectId oldTreeId, ObjectId newTreeId, List<String> globs, int verbosityLevel) throws Exception {
-        boolean any = false;
-        int totalAdded = 0;
-        int totalRemoved = 0;
-        Map<String, int[]> perFileCounts = new HashMap<>();
-        try (ObjectReader reader = repo.newObjectReader()) {
-            CanonicalTreeParser oldTree = new CanonicalTreeParser();
-            oldTree.reset(reader, oldTreeId);
-            CanonicalTreeParser newTree = new CanonicalTreeParser();
-            newTree.reset(reader, newTreeId);
-
-            try (DiffFormatter df = new DiffFormatter(OutputStream.nullOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-
-                List<DiffEntry> diffs = df.scan(oldTree, newTree);
-                for (DiffEntry d : diffs) {
-                    if (!matchesAny(d, globs)) {
-                        continue;
-                    }
-                    any = true;
-                    if (verbosityLevel >= 1) {
-                        try (DiffFormatter dfOut = new DiffFormatter(System.out)) {
-                            dfOut.setRepository(repo);
-                            dfOut.setDetectRenames(true);
-                            dfOut.format(d);
-                        }
-                    } else {
-                        var fh = df.toFileHeader(d);
-                        EditList edits = fh.toEditList();
-                        int added = 0;
-                        int removed = 0;
-                        for (org.eclipse.jgit.diff.Edit e : edits) {
-                            removed += Math.max(0, e.getEndA() - e.getBeginA());
-                            added += Math.max(0, e.getEndB() - e.getBeginB());
-                        }
-                        String path = d.getNewPath();
-                        if (path == null || path.equals("/dev/null")) {
-                            path = d.getOldPath();
-                        }
-                        perFileCounts.put(path, new int[] {added, removed});
-                        totalAdded += added;
-                        totalRemoved += removed;
-                    }
-                }
-            }
-        }
-
-        if (verbosityLevel == 0 && any) {
-            System.out.println(totalFileSummary(perFileCounts, totalAdded, totalRemoved));
-            for (Map.Entry<String,int[]> e : perFileCounts.entrySet()) {
-                int[] ar = e.getValue();
-                System.out.println("  M " + e.getKey() + " (+" + ar[0] + "/-" + ar[1] + ")");
-            }
-            System.out.println("\nUse `vgl diff -v` to see full diffs.");
-        }
-        return any;
-    }
-
-    private static boolean matchesAny(DiffEntry d, List<String> globs) {
+    private static boolean matchesAny(DiffEntry d, GlobSet globs) {
         if (d == null) {
             return false;
         }
         String a = d.getOldPath();
         String b = d.getNewPath();
-        return GlobUtils.matchesAny(a, globs) || GlobUtils.matchesAny(b, globs);
+        return globs.matches(a) || globs.matches(b);
     }
 
     private static List<String> collectPositionals(List<String> args) {
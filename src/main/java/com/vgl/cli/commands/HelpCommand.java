@@ -142,6 +142,7 @@ public class HelpCommand implements Command {
             "  merge [-f] [-noop] [-from [-lr DIR] [-lb BRANCH | -bb BRANCH]]",
             "                     [-into [-lr DIR] [-lb BRANCH | -bb BRANCH]]",
             "  restore [-f] [GLOB] {-lr DIR [-lb BRANCH] | -rr URL [-rb BRANCH]}",
+            "  maintain",
             "",
             "Remote collaboration:",
             "  checkout [-f] -rr URL [-rb BRANCH]",
@@ -154,7 +155,7 @@ public class HelpCommand implements Command {
             "",
             "Review:",
             "  diff  [-v|-vv] [-all] [SOURCE] [SOURCE] [GLOB...]",
-            "  log [-v|-vv] [-all] [-graph] [COMMIT..COMMIT] [DATE..DATE]",
+            "  log [-v|-vv] [-all] [-graph] [-follow PATH] [-grep TEXT] [-author NAME] [-S TEXT] [COMMIT..COMMIT] [DATE..DATE] [-- PATH...]",
             "",
             "Flag reference:",
             "  -f            Force; bypass confirmation prompts",
@@ -430,6 +431,7 @@ public class HelpCommand implements Command {
                 "  vgl diff [-v|-vv] [-all] [GLOB...]",
                 "  vgl diff [-v|-vv] [-all] COMMIT [GLOB...]",
                 "  vgl diff [-v|-vv] [-all] COMMIT1 COMMIT2 [GLOB...]",
+                "  vgl diff -dirstat [-v] [-all] COMMIT1 COMMIT2 [GLOB...]",
                 "  vgl diff [-v|-vv] [-all] [GLOB...] [-lr DIR]... [-lb BRANCH]... [-rr URL]... [-rb BRANCH]...",
                 "",
                 "How sources work:",
@@ -447,12 +449,14 @@ public class HelpCommand implements Command {
                 "  vgl diff                            Workspace vs HEAD",
                 "  vgl diff COMMIT                     Workspace vs commit",
                 "  vgl diff -lb main -lb feature       Local branch comparison",
+                "  vgl diff -dirstat -lb main -lb dev  Changed files per directory",
                 "  vgl diff -rb dev                    Workspace vs remote 'dev' (remote URL from switch state)",
                 "  vgl diff -rr URL1 -rb main -rr URL2 -rb main  Remote-to-remote",
                 "",
                 "Notes:",
                 "  - Default: shows up to 10 matching changes/results; prints '  ...' if more exist",
                 "  - Use '-all' to show all matching differences",
+                "  - Use '-dirstat' between two commits/branches for per-directory counts; -v adds line churn",
                 "  - diff never changes files; it only reports differences"
             );
             case "log" -> String.join("\n",
@@ -461,13 +465,17 @@ public class HelpCommand implements Command {
                 "log -- Show commit history",
                 "",
                 "Usage:",
-                "  vgl log [-v|-vv] [-all] [-graph] [COMMIT | COMMIT..COMMIT | DATE | DATE..DATE]...",
+                "  vgl log [-v|-vv] [-all] [-graph] [-follow PATH] [-grep TEXT] [-author NAME] [-S TEXT] [COMMIT | COMMIT..COMMIT | DATE | DATE..DATE]... [-- PATH|GLOB...]",
                 "",
                 "Options:",
                 "  -v              Show all commits (one-line summaries)",
                 "  -vv             Show a full patch for the most recent commit or a specified COMMIT",
                 "  -all            Show all commits (do not limit to 10 most recent)",
-                "  -graph          Show ASCII graph of history",
+                "  -graph          Draw branch and merge lanes beside the commits",
+                "  -follow PATH    Show the history of one file, continuing across renames",
+                "  -grep TEXT      Show commits whose message contains TEXT (ignoring case)",
+                "  -author NAME    Show commits whose author name or email contains NAME (ignoring case)",
+                "  -S TEXT         Show commits that added or removed TEXT in a file's contents",
                 "",
                 "Notes:",
                 "  - Default output is a short, single-line summary per commit (message truncated to fit)",
@@ -476,6 +484,7 @@ public class HelpCommand implements Command {
                 "  - DATE formats accepted: yyyy-MM-dd (day) or yyyy-MM (month)",
                 "  - Ranges use two dots: COMMIT..COMMIT or DATE..DATE",
                 "  - Multiple commits and/or date specs may be provided together",
+                "  - '-- PATH|GLOB...' lists only commits that changed a matching file (paths are repo-relative)",
                 "  - Hint: run vgl log <commit> -vv for a specific commit patch"
             );
             case "pull" -> String.join("\n",
@@ -521,6 +530,19 @@ public class HelpCommand implements Command {
                 "Usage:",
                 "  vgl abort"
             );
+            case "maintain" -> String.join("\n",
+                header(),
+                "",
+                "maintain -- Rebuild history indexes for faster log and status",
+                "",
+                "Usage:",
+                "  vgl maintain",
+                "",
+                "Notes:",
+                "  - Rewrites the repo's commit-graph from all branches and tags",
+                "  - Sets core.commitGraph=true in .git/config unless the repo sets it",
+                "  - Once a graph exists, commit and pull refresh it when it falls behind"
+            );
             case "merge" -> String.join("\n",
                 header(),
                 "",
@@ -1,9 +1,19 @@
 package com.vgl.cli.commands;
 
+import com.vgl.cli.utils.ChangeSummaries;
+import com.vgl.cli.utils.CommitGraphs;
+import com.vgl.cli.utils.CommitSearch;
 import com.vgl.cli.utils.GitUtils;
+import com.vgl.cli.utils.GlobUtils;
+import com.vgl.cli.utils.LogGraph;
 import com.vgl.cli.utils.Messages;
+import com.vgl.cli.utils.OutputSink;
+import com.vgl.cli.utils.Pickaxe;
+import com.vgl.cli.utils.RenameChains;
 import com.vgl.cli.utils.RepoResolver;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -13,19 +23,36 @@ import java.time.LocalTime;
 import java.time.ZonedDateTime;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.api.errors.NoHeadException;
+import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.commitgraph.ChangedPathFilter;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.treewalk.AbstractTreeIterator;
-import org.eclipse.jgit.treewalk.CanonicalTreeParser;
-import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.TreeRevFilter;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.OrTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 public class LogCommand implements Command {
+    /** Entries after which buffered output is pushed through, so the first screen shows up at once. */
+    private static final int FIRST_SCREEN = 10;
+
     @Override
     public String name() {
         return "log";
@@ -33,11 +60,72 @@ public class LogCommand implements Command {
 
     @Override
     public int run(List<String> args) throws Exception {
+        OutputSink sink = OutputSink.install();
+        try {
+            return runLog(args);
+        } finally {
+            sink.restore();
+        }
+    }
+
+    private int runLog(List<String> args) throws Exception {
         if (args.contains("-h") || args.contains("--help")) {
             System.out.println(Messages.logUsage());
             return 0;
         }
 
+        // Everything after "--" names files, directories or globs the history is limited to.
+        int pathsAt = args.indexOf("--");
+        List<String> paths = normalizePaths((pathsAt < 0) ? List.of() : args.subList(pathsAt + 1, args.size()));
+        if (pathsAt >= 0) {
+            args = args.subList(0, pathsAt);
+        }
+
+        // -follow takes its file as "-follow PATH" or as the only path after "--".
+        String follow = null;
+        int followAt = args.indexOf("-follow");
+        if (followAt >= 0) {
+            List<String> rest = new java.util.ArrayList<>(args);
+            rest.remove(followAt);
+            if (followAt < rest.size() && !rest.get(followAt).startsWith("-")) {
+                follow = rest.remove(followAt);
+            }
+            args = rest;
+            List<String> target = (follow == null) ? paths : normalizePaths(List.of(follow));
+            if (target.size() != 1 || (follow != null && !paths.isEmpty()) || GlobUtils.hasWildcard(target.get(0))) {
+                System.err.println(Messages.logFollowNeedsOnePath());
+                return 1;
+            }
+            follow = target.get(0);
+            paths = List.of();
+        }
+
+        // -grep TEXT and -author NAME search commit messages and author identities, -S TEXT file contents.
+        String grep = null;
+        String author = null;
+        String pickaxe = null;
+        for (String option : List.of("-grep", "-author", "-S")) {
+            int at = args.indexOf(option);
+            if (at < 0) {
+                continue;
+            }
+            if (at + 1 >= args.size() || args.get(at + 1).isEmpty()) {
+                System.err.println(Messages.logSearchNeedsText(option));
+                return 1;
+            }
+            List<String> rest = new java.util.ArrayList<>(args);
+            String value = rest.remove(at + 1);
+            rest.remove(at);
+            args = rest;
+            if (option.equals("-grep")) {
+                grep = value;
+            } else if (option.equals("-author")) {
+                author = value;
+            } else {
+                pickaxe = value;
+            }
+        }
+
         boolean veryVerbose = args.contains("-vv");
         boolean verbose = args.contains("-v") || veryVerbose;
         boolean showAll = args.contains("-all");
@@ -63,12 +151,18 @@ public class LogCommand implements Command {
             DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
             if (veryVerbose) {
                 String vvArg = positional.isEmpty() ? null : positional.get(0);
-                return runVeryVerbose(git, fmt, vvArg, showAll);
+                RevFilter search = RevFilter.ALL;
+                if (grep != null || author != null) {
+                    search = CommitSearch.open(git.getRepository(), startsOrHead(git.getRepository(), List.of()), grep, author).filter();
+                }
+                return runVeryVerbose(git, fmt, vvArg, showAll, paths, follow, search, pickaxe);
             }
 
             // Default behavior: single-line per commit, truncated messages.
             // If no flags and no positional args, show 10 most recent commits (with ellipsis if more).
-            var logCmd = git.log();
+            Repository repo = git.getRepository();
+            java.util.List<ObjectId> starts = new java.util.ArrayList<>();
+            java.util.List<ObjectId> excludes = new java.util.ArrayList<>();
 
             // Support multiple positional arguments and ranges.
             // Date range filter (epoch seconds) - optional
@@ -76,10 +170,6 @@ public class LogCommand implements Command {
             Long dateRangeEnd = null;
 
             boolean limitedToRecent = !showAll;
-            if (limitedToRecent) {
-                // Default: limit to 11 so we can show 10 + ellipsis indicator.
-                logCmd.setMaxCount(11);
-            }
 
             int explicitCommitAdds = 0;
             if (!positional.isEmpty()) {
@@ -97,19 +187,21 @@ public class LogCommand implements Command {
                                     try (org.eclipse.jgit.revwalk.RevWalk rw = new org.eclipse.jgit.revwalk.RevWalk(git.getRepository())) {
                                         org.eclipse.jgit.revwalk.RevCommit ca = rw.parseCommit(a);
                                         org.eclipse.jgit.revwalk.RevCommit cb = rw.parseCommit(b);
-                                        if (rw.isMergedInto(ca, cb)) {
-                                            logCmd.addRange(a, b);
-                                        } else if (rw.isMergedInto(cb, ca)) {
-                                            logCmd.addRange(b, a);
+                                        if (CommitGraphs.isAncestor(rw, ca, cb)) {
+                                            excludes.add(a);
+                                            starts.add(b);
+                                        } else if (CommitGraphs.isAncestor(rw, cb, ca)) {
+                                            excludes.add(b);
+                                            starts.add(a);
                                         } else {
                                             // Not an ancestor relationship; fall back to adding the end commit
-                                            logCmd.add(b);
+                                            starts.add(b);
                                             explicitCommitAdds++;
                                         }
                                     }
                                 } catch (Exception ignored) {
                                     // Fall back to adding the end commit and we'll filter later
-                                    logCmd.add(b);
+                                    starts.add(b);
                                     explicitCommitAdds++;
                                 }
                                 continue;
@@ -125,7 +217,7 @@ public class LogCommand implements Command {
                         }
                         // If we get here, treat as a literal and attempt to resolve as commit-ish
                         ObjectId fallback = resolveCommitOrNull(git.getRepository(), p);
-                        if (fallback != null) { logCmd.add(fallback); explicitCommitAdds++; }
+                        if (fallback != null) { starts.add(fallback); explicitCommitAdds++; }
                     } else {
                         // single token: could be a date or a commit-ish
                         long[] singleDate = parseDateRangeSingle(p);
@@ -136,7 +228,7 @@ public class LogCommand implements Command {
                         }
                         ObjectId oid = resolveCommitOrNull(git.getRepository(), p);
                         if (oid != null) {
-                            logCmd.add(oid);
+                            starts.add(oid);
                             explicitCommitAdds++;
                         } else {
                             System.err.println("Warning: cannot resolve '" + p + "' as commit or date; ignoring");
@@ -148,89 +240,335 @@ public class LogCommand implements Command {
                 // leave logCmd without setMaxCount
             }
 
+            RevFilter since = RevFilter.ALL;
+            RevFilter filter = RevFilter.ALL;
+            if (dateRangeStart != null) {
+                // Filter inside the walk: commits newer than the window are passed over, and the
+                // walk stops at the first commit older than it. The walk is lazy, so the print
+                // loop's limit bounds it and only counts commits inside the window.
+                since = CommitTimeRevFilter.after(dateRangeStart * 1000L);
+                filter = CommitTimeRevFilter.before(dateRangeEnd * 1000L);
+            }
+
+            CommitSearch search = null;
+            if (grep != null || author != null) {
+                search = CommitSearch.open(repo, startsOrHead(repo, starts), grep, author);
+                filter = AndRevFilter.create(filter, search.filter());
+            }
+
             // If the user explicitly provided exactly one commit-ish token (not a date)
             // and asked for verbose output, treat that as a request to show only that
-            // single commit (not its ancestors). Override any previous max count.
-            if (explicitCommitAdds == 1 && positional.size() == 1 && verbose) {
-                logCmd.setMaxCount(1);
-            }
+            // single commit (not its ancestors).
+            boolean singleCommit = explicitCommitAdds == 1 && positional.size() == 1 && verbose;
 
-            Iterable<RevCommit> logs = logCmd.call();
             int i = 0;
-            int limit = limitedToRecent ? 10 : Integer.MAX_VALUE;
-            for (RevCommit c : logs) {
-                if (i >= limit) {
-                    // If we fetched an extra item, indicate more commits exist.
-                    System.out.println("  ...");
-                    System.out.println("Hint: Use 'vgl log -all' to show all commits.");
-                    break;
+            int limit = singleCommit ? 1 : (limitedToRecent ? 10 : Integer.MAX_VALUE);
+            try (RevWalk walk = newLogWalk(repo, starts, excludes, since, filter, paths, follow);
+                    Pickaxe contents = (pickaxe == null) ? null : new Pickaxe(repo, walk, pickaxe)) {
+                LogGraph lanes = graph ? new LogGraph(walk) : null;
+                // A search over plain history is answered by the index without walking it.
+                java.util.Iterator<RevCommit> indexed = null;
+                if (search != null && excludes.isEmpty() && paths.isEmpty() && follow == null && lanes == null) {
+                    List<RevCommit> found = search.newestFirst(walk, limit);
+                    indexed = (found == null) ? null : found.iterator();
                 }
-                String id = c.getId().abbreviate(7).name();
-                String date = fmt.format(Instant.ofEpochSecond(c.getCommitTime()));
-                String author = (c.getAuthorIdent() != null) ? c.getAuthorIdent().getName() : "";
-                // Use short message for single-line output
-                String rawMsg = oneLine(c.getShortMessage());
-                // Full commit message (may contain newlines) used for verbose output
-                String fullMsg = (c.getFullMessage() == null) ? "" : c.getFullMessage();
-
-                String prefix = graph ? "* " : "";
-
-                // If a date range filter is set, skip commits outside the window
-                if (dateRangeStart != null || dateRangeEnd != null) {
-                    long t = c.getCommitTime();
-                    if (dateRangeStart != null && t < dateRangeStart) { i++; continue; }
-                    if (dateRangeEnd != null && t > dateRangeEnd) { i++; continue; }
+                java.util.Iterator<RevCommit> matches = indexed;
+                RevFilter kept = filter;
+                Pickaxe.Source source = () -> nextCommit(walk, lanes, matches, kept);
+                if (contents != null) {
+                    // -S diffs each commit on the pickaxe's workers; matches still arrive in walk order.
+                    Pickaxe.Source walked = source;
+                    source = () -> contents.next(walked);
                 }
-
-                if (verbose) {
-                    // Verbose (-v): column-align the start of the message. Make the
-                    // author column a bit wider and truncate the author if needed.
-                    int maxWidth = 80;
-                    int valueColumn = 42; // desired column where message should start
-                    String base = prefix + id + "  " + date + "  ";
-                    int targetFirstLen = Math.max(0, valueColumn - 2); // first.length + 2 == valueColumn
-                    String firstCombined;
-                    if (!author.isBlank()) {
-                        String a = author;
-                        // If combined exceeds target, truncate author with ellipsis
-                        if (base.length() + a.length() > targetFirstLen) {
-                            int avail = Math.max(0, targetFirstLen - base.length());
-                            if (avail <= 3) {
-                                a = a.substring(0, Math.max(0, avail));
-                            } else {
-                                a = a.substring(0, Math.max(0, avail - 3)) + "...";
-                            }
+                for (RevCommit c = source.next(); c != null; c = source.next()) {
+                    if (i >= limit) {
+                        if (!singleCommit) {
+                            // We fetched an extra item: indicate more commits exist.
+                            System.out.println("  ...");
+                            System.out.println("Hint: Use 'vgl log -all' to show all commits.");
                         }
-                        firstCombined = base + a;
-                    } else {
-                        firstCombined = base.trim();
+                        break;
                     }
-                    // Pad to exact width so message column aligns
-                    if (firstCombined.length() < targetFirstLen) {
-                        firstCombined = firstCombined + " ".repeat(targetFirstLen - firstCombined.length());
+                    walk.parseBody(c);
+                    if (lanes != null) {
+                        LogGraph.Rows rows = lanes.next(c);
+                        rows.before().forEach(System.out::println);
+                        printLogEntry(c, fmt, verbose, rows.commit(), rows.padding());
+                        rows.after().forEach(System.out::println);
+                    } else {
+                        printLogEntry(c, fmt, verbose, "", "");
                     }
-                    printWrappedColumns(firstCombined, fullMsg, maxWidth);
-                } else {
-                    // single-line default: show abbreviated id and truncated one-line message
-                    int maxWidth = 80;
-                    // Column where message should start (including prefix)
-                    int valueColumn = 10;
-                    String msg = rawMsg;
-                    int used = prefix.length() + id.length();
-                    int pad = Math.max(2, valueColumn - used);
-                    int remaining = Math.max(10, maxWidth - valueColumn);
-                    if (msg.length() > remaining) {
-                        msg = msg.substring(0, Math.max(0, remaining - 3)) + "...";
+                    // Printed: drop the message so memory stays flat on long histories.
+                    c.disposeBody();
+                    i++;
+                    if (i == FIRST_SCREEN) {
+                        OutputSink.flush();
                     }
-                    System.out.println(prefix + id + " ".repeat(pad) + msg);
                 }
-                i++;
             }
             return 0;
         }
     }
 
-    private static int runVeryVerbose(Git git, DateTimeFormatter fmt, String commitArg, boolean showAll) throws Exception {
+    private static List<ObjectId> startsOrHead(Repository repo, List<ObjectId> starts) throws IOException {
+        if (!starts.isEmpty()) {
+            return starts;
+        }
+        ObjectId head = repo.resolve(Constants.HEAD);
+        return (head == null) ? List.of() : List.of(head);
+    }
+
+    /** The next commit to list: from the search index's matches, the graph's order, or the walk. */
+    private static RevCommit nextCommit(RevWalk walk, LogGraph lanes, java.util.Iterator<RevCommit> indexed, RevFilter filter) throws IOException {
+        if (indexed == null) {
+            return (lanes != null) ? lanes.nextCommit() : walk.next();
+        }
+        try {
+            while (indexed.hasNext()) {
+                RevCommit c = indexed.next();
+                if (filter.include(walk, c)) {
+                    return c;
+                }
+            }
+        } catch (StopWalkException e) {
+            // past the date window
+        }
+        return null;
+    }
+
+    /**
+     * Walk over {@code starts} (HEAD when empty) excluding history reachable from {@code excludes}.
+     * Bodies are not retained: with a commit-graph the walk never inflates a commit, and callers parse
+     * each message only when printing it, then dispose of it.
+     *
+     * <p>With {@code paths}, only commits that changed a matching file are kept. The tree diff is a
+     * rev filter placed after the commit-graph's changed-path Bloom check (a tree filter on the walk
+     * would run before any rev filter), so commits the Bloom filter rules out are never diffed.
+     * With {@code follow}, only commits that changed that file are kept, under each name it had.
+     *
+     * <p>{@code since} runs before everything else: it either passes a commit or ends the walk, so
+     * it may stop the walk early without hiding any commit from the other filters.
+     */
+    private static RevWalk newLogWalk(Repository repo, List<ObjectId> starts, List<ObjectId> excludes, RevFilter since, RevFilter filter,
+            List<String> paths, String follow) throws Exception {
+        boolean limited = !paths.isEmpty() || follow != null;
+        RevWalk walk = limited ? CommitGraphs.newWalkWithChangedPaths(repo) : new RevWalk(repo);
+        try {
+            walk.setRetainBody(false);
+            if (follow != null) {
+                // Ahead of filter, so it sees every commit: it tracks renames as it goes, and
+                // AndRevFilter stops at the first filter that rejects a commit.
+                filter = AndRevFilter.create(new RevFilter[] {since, new FollowRenames(repo, follow), filter});
+            } else if (!paths.isEmpty()) {
+                filter = AndRevFilter.create(new RevFilter[] {
+                    since,
+                    filter,
+                    CommitGraphs.changedPathFilter(bloomKeys(paths)),
+                    new TreeRevFilter(walk, AndTreeFilter.create(pathTreeFilter(paths), TreeFilter.ANY_DIFF))
+                });
+            } else {
+                filter = AndRevFilter.create(since, filter);
+            }
+            walk.setRevFilter(filter);
+            if (starts.isEmpty()) {
+                ObjectId head = repo.resolve(Constants.HEAD);
+                if (head == null) {
+                    throw new NoHeadException(JGitText.get().noHEADExistsAndNoExplicitStartingRevisionWasSpecified);
+                }
+                walk.markStart(walk.parseCommit(head));
+            }
+            for (ObjectId id : starts) {
+                walk.markStart(walk.parseCommit(id));
+            }
+            for (ObjectId id : excludes) {
+                walk.markUninteresting(walk.parseCommit(id));
+            }
+            return walk;
+        } catch (Exception e) {
+            walk.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Keeps the commits that changed one file, following it back through renames. The walk visits
+     * newer commits first, so when a commit turns out to have created the file under its current
+     * name, {@link RenameChains} says whether it was renamed from an older one; older commits are
+     * then matched against that name. Single-parent commits whose changed-path Bloom filter rules
+     * out the name are passed over without reading their trees. As with git's follow, the current
+     * name is shared by the whole walk, so side branches that still use an old name after the
+     * rename point are not matched.
+     */
+    private static final class FollowRenames extends RevFilter {
+        private final Repository repo;
+        private String path;
+
+        FollowRenames(Repository repo, String path) {
+            this.repo = repo;
+            this.path = path;
+        }
+
+        @Override
+        public boolean include(RevWalk walker, RevCommit c) throws IOException {
+            if (c.getParentCount() == 1) {
+                ChangedPathFilter bloom = c.getChangedPathFilter(walker);
+                if (bloom != null && !bloom.maybeContains(path.getBytes(StandardCharsets.UTF_8))) {
+                    return false;
+                }
+            }
+            ObjectId here = blobAt(walker, c);
+            if (c.getParentCount() == 0) {
+                return here != null;
+            }
+            ObjectId inFirstParent = null;
+            for (int p = 0; p < c.getParentCount(); p++) {
+                RevCommit parent = c.getParent(p);
+                walker.parseHeaders(parent);
+                ObjectId there = blobAt(walker, parent);
+                if (Objects.equals(here, there)) {
+                    return false; // unchanged relative to this parent
+                }
+                if (p == 0) {
+                    inFirstParent = there;
+                }
+            }
+            if (here != null && inFirstParent == null) {
+                String oldPath = RenameChains.renamedFrom(repo, walker, c, path);
+                if (oldPath != null) {
+                    path = oldPath;
+                }
+            }
+            return true;
+        }
+
+        private ObjectId blobAt(RevWalk walker, RevCommit c) throws IOException {
+            try (TreeWalk tw = TreeWalk.forPath(walker.getObjectReader(), path, c.getTree())) {
+                return (tw == null || tw.isSubtree()) ? null : tw.getObjectId(0);
+            }
+        }
+
+        @Override
+        public boolean requiresCommitBody() {
+            return false;
+        }
+
+        @Override
+        public RevFilter clone() {
+            return new FollowRenames(repo, path);
+        }
+    }
+
+    /** Path arguments with '/' separators and no "./" or trailing '/'; empty when one of them means everything. */
+    private static List<String> normalizePaths(List<String> raw) {
+        List<String> paths = new java.util.ArrayList<>();
+        for (String r : raw) {
+            if (r == null || r.isBlank()) {
+                continue;
+            }
+            String p = r.trim().replace('\\', '/');
+            while (p.startsWith("./")) {
+                p = p.substring(2);
+            }
+            while (p.endsWith("/")) {
+                p = p.substring(0, p.length() - 1);
+            }
+            if (p.isEmpty() || p.equals(".") || p.equals("*")) {
+                return List.of();
+            }
+            paths.add(p);
+        }
+        return paths;
+    }
+
+    /** Literal paths match that file or directory (as in git); paths with wildcards are globs. */
+    private static TreeFilter pathTreeFilter(List<String> paths) {
+        List<String> literals = new java.util.ArrayList<>();
+        List<String> globs = new java.util.ArrayList<>();
+        for (String p : paths) {
+            (GlobUtils.hasWildcard(p) ? globs : literals).add(p);
+        }
+        if (globs.isEmpty()) {
+            return PathFilterGroup.createFromStrings(literals);
+        }
+        if (literals.isEmpty()) {
+            return GlobUtils.toTreeFilter(globs);
+        }
+        return OrTreeFilter.create(PathFilterGroup.createFromStrings(literals), GlobUtils.toTreeFilter(globs));
+    }
+
+    /**
+     * Paths whose presence in a commit's changed-path filter is necessary for a match: each literal
+     * path, and each glob's literal leading directory. Empty (no pruning) when a glob can match
+     * anywhere.
+     */
+    private static List<String> bloomKeys(List<String> paths) {
+        List<String> keys = new java.util.ArrayList<>();
+        for (String p : paths) {
+            String key = GlobUtils.hasWildcard(p) ? GlobUtils.literalDirPrefix(p) : p;
+            if (key == null) {
+                return List.of();
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /** Prints one entry; {@code prefix} starts its first line and {@code margin} its further lines (the graph's lanes). */
+    private static void printLogEntry(RevCommit c, DateTimeFormatter fmt, boolean verbose, String prefix, String margin) {
+        String id = c.getId().abbreviate(7).name();
+        String date = fmt.format(Instant.ofEpochSecond(c.getCommitTime()));
+        String author = (c.getAuthorIdent() != null) ? c.getAuthorIdent().getName() : "";
+        // Use short message for single-line output
+        String rawMsg = oneLine(c.getShortMessage());
+        // Full commit message (may contain newlines) used for verbose output
+        String fullMsg = (c.getFullMessage() == null) ? "" : c.getFullMessage();
+
+        if (verbose) {
+            // Verbose (-v): column-align the start of the message. Make the
+            // author column a bit wider and truncate the author if needed.
+            int maxWidth = 80;
+            int valueColumn = 42; // desired column where message should start
+            String base = prefix + id + "  " + date + "  ";
+            int targetFirstLen = Math.max(0, valueColumn - 2); // first.length + 2 == valueColumn
+            String firstCombined;
+            if (!author.isBlank()) {
+                String a = author;
+                // If combined exceeds target, truncate author with ellipsis
+                if (base.length() + a.length() > targetFirstLen) {
+                    int avail = Math.max(0, targetFirstLen - base.length());
+                    if (avail <= 3) {
+                        a = a.substring(0, Math.max(0, avail));
+                    } else {
+                        a = a.substring(0, Math.max(0, avail - 3)) + "...";
+                    }
+                }
+                firstCombined = base + a;
+            } else {
+                firstCombined = base.trim();
+            }
+            // Pad to exact width so message column aligns
+            if (firstCombined.length() < targetFirstLen) {
+                firstCombined = firstCombined + " ".repeat(targetFirstLen - firstCombined.length());
+            }
+            printWrappedColumns(firstCombined, fullMsg, maxWidth, margin);
+        } else {
+            // single-line default: show abbreviated id and truncated one-line message
+            int maxWidth = 80;
+            // Column where message should start (including prefix)
+            int valueColumn = 10;
+            String msg = rawMsg;
+            int used = prefix.length() + id.length();
+            int pad = Math.max(2, valueColumn - used);
+            int remaining = Math.max(10, maxWidth - valueColumn);
+            if (msg.length() > remaining) {
+                msg = msg.substring(0, Math.max(0, remaining - 3)) + "...";
+            }
+            System.out.println(prefix + id + " ".repeat(pad) + msg);
+        }
+    }
+
+    private static int runVeryVerbose(Git git, DateTimeFormatter fmt, String commitArg, boolean showAll, List<String> paths, String follow,
+            RevFilter search, String pickaxe) throws Exception {
         Repository repo = git.getRepository();
         if (commitArg != null) {
             ObjectId start = resolveCommitOrNull(repo, commitArg);
@@ -238,38 +576,100 @@ public class LogCommand implements Command {
                 System.err.println("Error: Cannot resolve commit: " + commitArg);
                 return 1;
             }
-            RevCommit target;
-            try (org.eclipse.jgit.revwalk.RevWalk rw = new org.eclipse.jgit.revwalk.RevWalk(repo)) {
-                target = rw.parseCommit(start);
+            try (RevWalk rw = new RevWalk(repo)) {
+                RevCommit target = rw.parseCommit(start);
+                ObjectId[] trees = summaryTrees(rw, target);
+                printCommitHeader(fmt, target);
+                System.out.print(changesSummary(repo, rw.getObjectReader(), target, trees[0], trees[1]));
+                System.out.println();
             }
-            printCommitHeader(fmt, target);
-            printCommitChangesSummary(repo, target);
-            System.out.println();
+            ChangeSummaries.save(repo);
             System.out.println("Hint: Run 'vgl log <commit> -vv' to show the full patch for a specific commit.");
             System.out.println("Hint: Run 'vgl log -v' to list more commits.");
             return 0;
         }
 
         // No specific commit: print commits in full. Respect -all (showAll) to decide whether to limit.
-        Iterable<RevCommit> logs = git.log().call();
-        int i = 0;
+        // Change summaries are computed by a worker pool, each worker with its own reader, while
+        // this thread walks ahead up to a bounded window and prints finished entries in commit order.
+        int threads = Math.max(1, Integer.getInteger("vgl.log.threads", Runtime.getRuntime().availableProcessors()));
+        int window = threads * 4;
         int limit = showAll ? Integer.MAX_VALUE : 10;
-            for (RevCommit c : logs) {
-            if (i >= limit) {
-                System.out.println("  ...");
-                System.out.println("Hint: Use 'vgl log -all' to show all commits.");
-                break;
+        int submitted = 0;
+        int printed = 0;
+        boolean more = false;
+        java.util.concurrent.BlockingQueue<ObjectReader> readers = new java.util.concurrent.ArrayBlockingQueue<>(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (RevWalk walk = newLogWalk(repo, List.of(), List.of(), RevFilter.ALL, search, paths, follow);
+                Pickaxe contents = (pickaxe == null) ? null : new Pickaxe(repo, walk, pickaxe)) {
+            for (int t = 0; t < threads; t++) {
+                readers.add(repo.newObjectReader());
             }
-            printCommitHeader(fmt, c);
-            printCommitChangesSummary(repo, c);
-            System.out.println();
-            i++;
+            Pickaxe.Source source = (contents == null) ? walk::next : () -> contents.next(walk::next);
+            java.util.ArrayDeque<PendingEntry> inFlight = new java.util.ArrayDeque<>();
+            for (RevCommit c = source.next(); c != null; c = source.next()) {
+                if (submitted >= limit) {
+                    more = true;
+                    break;
+                }
+                ObjectId[] trees = summaryTrees(walk, c);
+                ObjectId id = c.copy();
+                inFlight.add(new PendingEntry(c, pool.submit(() -> {
+                    ObjectReader reader = readers.take();
+                    try {
+                        return changesSummary(repo, reader, id, trees[0], trees[1]);
+                    } finally {
+                        readers.add(reader);
+                    }
+                })));
+                submitted++;
+                // Print whatever is ready; wait only when the window is full.
+                while (!inFlight.isEmpty() && (inFlight.size() >= window || inFlight.peek().summary().isDone())) {
+                    printed = printPendingEntry(walk, fmt, inFlight.poll(), printed);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                printed = printPendingEntry(walk, fmt, inFlight.poll(), printed);
+            }
+        } finally {
+            pool.shutdownNow();
+            for (ObjectReader r : readers) {
+                r.close();
+            }
+            ChangeSummaries.save(repo);
+        }
+        if (more) {
+            System.out.println("  ...");
+            System.out.println("Hint: Use 'vgl log -all' to show all commits.");
         }
         System.out.println("Hint: Run 'vgl log <commit> -vv' to show the full patch for a specific commit.");
         System.out.println("Hint: Run 'vgl log -v' to list more commits in single-line summary form.");
         return 0;
     }
 
+    /** A -vv entry whose change summary may still be computing. */
+    private record PendingEntry(RevCommit commit, Future<String> summary) {}
+
+    private static int printPendingEntry(RevWalk walk, DateTimeFormatter fmt, PendingEntry entry, int printed) throws Exception {
+        RevCommit c = entry.commit();
+        String summary;
+        try {
+            summary = entry.summary().get();
+        } catch (ExecutionException e) {
+            summary = ""; // best-effort, like a summary that failed to compute
+        }
+        walk.parseBody(c);
+        printCommitHeader(fmt, c);
+        System.out.print(summary);
+        System.out.println();
+        c.disposeBody();
+        printed++;
+        if (printed == FIRST_SCREEN) {
+            OutputSink.flush();
+        }
+        return printed;
+    }
+
     private static void printCommitHeader(DateTimeFormatter fmt, RevCommit c) {
         String fullId = c.getId().name();
         String date = fmt.format(Instant.ofEpochSecond(c.getCommitTime()));
@@ -340,99 +740,71 @@ public class LogCommand implements Command {
         out.println(firstIndent + line.toString());
     }
 
-    private static void printCommitPatch(Repository repo, RevCommit commit) {
-        if (repo == null || commit == null) {
-            return;
-        }
-
-        ObjectId newTree;
-        ObjectId oldTree;
-        try {
-            newTree = repo.resolve(commit.getName() + "^{tree}");
-            oldTree = (commit.getParentCount() > 0)
-                ? repo.resolve(commit.getParent(0).getName() + "^{tree}")
-                : null;
-        } catch (Exception e) {
-            return;
-        }
-
-        if (newTree == null) {
-            return;
-        }
-
-        try (ObjectReader reader = repo.newObjectReader()) {
-            AbstractTreeIterator oldIter;
-            if (commit.getParentCount() > 0 && oldTree != null) {
-                CanonicalTreeParser oldParser = new CanonicalTreeParser();
-                oldParser.reset(reader, oldTree);
-                oldIter = oldParser;
-            } else {
-                oldIter = new EmptyTreeIterator();
+    /**
+     * The -vv change summary of the diff from {@code oldTree} (null for a root commit) to
+     * {@code newTree}: counts, then changed files grouped by directory. Empty when nothing changed.
+     * Only reads objects through {@code reader}, so workers can run it with their own readers; the
+     * changes come from {@link ChangeSummaries}, so commits seen before are not diffed again.
+     */
+    private static String changesSummary(Repository repo, ObjectReader reader, ObjectId commit, ObjectId oldTree, ObjectId newTree) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (java.io.PrintStream out = new java.io.PrintStream(buf, false, StandardCharsets.UTF_8)) {
+            List<ChangeSummaries.Change> diffs = ChangeSummaries.changes(repo, reader, commit, oldTree, newTree);
+            if (diffs.isEmpty()) {
+                return "";
             }
-
-            CanonicalTreeParser newParser = new CanonicalTreeParser();
-            newParser.reset(reader, newTree);
-
-            try (DiffFormatter df = new DiffFormatter(System.out)) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-                java.util.List<DiffEntry> diffs = df.scan(oldIter, newParser);
-                if (diffs == null || diffs.isEmpty()) {
-                    return;
+            // For -vv print a concise changes summary (counts) and a grouped file list.
+            int added = 0, modified = 0, renamed = 0, deleted = 0;
+            java.util.List<java.util.Map.Entry<String,String>> entries = new java.util.ArrayList<>();
+            for (ChangeSummaries.Change d : diffs) {
+                switch (d.type()) {
+                    case ADD: added++; break;
+                    case MODIFY: modified++; break;
+                    case DELETE: deleted++; break;
+                    case RENAME: renamed++; break;
+                    case COPY: added++; break;
+                    default: break;
                 }
-
-                // For -vv print a concise changes summary (counts) and a grouped file list.
-                int added = 0, modified = 0, renamed = 0, deleted = 0;
-                java.util.List<java.util.Map.Entry<String,String>> entries = new java.util.ArrayList<>();
-                for (DiffEntry d : diffs) {
-                    switch (d.getChangeType()) {
-                        case ADD: added++; break;
-                        case MODIFY: modified++; break;
-                        case DELETE: deleted++; break;
-                        case RENAME: renamed++; break;
-                        case COPY: added++; break;
-                        default: break;
-                    }
-                    String p = d.getNewPath();
-                    if (p == null || p.equals("/dev/null")) p = d.getOldPath();
-                    if (p != null) {
-                        String marker;
-                        switch (d.getChangeType()) {
-                            case ADD: marker = "A"; break;
-                            case DELETE: marker = "D"; break;
-                            case RENAME: marker = "R"; break;
-                            case COPY: marker = "A"; break;
-                            case MODIFY: marker = "M"; break;
-                            default: marker = "M"; break;
-                        }
-                        entries.add(new java.util.AbstractMap.SimpleEntry<>(p, marker));
+                String p = d.newPath();
+                if (p == null || p.equals("/dev/null")) p = d.oldPath();
+                if (p != null) {
+                    String marker;
+                    switch (d.type()) {
+                        case ADD: marker = "A"; break;
+                        case DELETE: marker = "D"; break;
+                        case RENAME: marker = "R"; break;
+                        case COPY: marker = "A"; break;
+                        case MODIFY: marker = "M"; break;
+                        default: marker = "M"; break;
                     }
+                    entries.add(new java.util.AbstractMap.SimpleEntry<>(p, marker));
                 }
-                System.out.println("Changes: " + com.vgl.cli.commands.helpers.StatusFileSummary.getSummaryCountsLine(added, modified, renamed, deleted));
-
-                if (!entries.isEmpty()) {
-                    // Group by directory, include change marker for each filename
-                    java.util.Map<String, java.util.List<String>> grouped = new java.util.TreeMap<>();
-                    for (java.util.Map.Entry<String,String> ent : entries) {
-                        String p = ent.getKey();
-                        String marker = ent.getValue();
-                        int idx = p.lastIndexOf('/');
-                        String dir = (idx >= 0) ? p.substring(0, idx + 1) : "./";
-                        String name = (idx >= 0) ? p.substring(idx + 1) : p;
-                        grouped.computeIfAbsent(dir, k -> new java.util.ArrayList<>()).add(marker + " " + name);
-                    }
-                    for (java.util.Map.Entry<String, java.util.List<String>> e : grouped.entrySet()) {
-                        String dir = e.getKey();
-                        java.util.List<String> files = e.getValue();
-                        System.out.println("  " + dir);
-                        String joined = String.join("  ", files);
-                        printWrappedIndented("    ", joined, 80);
-                    }
+            }
+            out.println("Changes: " + com.vgl.cli.commands.helpers.StatusFileSummary.getSummaryCountsLine(added, modified, renamed, deleted));
+
+            if (!entries.isEmpty()) {
+                // Group by directory, include change marker for each filename
+                java.util.Map<String, java.util.List<String>> grouped = new java.util.TreeMap<>();
+                for (java.util.Map.Entry<String,String> ent : entries) {
+                    String p = ent.getKey();
+                    String marker = ent.getValue();
+                    int idx = p.lastIndexOf('/');
+                    String dir = (idx >= 0) ? p.substring(0, idx + 1) : "./";
+                    String name = (idx >= 0) ? p.substring(idx + 1) : p;
+                    grouped.computeIfAbsent(dir, k -> new java.util.ArrayList<>()).add(marker + " " + name);
+                }
+                for (java.util.Map.Entry<String, java.util.List<String>> e : grouped.entrySet()) {
+                    String dir = e.getKey();
+                    java.util.List<String> files = e.getValue();
+                    out.println("  " + dir);
+                    String joined = String.join("  ", files);
+                    printWrappedIndented(out, "    ", joined, 80);
                 }
             }
         } catch (Exception ignored) {
-            // best-effort
+            // best-effort: keep whatever was summarized
         }
+        return buf.toString(StandardCharsets.UTF_8);
     }
 
     private static void printTruncatedRecentCommits(Git git, DateTimeFormatter fmt, int maxLines) throws Exception {
@@ -483,6 +855,10 @@ public class LogCommand implements Command {
     }
 
     private static void printWrappedColumns(String first, String rest, int maxWidth) {
+        printWrappedColumns(first, rest, maxWidth, "");
+    }
+
+    private static void printWrappedColumns(String first, String rest, int maxWidth, String margin) {
         if (first == null) first = "";
         if (rest == null) rest = "";
 
@@ -492,7 +868,7 @@ public class LogCommand implements Command {
         int firstWrap = Math.max(10, maxWidth - firstColIndent);
         int subsequentIndentLen = 2; // small fixed indent for wrapped lines
         String firstPrefix = first + "  ";
-        String subsequentIndent = " ".repeat(subsequentIndentLen);
+        String subsequentIndent = margin + " ".repeat(subsequentIndentLen);
         int subsequentWrap = Math.max(10, maxWidth - subsequentIndentLen);
 
         // Treat newlines as paragraph boundaries and wrap each paragraph separately.
@@ -504,7 +880,7 @@ public class LogCommand implements Command {
             if (trimmed.isEmpty()) {
                 // Preserve a single blank line between paragraphs, collapsing multiples
                 if (!lastWasBlank) {
-                    System.out.println("");
+                    System.out.println(margin.stripTrailing());
                     lastWasBlank = true;
                 }
                 firstPara = false;
@@ -538,7 +914,7 @@ public class LogCommand implements Command {
     }
 
     /** Wrap a long string into lines starting with `indent`. Uses word boundaries. */
-    private static void printWrappedIndented(String indent, String text, int maxWidth) {
+    private static void printWrappedIndented(java.io.PrintStream out, String indent, String text, int maxWidth) {
         if (indent == null) indent = "";
         if (text == null) text = "";
         String[] paragraphs = text.replace("\r", "").split("\n");
@@ -548,7 +924,7 @@ public class LogCommand implements Command {
             String trimmed = para.trim();
             if (trimmed.isEmpty()) {
                 if (!lastWasBlank) {
-                    System.out.println("");
+                    out.println("");
                     lastWasBlank = true;
                 }
                 continue;
@@ -563,20 +939,25 @@ public class LogCommand implements Command {
                 } else if (line.length() + 1 + w.length() <= wrapWidth) {
                     line.append(' ').append(w);
                 } else {
-                    System.out.println(indent + line.toString());
+                    out.println(indent + line.toString());
                     line.setLength(0);
                     line.append(w);
                 }
             }
-            System.out.println(indent + line.toString());
+            out.println(indent + line.toString());
         }
     }
 
-    private static void printCommitChangesSummary(Repository repo, RevCommit commit) {
-        // Currently the commit patch printer has been adapted to print a concise changes
-        // summary (counts). Reuse that implementation via a simple wrapper to keep
-        // call sites readable.
-        printCommitPatch(repo, commit);
+    /** Trees a commit's -vv summary compares: its first parent's (null for a root) and its own. */
+    private static ObjectId[] summaryTrees(RevWalk walk, RevCommit commit) throws IOException {
+        walk.parseHeaders(commit);
+        ObjectId oldTree = null;
+        if (commit.getParentCount() > 0) {
+            RevCommit parent = commit.getParent(0);
+            walk.parseHeaders(parent);
+            oldTree = parent.getTree().copy();
+        }
+        return new ObjectId[] {oldTree, commit.getTree().copy()};
     }
 
     private static ObjectId resolveCommitOrNull(Repository repo, String commitish) {
@@ -0,0 +1,53 @@
+package com.vgl.cli.commands;
+
+import com.vgl.cli.utils.CommitGraphs;
+import com.vgl.cli.utils.GitUtils;
+import com.vgl.cli.utils.Messages;
+import com.vgl.cli.utils.RepoResolver;
+import java.nio.file.Path;
+import java.util.List;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Rewrites the local repo's history indexes (currently the commit-graph) so that log, status and
+ * merge analysis stay fast on long histories. This command creates them (and enables reading the
+ * commit-graph in the repo's config); once they exist, commit and pull refresh them automatically
+ * when they fall behind.
+ */
+public class MaintainCommand implements Command {
+    @Override
+    public String name() {
+        return "maintain";
+    }
+
+    @Override
+    public int run(List<String> args) throws Exception {
+        if (args.contains("-h") || args.contains("--help")) {
+            System.out.println(Messages.maintainUsage());
+            return 0;
+        }
+
+        Path startDir = Path.of(System.getProperty("user.dir")).toAbsolutePath().normalize();
+        Path repoRoot = RepoResolver.resolveRepoRootForCommand(startDir);
+        if (repoRoot == null) {
+            return 1;
+        }
+
+        try (Git git = GitUtils.openGit(repoRoot)) {
+            Repository repo = git.getRepository();
+            if (!GitUtils.hasCommits(repo)) {
+                System.out.println(Messages.maintainNothingToDo());
+                return 0;
+            }
+
+            long commits = CommitGraphs.write(repo);
+            if (commits < 0) {
+                System.out.println(Messages.maintainCommitGraphSkipped());
+                return 0;
+            }
+            System.out.println(Messages.maintainCommitGraphWritten(commits));
+            return 0;
+        }
+    }
+}
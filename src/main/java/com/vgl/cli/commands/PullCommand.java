@@ -2,6 +2,7 @@ package com.vgl.cli.commands;
 
 import com.vgl.cli.commands.helpers.ArgsHelper;
 import com.vgl.cli.commands.helpers.MergeOperations;
+import com.vgl.cli.utils.CommitGraphs;
 import com.vgl.cli.utils.GitAuth;
 import com.vgl.cli.utils.GitUtils;
 import com.vgl.cli.utils.GitRemoteOps;
@@ -100,6 +101,7 @@ public class PullCommand implements Command {
                     .call();
 
                 if (merge != null && merge.getMergeStatus() != null && merge.getMergeStatus().isSuccessful()) {
+                    CommitGraphs.refreshIfStale(repo);
                     System.out.println(Messages.pullCompleted());
                     return 0;
                 }
@@ -120,6 +122,7 @@ public class PullCommand implements Command {
                 throw e;
             }
             if (r.isSuccessful()) {
+                CommitGraphs.refreshIfStale(repo);
                 System.out.println(Messages.pullCompleted());
                 return 0;
             }
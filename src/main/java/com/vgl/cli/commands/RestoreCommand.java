@@ -4,7 +4,7 @@ import com.vgl.cli.commands.helpers.ArgsHelper;
 import com.vgl.cli.commands.helpers.StatusVerboseOutput;
 import com.vgl.cli.utils.GitUtils;
 import com.vgl.cli.utils.GitRemoteOps;
-import com.vgl.cli.utils.GlobUtils;
+import com.vgl.cli.utils.GlobSet;
 import com.vgl.cli.utils.Messages;
 import com.vgl.cli.utils.RepoResolver;
 import com.vgl.cli.utils.Utils;
@@ -103,8 +103,9 @@ public class RestoreCommand implements Command {
 
             Set<String> allPaths = listTreeFiles(repo, treeId);
             Set<String> toRestore = new LinkedHashSet<>();
+            GlobSet globSet = GlobSet.compile(globs);
             for (String p : allPaths) {
-                if (GlobUtils.matchesAny(p, globs)) {
+                if (globSet.matches(p)) {
                     toRestore.add(p);
                 }
             }
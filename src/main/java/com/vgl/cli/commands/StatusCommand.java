@@ -2,11 +2,13 @@ package com.vgl.cli.commands;
 
 import com.vgl.cli.commands.helpers.StatusFileSummary;
 import com.vgl.cli.commands.helpers.StatusVerboseOutput;
+import com.vgl.cli.utils.ChangeSummaries;
 import com.vgl.cli.utils.GitAuth;
 import com.vgl.cli.utils.FormatUtils;
 import com.vgl.cli.utils.GitUtils;
 import com.vgl.cli.utils.GitRemoteOps;
 import com.vgl.cli.utils.Messages;
+import com.vgl.cli.utils.OutputSink;
 import com.vgl.cli.utils.RepoUtils;
 import com.vgl.cli.utils.RepoValidation;
 import com.vgl.cli.utils.RepoPreflight;
@@ -28,15 +30,11 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand;
 import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.lib.Constants;
-import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.treewalk.CanonicalTreeParser;
-import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 
 public class StatusCommand implements Command {
     @Override
@@ -46,6 +44,15 @@ public class StatusCommand implements Command {
 
     @Override
     public int run(List<String> args) throws Exception {
+        OutputSink sink = OutputSink.install();
+        try {
+            return runStatus(args);
+        } finally {
+            sink.restore();
+        }
+    }
+
+    private int runStatus(List<String> args) throws Exception {
         boolean verbose = args.contains("-v");
         boolean veryVerbose = args.contains("-vv");
 
@@ -98,6 +105,7 @@ public class StatusCommand implements Command {
                 Repository repo = git.getRepository();
                 String originUrl = GitRemoteOps.ensureOriginConfigured(repo, remoteUrl);
                 if (originUrl != null && !originUrl.isBlank()) {
+                    OutputSink.flush();
                     GitRemoteOps.fetchOrigin(repoRoot, git, originUrl, /*required*/false, System.err);
                 }
             } catch (Exception ignored) {
@@ -136,7 +144,7 @@ public class StatusCommand implements Command {
             String filesLabelPad = FormatUtils.padRight(filesLabel, labelWidth + 1);
 
             StatusComputation computed = computeStatus(git, repoRoot, remoteUrl, remoteBranch);
-            CommitDeltas deltas = computeCommitDeltas(git, remoteUrl, remoteBranch);
+            CommitDeltas deltas = computeCommitDeltas(git, remoteUrl, remoteBranch, verbose || veryVerbose);
 
             if (anySectionFlag) {
                 if (showContext) {
@@ -203,6 +211,7 @@ public class StatusCommand implements Command {
         try {
             // Prefer native git so existing credential helpers work.
             {
+                OutputSink.flush();
                 List<String> branches = GitRemoteOps.listRemoteHeads(remote, System.err);
                 if (branches == null) {
                     return 1;
@@ -507,7 +516,11 @@ public class StatusCommand implements Command {
         return shortId + "  " + date + "  " + oneLine;
     }
 
-    private static CommitDeltas computeCommitDeltas(Git git, String remoteUrlFromVgl, String remoteBranchFromVgl) {
+    /**
+     * Local-only and remote-only commits. Without {@code withMessages} only the counts are used, so
+     * commit bodies are not retained and walks over commit-graph commits never inflate objects.
+     */
+    private static CommitDeltas computeCommitDeltas(Git git, String remoteUrlFromVgl, String remoteBranchFromVgl, boolean withMessages) {
         if (git == null) {
             return new CommitDeltas(false, false, java.util.List.of(), java.util.List.of());
         }
@@ -545,12 +558,8 @@ public class StatusCommand implements Command {
 
         if (!hasComparableRemote) {
             java.util.List<RevCommit> local = new java.util.ArrayList<>();
-            try {
-                for (RevCommit c : git.log().call()) {
-                    local.add(c);
-                }
-            } catch (Exception ignored) {
-                // best-effort
+            if (localHead != null) {
+                collectCommits(repo, localHead, null, withMessages, local);
             }
             return new CommitDeltas(hasRemoteConfigured, false, local, java.util.List.of());
         }
@@ -558,25 +567,34 @@ public class StatusCommand implements Command {
         java.util.List<RevCommit> toPush = new java.util.ArrayList<>();
         java.util.List<RevCommit> toPull = new java.util.ArrayList<>();
 
-        try {
-            Iterable<RevCommit> it = (localHead != null) ? git.log().add(localHead).not(remoteHead).call() : java.util.List.of();
-            for (RevCommit c : it) {
-                toPush.add(c);
-            }
-        } catch (Exception ignored) {
-            // best-effort
+        if (localHead != null) {
+            collectCommits(repo, localHead, remoteHead, withMessages, toPush);
+            collectCommits(repo, remoteHead, localHead, withMessages, toPull);
         }
 
-        try {
-            Iterable<RevCommit> it = (localHead != null) ? git.log().add(remoteHead).not(localHead).call() : java.util.List.of();
-            for (RevCommit c : it) {
-                toPull.add(c);
+        return new CommitDeltas(true, true, toPush, toPull);
+    }
+
+    /** Appends commits reachable from {@code include} but not from {@code exclude} (may be null), newest first. */
+    private static void collectCommits(
+        Repository repo,
+        org.eclipse.jgit.lib.ObjectId include,
+        org.eclipse.jgit.lib.ObjectId exclude,
+        boolean withMessages,
+        java.util.List<RevCommit> out
+    ) {
+        try (RevWalk walk = new RevWalk(repo)) {
+            walk.setRetainBody(withMessages);
+            walk.markStart(walk.parseCommit(include));
+            if (exclude != null) {
+                walk.markUninteresting(walk.parseCommit(exclude));
+            }
+            for (RevCommit c : walk) {
+                out.add(c);
             }
         } catch (Exception ignored) {
             // best-effort
         }
-
-        return new CommitDeltas(true, true, toPush, toPull);
     }
 
     private static String truncateEnd(String s, int maxLen) {
@@ -1010,59 +1028,42 @@ public class StatusCommand implements Command {
             return;
         }
 
-        try {
-            Iterable<RevCommit> toPush = git.log().add(localHead).not(remoteHead).call();
-            for (RevCommit commit : toPush) {
-                addCommitDiffFiles(repo, commit, filesToPush);
+        try (RevWalk walk = new RevWalk(repo)) {
+            try {
+                Iterable<RevCommit> toPush = git.log().add(localHead).not(remoteHead).call();
+                for (RevCommit commit : toPush) {
+                    addCommitDiffFiles(repo, walk, commit, filesToPush);
+                }
+            } catch (Exception ignored) {
+                // best-effort
             }
-        } catch (Exception ignored) {
-            // best-effort
-        }
 
-        try {
-            Iterable<RevCommit> toPull = git.log().add(remoteHead).not(localHead).call();
-            for (RevCommit commit : toPull) {
-                addCommitDiffFiles(repo, commit, filesToPull);
+            try {
+                Iterable<RevCommit> toPull = git.log().add(remoteHead).not(localHead).call();
+                for (RevCommit commit : toPull) {
+                    addCommitDiffFiles(repo, walk, commit, filesToPull);
+                }
+            } catch (Exception ignored) {
+                // best-effort
             }
-        } catch (Exception ignored) {
-            // best-effort
+        } finally {
+            ChangeSummaries.save(repo);
         }
     }
 
-    private static void addCommitDiffFiles(Repository repo, RevCommit commit, Map<String, String> out) throws IOException {
-        try (RevWalk walk = new RevWalk(repo); ObjectReader reader = repo.newObjectReader()) {
-            RevCommit parsed = walk.parseCommit(commit.getId());
-
-            CanonicalTreeParser newTree = new CanonicalTreeParser();
-            newTree.reset(reader, parsed.getTree());
-
-            org.eclipse.jgit.treewalk.AbstractTreeIterator oldTree;
-            if (parsed.getParentCount() > 0) {
-                RevCommit parent = walk.parseCommit(parsed.getParent(0).getId());
-                CanonicalTreeParser oldParser = new CanonicalTreeParser();
-                oldParser.reset(reader, parent.getTree());
-                oldTree = oldParser;
-            } else {
-                oldTree = new EmptyTreeIterator();
-            }
-
-            try (DiffFormatter df = new DiffFormatter(new java.io.ByteArrayOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-                List<DiffEntry> diffs = df.scan(oldTree, newTree);
-                for (DiffEntry d : diffs) {
-                    String letter = switch (d.getChangeType()) {
-                        case ADD -> "A";
-                        case MODIFY -> "M";
-                        case DELETE -> "D";
-                        case RENAME, COPY -> "R";
-                        default -> "M";
-                    };
-                    String path = d.getChangeType() == DiffEntry.ChangeType.DELETE ? d.getOldPath() : d.getNewPath();
-                    if (path != null && !path.isBlank()) {
-                        out.putIfAbsent(path, letter);
-                    }
-                }
+    /** Adds the files {@code commit} changed, with their change letters; summaries come from {@link ChangeSummaries}. */
+    private static void addCommitDiffFiles(Repository repo, RevWalk walk, RevCommit commit, Map<String, String> out) throws IOException {
+        for (ChangeSummaries.Change d : ChangeSummaries.changes(repo, walk, commit)) {
+            String letter = switch (d.type()) {
+                case ADD -> "A";
+                case MODIFY -> "M";
+                case DELETE -> "D";
+                case RENAME, COPY -> "R";
+                default -> "M";
+            };
+            String path = d.type() == DiffEntry.ChangeType.DELETE ? d.oldPath() : d.newPath();
+            if (path != null && !path.isBlank()) {
+                out.putIfAbsent(path, letter);
             }
         }
     }
@@ -50,7 +50,7 @@ public class TrackCommand implements Command {
             }
         }
 
-        Set<String> nested = GitUtils.listNestedRepos(repoRoot);
+        Set<String> nested = GitUtils.listNestedReposAlong(repoRoot, candidates);
         List<String> nestedRequested = new ArrayList<>();
         List<String> filtered = new ArrayList<>();
         for (String p : candidates) {
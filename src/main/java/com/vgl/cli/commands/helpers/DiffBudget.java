@@ -0,0 +1,135 @@
+package com.vgl.cli.commands.helpers;
+
+import java.io.PrintStream;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.SequenceComparator;
+
+/**
+ * Work budget for a single {@code vgl diff} run; create one per run and pass it down.
+ *
+ * <p>One pathological file (minified bundle, generated dump) can keep HistogramDiff busy for
+ * minutes. A file pair is "degraded" when it exceeds the per-file line limit, when the run's
+ * wall-clock budget is already spent, or when its own line diff runs past the per-file time limit
+ * or the end of the run's budget. The limits are checked while the diff runs, not only before it
+ * starts. A degraded file gets approximate counts from a linear line-multiset comparison and no
+ * line diff, and is listed at the end of the output.
+ *
+ * <p>The run's clock starts at its first line diff, so fetches, clones and the workspace scan that
+ * come before it do not use up the budget.
+ *
+ * <p>Limits come from {@code -Dvgl.diff.timeBudgetMs}, {@code -Dvgl.diff.maxFileMs} and
+ * {@code -Dvgl.diff.maxFileLines}.
+ */
+public final class DiffBudget {
+    private static final long DEFAULT_TIME_BUDGET_MS = 30_000L;
+    private static final long DEFAULT_MAX_FILE_MS = 5_000L;
+    private static final int DEFAULT_MAX_FILE_LINES = 500_000;
+    // Line comparisons between clock reads inside a running diff.
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final long timeBudgetNanos;
+    private final long maxFileNanos;
+    private final int maxFileLines;
+    private final Set<String> degraded = new LinkedHashSet<>();
+    private long deadlineNanos;
+    private boolean started;
+
+    private DiffBudget(long timeBudgetMs, long maxFileMs, int maxFileLines) {
+        this.timeBudgetNanos = Math.max(0L, timeBudgetMs) * 1_000_000L;
+        this.maxFileNanos = Math.max(0L, maxFileMs) * 1_000_000L;
+        this.maxFileLines = maxFileLines;
+    }
+
+    public static DiffBudget fromSystemProperties() {
+        long ms = Long.getLong("vgl.diff.timeBudgetMs", DEFAULT_TIME_BUDGET_MS);
+        long fileMs = Long.getLong("vgl.diff.maxFileMs", DEFAULT_MAX_FILE_MS);
+        int lines = Integer.getInteger("vgl.diff.maxFileLines", DEFAULT_MAX_FILE_LINES);
+        return new DiffBudget(ms, fileMs, lines);
+    }
+
+    /** True when a pair with this many lines (both sides) may still get a full line diff. */
+    boolean allowsLineDiff(int totalLines) {
+        if (totalLines > maxFileLines) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (!started) {
+            started = true;
+            deadlineNanos = now + timeBudgetNanos;
+        }
+        return now - deadlineNanos < 0;
+    }
+
+    /** HistogramDiff edits for a pair, or null when the budget rules out or cuts short its line diff. */
+    EditList diff(RawText a, RawText b) {
+        if (!allowsLineDiff(a.size() + b.size())) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long fileDeadline = now + Math.min(deadlineNanos - now, maxFileNanos);
+        try {
+            return new HistogramDiff().diff(new MeteredComparator(fileDeadline), a, b);
+        } catch (OutOfBudget e) {
+            return null;
+        }
+    }
+
+    void noteDegraded(String path) {
+        if (path != null && !path.isBlank()) {
+            degraded.add(path);
+        }
+    }
+
+    /** Prints which files were not line-diffed, if any. */
+    public void printReport(PrintStream out) {
+        if (degraded.isEmpty()) {
+            return;
+        }
+        out.println();
+        out.println("Note: " + degraded.size() + " file(s) exceeded the diff budget; counts are approximate and no line diff is shown:");
+        for (String p : degraded) {
+            out.println("  " + p);
+        }
+    }
+
+    // RawTextComparator.DEFAULT that gives up once the file's deadline has passed.
+    private static final class MeteredComparator extends SequenceComparator<RawText> {
+        private final long deadlineNanos;
+        private int ops;
+
+        MeteredComparator(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public boolean equals(RawText a, int ai, RawText b, int bi) {
+            tick();
+            return RawTextComparator.DEFAULT.equals(a, ai, b, bi);
+        }
+
+        @Override
+        public int hash(RawText seq, int ptr) {
+            tick();
+            return RawTextComparator.DEFAULT.hash(seq, ptr);
+        }
+
+        private void tick() {
+            if (++ops % CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos > 0) {
+                throw new OutOfBudget();
+            }
+        }
+    }
+
+    private static final class OutOfBudget extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        OutOfBudget() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -1,26 +1,45 @@
 package com.vgl.cli.commands.helpers;
+import com.vgl.cli.utils.GitUtils;
+import com.vgl.cli.utils.GlobSet;
 import com.vgl.cli.utils.GlobUtils;
+import com.vgl.cli.utils.RenameDetection;
+import com.vgl.cli.utils.WorkspaceWalker;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.ContentSource;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.EditList;
 import org.eclipse.jgit.diff.Edit;
-import org.eclipse.jgit.diff.HistogramDiff;
 import org.eclipse.jgit.diff.RawText;
-import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectStream;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 public final class DiffHelper {
     private DiffHelper() {}
@@ -36,6 +55,39 @@ public final class DiffHelper {
         SUMMARY, HUMAN, RAW
     }
 
+    /**
+     * A file's content as read for diffing. Files above {@code -Dvgl.diff.largeFileThreshold} are
+     * never loaded: they carry only their size and git blob id, and {@code bytes} is null.
+     */
+    public record Content(byte[] bytes, long size, ObjectId id, boolean large) {
+        public static Content of(byte[] bytes) {
+            return (bytes == null) ? null : new Content(bytes, bytes.length, null, false);
+        }
+
+        static Content large(long size, ObjectId id) {
+            return new Content(null, size, id, true);
+        }
+
+        /** Same content byte for byte; large files compare by blob id. */
+        public boolean sameBytes(Content other) {
+            if (other == null) {
+                return false;
+            }
+            if (large || other.large) {
+                return large && other.large && id.equals(other.id);
+            }
+            return java.util.Arrays.equals(bytes, other.bytes);
+        }
+    }
+
+    /** A changed workspace file and the contents read while weeding out line-ending-only changes. */
+    private record ChangedFile(DiffEntry entry, Content oldContent, Content newContent) {}
+
+    private static final long DEFAULT_LARGE_FILE_THRESHOLD = 16L * 1024 * 1024;
+    // lineCounts() blocks value for a pair counted approximately because the diff budget ran out.
+    private static final int DEGRADED = -2;
+
+
     private static byte[] normalizeNewlines(byte[] in) {
         if (in == null || in.length == 0) return in;
         // Fast path: if no CR present, return original
@@ -78,24 +130,108 @@ public final class DiffHelper {
         return Verbosity.SUMMARY;
     }
 
-    public static Map<String, byte[]> snapshotFiles(Path root, List<String> globs) throws IOException {
-        Map<String, byte[]> out = new HashMap<>();
+    public static Map<String, Content> snapshotFiles(Path root, List<String> globs) throws IOException {
+        return snapshotFiles(root, globs, Set.of());
+    }
+
+    /** Like {@link #snapshotFiles(Path, List)}, but never reads the repo-relative paths in {@code skip}. */
+    public static Map<String, Content> snapshotFiles(Path root, List<String> globs, Set<String> skip) throws IOException {
+        Map<String, Content> out = new HashMap<>();
         if (root == null) return out;
         if (!Files.exists(root)) return out;
         Path absRoot = root.toAbsolutePath().normalize();
 
-        Files.walk(absRoot)
-            .filter(Files::isRegularFile)
-            .forEach(p -> {
-                Path rel = absRoot.relativize(p);
-                String relStr = rel.toString().replace('\\', '/');
-                if (relStr.startsWith(".git/") || relStr.equals(".vgl")) return;
-                if (!GlobUtils.matchesAny(relStr, globs)) return;
-                try {
-                    out.put(relStr, Files.readAllBytes(p));
-                } catch (IOException ignored) {}
-            });
+        GlobSet globSet = GlobSet.compile(globs);
+        for (String relStr : WorkspaceWalker.at(absRoot).walk().files()) {
+            if (relStr.equals(".vgl")) continue;
+            if (skip.contains(relStr)) continue;
+            if (!globSet.matches(relStr)) continue;
+            try {
+                out.put(relStr, readFileContent(absRoot.resolve(relStr)));
+            } catch (IOException ignored) {}
+        }
+
+        return out;
+    }
+
+    /**
+     * Repo-relative files known to be identical under both roots without reading them: by index
+     * object id when both are git workspaces, otherwise from the cached {@link DiffManifest} when
+     * enabled. Returns an empty set when neither applies (callers then compare bytes).
+     */
+    public static Set<String> identicalFiles(Path leftRoot, Path rightRoot, List<String> globs) {
+        if (leftRoot == null || rightRoot == null) {
+            return new HashSet<>();
+        }
+        if (Files.exists(leftRoot.resolve(".git")) && Files.exists(rightRoot.resolve(".git"))) {
+            return identicalRepoFiles(leftRoot, rightRoot);
+        }
+        if (DiffManifest.isEnabled()) {
+            try {
+                return DiffManifest.identicalFiles(leftRoot, rightRoot, globs);
+            } catch (IOException ignored) {
+                // best-effort: fall back to comparing bytes
+            }
+        }
+        return new HashSet<>();
+    }
+
+    /**
+     * When both roots are git workspaces, returns the repo-relative files whose content is known
+     * to be identical on both sides by object id. Stat-clean files take their id straight from the
+     * index, so only dirty or untracked files are hashed; nothing is read for files already known
+     * equal. Returns an empty set when either side is not a repo (callers then compare bytes).
+     */
+    public static Set<String> identicalRepoFiles(Path leftRoot, Path rightRoot) {
+        Set<String> out = new HashSet<>();
+        if (leftRoot == null || rightRoot == null
+            || !Files.exists(leftRoot.resolve(".git")) || !Files.exists(rightRoot.resolve(".git"))) {
+            return out;
+        }
+        try (Git leftGit = GitUtils.openGit(leftRoot);
+            Git rightGit = GitUtils.openGit(rightRoot);
+            TreeWalk walk = new TreeWalk(leftGit.getRepository())) {
+            Repository left = leftGit.getRepository();
+            Repository right = rightGit.getRepository();
+            FileTreeIterator leftWorking = new FileTreeIterator(left);
+            FileTreeIterator rightWorking = new FileTreeIterator(right);
+            walk.addTree(leftWorking);
+            int leftIndex = walk.addTree(new DirCacheIterator(left.readDirCache()));
+            walk.addTree(rightWorking);
+            int rightIndex = walk.addTree(new DirCacheIterator(right.readDirCache()));
+            leftWorking.setDirCacheIterator(walk, leftIndex);
+            rightWorking.setDirCacheIterator(walk, rightIndex);
+            walk.setRecursive(true);
+            // Only entries present in both workspaces can be identical.
+            walk.setFilter(new TreeFilter() {
+                @Override
+                public boolean include(TreeWalk w) {
+                    return w.getRawMode(0) != 0 && w.getRawMode(2) != 0;
+                }
+
+                @Override
+                public boolean shouldBeRecursive() {
+                    return false;
+                }
 
+                @Override
+                public TreeFilter clone() {
+                    return this;
+                }
+            });
+            while (walk.next()) {
+                if ((walk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE
+                    || (walk.getRawMode(2) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                    continue;
+                }
+                if (walk.idEqual(0, 2)) {
+                    out.add(walk.getPathString());
+                }
+            }
+        } catch (Exception ignored) {
+            // best-effort: fall back to comparing bytes for everything
+            out.clear();
+        }
         return out;
     }
 
@@ -108,6 +244,23 @@ public final class DiffHelper {
     }
 
     public static DiffSummary computeDiffSummary(Map<String, byte[]> a, Map<String, byte[]> b) {
+        return computeContentSummary(contents(a), contents(b));
+    }
+
+    private static Map<String, Content> contents(Map<String, byte[]> files) {
+        if (files == null) {
+            return null;
+        }
+        Map<String, Content> out = new HashMap<>();
+        files.forEach((rel, bytes) -> out.put(rel, Content.of(bytes)));
+        return out;
+    }
+
+    public static DiffSummary computeContentSummary(Map<String, Content> a, Map<String, Content> b) {
+        return computeContentSummary(a, b, DiffBudget.fromSystemProperties());
+    }
+
+    private static DiffSummary computeContentSummary(Map<String, Content> a, Map<String, Content> b, DiffBudget budget) {
         DiffSummary s = new DiffSummary();
         List<String> all = new ArrayList<>();
         if (a != null) all.addAll(a.keySet());
@@ -115,39 +268,19 @@ public final class DiffHelper {
         all.sort(String::compareTo);
 
         for (String rel : all) {
-            byte[] av = a == null ? null : a.get(rel);
-            byte[] bv = b == null ? null : b.get(rel);
+            Content av = a == null ? null : a.get(rel);
+            Content bv = b == null ? null : b.get(rel);
             if (av == null && bv == null) continue;
             // If both present, compare after normalizing newlines so CRLF/LF-only
             // differences don't produce spurious change entries.
-            if (av != null && bv != null) {
-                byte[] an = normalizeNewlines(av);
-                byte[] bn = normalizeNewlines(bv);
-                if (java.util.Arrays.equals(an, bn)) continue;
-            } else if (av != null && bv != null && java.util.Arrays.equals(av, bv)) continue;
+            if (sameText(av, bv)) continue;
 
             FileChangeKind kind = (av == null) ? FileChangeKind.ADDED : (bv == null ? FileChangeKind.DELETED : FileChangeKind.MODIFIED);
 
-            int added = 0;
-            int removed = 0;
-            int blocks = 0;
-            if (av != null && bv != null) {
-                RawText at = new RawText(normalizeNewlines(av != null ? av : new byte[0]));
-                RawText bt = new RawText(normalizeNewlines(bv != null ? bv : new byte[0]));
-                HistogramDiff alg = new HistogramDiff();
-                EditList edits = alg.diff(RawTextComparator.DEFAULT, at, bt);
-                blocks = edits.size();
-                for (org.eclipse.jgit.diff.Edit e : edits) {
-                    removed += Math.max(0, e.getEndA() - e.getBeginA());
-                    added += Math.max(0, e.getEndB() - e.getBeginB());
-                }
-            } else if (av == null) {
-                added = countLines(bv);
-                blocks = (added > 0) ? 1 : 0;
-            } else {
-                removed = countLines(av);
-                blocks = (removed > 0) ? 1 : 0;
-            }
+            int[] lines = lineCounts(rel, av, bv, budget);
+            int added = lines[0];
+            int removed = lines[1];
+            int blocks = lines[2];
             s.perFileCounts.put(rel, new int[] {added, removed});
             s.perFileBlocks.put(rel, blocks);
             s.perFileKind.put(rel, kind);
@@ -172,6 +305,75 @@ public final class DiffHelper {
         return lines;
     }
 
+    /**
+     * Returns {added, removed, blocks} for a file pair, using the same HistogramDiff as the rendered
+     * output so counts match. {@code blocks} is -1 when either side is too large to line-diff, and
+     * {@link #DEGRADED} when the diff budget forced approximate counts; {@code path} is then noted
+     * in the budget's report.
+     */
+    private static int[] lineCounts(String path, Content oldContent, Content newContent, DiffBudget budget) {
+        if (isLarge(oldContent) || isLarge(newContent)) {
+            return new int[] {0, 0, -1};
+        }
+        int added = 0;
+        int removed = 0;
+        int blocks = 0;
+        if (oldContent != null && newContent != null) {
+            RawText at = new RawText(normalizeNewlines(oldContent.bytes()));
+            RawText bt = new RawText(normalizeNewlines(newContent.bytes()));
+            EditList edits = budget.diff(at, bt);
+            if (edits == null) {
+                budget.noteDegraded(path);
+                return approximateLineCounts(at, bt);
+            }
+            blocks = edits.size();
+            for (Edit e : edits) {
+                removed += Math.max(0, e.getEndA() - e.getBeginA());
+                added += Math.max(0, e.getEndB() - e.getBeginB());
+            }
+        } else if (oldContent == null) {
+            added = countLines(newContent.bytes());
+            blocks = (added > 0) ? 1 : 0;
+        } else {
+            removed = countLines(oldContent.bytes());
+            blocks = (removed > 0) ? 1 : 0;
+        }
+        return new int[] {added, removed, blocks};
+    }
+
+    private static String displayPath(DiffEntry d) {
+        String path = d.getNewPath();
+        return (path == null || path.equals("/dev/null")) ? d.getOldPath() : path;
+    }
+
+    // Linear line-multiset comparison: exact for pure additions/removals, approximate for moves.
+    private static int[] approximateLineCounts(RawText at, RawText bt) {
+        Map<String, Integer> remaining = new HashMap<>();
+        for (int i = 0; i < at.size(); i++) {
+            remaining.merge(at.getString(i), 1, Integer::sum);
+        }
+        int added = 0;
+        for (int i = 0; i < bt.size(); i++) {
+            Integer n = remaining.get(bt.getString(i));
+            if (n == null || n == 0) {
+                added++;
+            } else {
+                remaining.put(bt.getString(i), n - 1);
+            }
+        }
+        int removed = 0;
+        for (int n : remaining.values()) {
+            removed += n;
+        }
+        return new int[] {added, removed, DEGRADED};
+    }
+
+    private static void printBudgetSkipped(String path, Verbosity v, DiffBudget budget) {
+        budget.noteDegraded(path);
+        System.out.println(v == Verbosity.RAW ? "Diff skipped (diff budget exceeded)" : "  (not line-diffed: diff budget exceeded)");
+        System.out.println();
+    }
+
     public static void printSummary(PrintStream out, DiffSummary s, int matchedFiles) {
         // Keep output ASCII-only for broad terminal compatibility.
         int changedFiles = s.perFileCounts.size();
@@ -195,7 +397,14 @@ public final class DiffHelper {
             case MODIFIED -> "M";
             case RENAMED -> "R";
         };
-        String countsWrapped = "(+" + added + "/-" + removed + " lines, " + blocks + " blocks)";
+        String countsWrapped;
+        if (blocks == DEGRADED) {
+            countsWrapped = "(~+" + added + "/-" + removed + " lines)";
+        } else if (blocks < 0) {
+            countsWrapped = "(binary/large)";
+        } else {
+            countsWrapped = "(+" + added + "/-" + removed + " lines, " + blocks + " blocks)";
+        }
 
         int maxWidth = 80;
         int countsCol = 30; // desired column where filename should start when space permits
@@ -259,7 +468,7 @@ public final class DiffHelper {
 
     
 
-    public static boolean diffWorkingTrees(Path leftRoot, Path rightRoot, List<String> globs, Verbosity v, boolean showAll) throws IOException {
+    public static boolean diffWorkingTrees(Path leftRoot, Path rightRoot, List<String> globs, Verbosity v, boolean showAll, DiffBudget budget) throws IOException {
         // If globs were provided, expand them to the set of repo-relative files
         // so we can report what they matched (and fail early if none matched).
         int matchedFiles = -1;
@@ -276,45 +485,36 @@ public final class DiffHelper {
             System.out.println("Changed files:");
         }
 
-        Map<String, byte[]> left = snapshotFiles(leftRoot, globs);
-        Map<String, byte[]> right = snapshotFiles(rightRoot, globs);
+        // Files with equal object ids on both sides cannot differ; don't read them at all.
+        Set<String> identical = identicalFiles(leftRoot, rightRoot, globs);
+        Map<String, Content> left = snapshotFiles(leftRoot, globs, identical);
+        Map<String, Content> right = snapshotFiles(rightRoot, globs, identical);
         if (v == Verbosity.SUMMARY) {
-            DiffSummary s = computeDiffSummary(left, right);
+            DiffSummary s = computeContentSummary(left, right, budget);
             if (s.perFileCounts.isEmpty()) return false;
             printSummary(System.out, s, matchedFiles);
             return true;
         }
 
-        DiffSummary summary = computeDiffSummary(left, right);
-        if (summary.perFileCounts.isEmpty()) {
-            return false;
-        }
-
-        List<String> all = new ArrayList<>();
-        all.addAll(left.keySet());
-        for (String k : right.keySet()) if (!all.contains(k)) all.add(k);
+        List<String> all = new ArrayList<>(left.keySet());
+        for (String k : right.keySet()) if (!left.containsKey(k)) all.add(k);
         all.sort(String::compareTo);
         if (matchedFiles < 0) {
             matchedFiles = all.size();
         }
 
-        
+        // Only a byte compare is needed to know what changed; line counts are computed lazily
+        // for the files that are actually displayed below.
+        int changedFiles = 0;
+        for (String rel : all) {
+            if (sameText(left.get(rel), right.get(rel))) continue;
+            changedFiles++;
+        }
+        if (changedFiles == 0) {
+            return false;
+        }
+
         if (v == Verbosity.HUMAN) {
-            int changedFiles = 0;
-            int printed = 0;
-            for (String rel : all) {
-                byte[] a = left.get(rel);
-                byte[] b = right.get(rel);
-                if (a != null && b != null) {
-                    byte[] an = normalizeNewlines(a);
-                    byte[] bn = normalizeNewlines(b);
-                    if (java.util.Arrays.equals(an, bn)) continue;
-                }
-                if (a == null && b == null) {
-                    continue;
-                }
-                changedFiles++;
-            }
             System.out.println("Matched files: " + matchedFiles + "; Changed files: " + changedFiles);
             System.out.println();
         }
@@ -324,9 +524,9 @@ public final class DiffHelper {
         boolean any = false;
         int printed = 0;
         for (String rel : all) {
-            byte[] a = left.get(rel);
-            byte[] b = right.get(rel);
-            if (a != null && b != null && java.util.Arrays.equals(a,b)) continue;
+            Content a = left.get(rel);
+            Content b = right.get(rel);
+            if (a != null && a.sameBytes(b)) continue;
             any = true;
 
             if (!showAll) {
@@ -338,12 +538,9 @@ public final class DiffHelper {
                 printed++;
             }
 
-            int[] counts = summary.perFileCounts.get(rel);
-            int added = (counts == null) ? 0 : counts[0];
-            int removed = (counts == null) ? 0 : counts[1];
-            int blocks = summary.perFileBlocks.getOrDefault(rel, 0);
+            int[] lines = lineCounts(rel, a, b, budget);
             FileChangeKind kind = (a == null) ? FileChangeKind.ADDED : (b == null ? FileChangeKind.DELETED : FileChangeKind.MODIFIED);
-            printFileSummary(System.out, kind, rel, added, removed, blocks);
+            printFileSummary(System.out, kind, rel, lines[0], lines[1], lines[2]);
 
             if (v == Verbosity.RAW) {
                 String aName = "a/" + rel;
@@ -363,7 +560,10 @@ public final class DiffHelper {
                 }
             }
 
-            if (a != null && RawText.isBinary(a) || b != null && RawText.isBinary(b)) {
+            if (printLargeFileSummary(a, b, v)) {
+                continue;
+            }
+            if (isBinary(a) || isBinary(b)) {
                 if (v == Verbosity.RAW) {
                     System.out.println("Binary files differ");
                 } else {
@@ -372,10 +572,13 @@ public final class DiffHelper {
                 System.out.println();
                 continue;
             }
-            RawText at = new RawText(normalizeNewlines(a != null ? a : new byte[0]));
-            RawText bt = new RawText(normalizeNewlines(b != null ? b : new byte[0]));
-            HistogramDiff alg = new HistogramDiff();
-            EditList edits = alg.diff(RawTextComparator.DEFAULT, at, bt);
+            RawText at = new RawText(normalizeNewlines(bytesOf(a)));
+            RawText bt = new RawText(normalizeNewlines(bytesOf(b)));
+            EditList edits = budget.diff(at, bt);
+            if (edits == null) {
+                printBudgetSkipped(rel, v, budget);
+                continue;
+            }
             if (v == Verbosity.RAW) {
                 try (DiffFormatter df = new DiffFormatter(System.out)) {
                     df.format(edits, at, bt);
@@ -388,7 +591,7 @@ public final class DiffHelper {
         return any;
     }
 
-    public static boolean diffTrees(Repository repo, ObjectId oldTreeId, ObjectId newTreeId, List<String> globs, Verbosity v, boolean showAll) throws Exception {
+    public static boolean diffTrees(Repository repo, ObjectId oldTreeId, ObjectId newTreeId, List<String> globs, Verbosity v, boolean showAll, DiffBudget budget) throws Exception {
         boolean any = false;
         try (ObjectReader reader = repo.newObjectReader()) {
             CanonicalTreeParser oldTree = new CanonicalTreeParser();
@@ -396,115 +599,50 @@ public final class DiffHelper {
             CanonicalTreeParser newTree = new CanonicalTreeParser();
             newTree.reset(reader, newTreeId);
 
-            try (DiffFormatter df = new DiffFormatter(OutputStream.nullOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-                // If globs provided, expand them against the repo work tree for clarity.
-                int matchedFiles = -1;
-                if (globs != null && !globs.isEmpty()) {
-                    try {
-                        Path repoRoot = repo.getWorkTree() == null ? null : repo.getWorkTree().toPath();
-                        if (repoRoot != null) {
-                            List<String> resolved = GlobUtils.resolveGlobs(globs, repoRoot, System.out);
-                            if (resolved.isEmpty()) {
-                                return false;
-                            }
-                            globs = resolved;
-                            matchedFiles = resolved.size();
-                            // Delineate resolved-files from the upcoming changed-files output.
-                            System.out.println();
-                            System.out.println("Changed files:");
-                        }
-                    } catch (IOException ignored) {
-                        // Fall back to pattern matching if expansion fails
-                    }
-                }
-
-                List<DiffEntry> diffs = df.scan(oldTree, newTree);
-                if (v == Verbosity.SUMMARY) {
-                    DiffSummary s = new DiffSummary();
-                    for (DiffEntry d : diffs) {
-                        if (!GlobUtils.matchesAny(d.getOldPath(), globs) && !GlobUtils.matchesAny(d.getNewPath(), globs)) continue;
-                        any = true;
-                        // Compute counts for summary using the same algorithm as human diff
-                        byte[] oldBytes = (d.getOldId() == null || d.getOldId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
-                        byte[] newBytes = (d.getNewId() == null || d.getNewId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
-                        int added = 0;
-                        int removed = 0;
-                        int blocks = 0;
-                        if (oldBytes != null && newBytes != null) {
-                                byte[] an = normalizeNewlines(oldBytes != null ? oldBytes : new byte[0]);
-                                byte[] bn = normalizeNewlines(newBytes != null ? newBytes : new byte[0]);
-                                if (java.util.Arrays.equals(an, bn)) {
-                                    // Normalized-equal: treat as no-op change
-                                    continue;
-                                }
-                                RawText at = new RawText(an);
-                                RawText bt = new RawText(bn);
-                                HistogramDiff alg2 = new HistogramDiff();
-                                EditList edits2 = alg2.diff(RawTextComparator.DEFAULT, at, bt);
-                                blocks = edits2.size();
-                                for (org.eclipse.jgit.diff.Edit e : edits2) {
-                                    removed += Math.max(0, e.getEndA() - e.getBeginA());
-                                    added += Math.max(0, e.getEndB() - e.getBeginB());
-                                }
-                        } else if (oldBytes == null) {
-                            added = countLines(newBytes);
-                            blocks = (added > 0) ? 1 : 0;
-                        } else {
-                            removed = countLines(oldBytes);
-                            blocks = (removed > 0) ? 1 : 0;
+            // Only explicit globs prune the walk; the default "*" expands to every workspace
+            // file, and a filter built from that list would cost more than it skips.
+            boolean pruneByGlobs = GlobUtils.toTreeFilter(globs) != TreeFilter.ALL;
+            // If globs provided, expand them against the repo work tree for clarity.
+            int matchedFiles = -1;
+            if (globs != null && !globs.isEmpty()) {
+                try {
+                    Path repoRoot = repo.isBare() ? null : repo.getWorkTree().toPath();
+                    if (repoRoot != null) {
+                        List<String> resolved = GlobUtils.resolveGlobs(globs, repoRoot, System.out);
+                        if (resolved.isEmpty()) {
+                            return false;
                         }
-                        String path = d.getNewPath();
-                        if (path == null || path.equals("/dev/null")) path = d.getOldPath();
-                        s.perFileCounts.put(path, new int[] {added, removed});
-                        s.perFileBlocks.put(path, blocks);
-                        s.perFileKind.put(path, toKind(d.getChangeType()));
-                        s.totalAdded += added; s.totalRemoved += removed;
+                        globs = resolved;
+                        matchedFiles = resolved.size();
+                        // Delineate resolved-files from the upcoming changed-files output.
+                        System.out.println();
+                        System.out.println("Changed files:");
                     }
-                    if (!any) return false;
-                    printSummary(System.out, s, matchedFiles);
-                    return true;
+                } catch (IOException ignored) {
+                    // Fall back to pattern matching if expansion fails
                 }
+            }
 
+            // Prune subtrees no glob can reach before they are parsed or rename-scored.
+            List<DiffEntry> diffs = scanTreeDiff(repo, reader, oldTree, newTree,
+                pruneByGlobs ? GlobUtils.toTreeFilter(globs) : TreeFilter.ALL);
+            if (v == Verbosity.SUMMARY) {
                 DiffSummary s = new DiffSummary();
-                List<DiffEntry> matched = new ArrayList<>();
+                GlobSet globSet = GlobSet.compile(globs);
                 for (DiffEntry d : diffs) {
-                    if (!GlobUtils.matchesAny(d.getOldPath(), globs) && !GlobUtils.matchesAny(d.getNewPath(), globs)) {
+                    if (!globSet.matches(d.getOldPath()) && !globSet.matches(d.getNewPath())) continue;
+                    any = true;
+                    // Compute counts for summary using the same algorithm as human diff
+                    Content oldContent = (d.getOldId() == null || d.getOldId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
+                    Content newContent = (d.getNewId() == null || d.getNewId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
+                    if (sameText(oldContent, newContent)) {
+                        // Normalized-equal: treat as no-op change
                         continue;
                     }
-                    matched.add(d);
-
-                    // Compute edits using the same HistogramDiff algorithm used for printing
-                    // so the summary counts match the printed +/- lines.
-                    byte[] oldBytes = (d.getOldId() == null || d.getOldId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
-                    byte[] newBytes = (d.getNewId() == null || d.getNewId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
-                    int added = 0;
-                    int removed = 0;
-                    int blocks = 0;
-                    if (oldBytes != null && newBytes != null) {
-                        byte[] an = normalizeNewlines(oldBytes != null ? oldBytes : new byte[0]);
-                        byte[] bn = normalizeNewlines(newBytes != null ? newBytes : new byte[0]);
-                        if (java.util.Arrays.equals(an, bn)) {
-                            // Normalized-equal: skip adding this file to summary
-                            continue;
-                        }
-                        RawText at = new RawText(an);
-                        RawText bt = new RawText(bn);
-                        HistogramDiff alg2 = new HistogramDiff();
-                        EditList edits2 = alg2.diff(RawTextComparator.DEFAULT, at, bt);
-                        blocks = edits2.size();
-                        for (org.eclipse.jgit.diff.Edit e : edits2) {
-                            removed += Math.max(0, e.getEndA() - e.getBeginA());
-                            added += Math.max(0, e.getEndB() - e.getBeginB());
-                        }
-                    } else if (oldBytes == null) {
-                        added = countLines(newBytes);
-                        blocks = (added > 0) ? 1 : 0;
-                    } else {
-                        removed = countLines(oldBytes);
-                        blocks = (removed > 0) ? 1 : 0;
-                    }
+                    int[] lines = lineCounts(displayPath(d), oldContent, newContent, budget);
+                    int added = lines[0];
+                    int removed = lines[1];
+                    int blocks = lines[2];
                     String path = d.getNewPath();
                     if (path == null || path.equals("/dev/null")) path = d.getOldPath();
                     s.perFileCounts.put(path, new int[] {added, removed});
@@ -512,68 +650,82 @@ public final class DiffHelper {
                     s.perFileKind.put(path, toKind(d.getChangeType()));
                     s.totalAdded += added; s.totalRemoved += removed;
                 }
+                if (!any) return false;
+                printSummary(System.out, s, matchedFiles);
+                return true;
+            }
 
-                if (matched.isEmpty()) {
-                    return false;
+            // The file list comes from the tree diff alone; blobs are read (and line counts
+            // computed) only for the entries that are actually displayed below.
+            List<DiffEntry> matched = new ArrayList<>();
+            GlobSet globSet = GlobSet.compile(globs);
+            for (DiffEntry d : diffs) {
+                if (!globSet.matches(d.getOldPath()) && !globSet.matches(d.getNewPath())) {
+                    continue;
                 }
+                matched.add(d);
+            }
 
-                if (v == Verbosity.HUMAN) {
-                    if (matchedFiles < 0) {
-                        matchedFiles = matched.size();
-                    }
-                    System.out.println("Matched files: " + matchedFiles + "; Changed files: " + matched.size());
-                    System.out.println();
+            if (matched.isEmpty()) {
+                return false;
+            }
+
+            if (v == Verbosity.HUMAN) {
+                if (matchedFiles < 0) {
+                    matchedFiles = matched.size();
                 }
+                System.out.println("Matched files: " + matchedFiles + "; Changed files: " + matched.size());
+                System.out.println();
+            }
 
-                
-
-                // Top summary already shows matched/changed files; avoid redundant totals here.
-
-                try (DiffFormatter dfOut = new DiffFormatter(System.out)) {
-                    dfOut.setRepository(repo);
-                    dfOut.setDetectRenames(true);
-                    int printed = 0;
-                    for (DiffEntry d : matched) {
-                        if (!showAll) {
-                            if (printed >= 10) {
-                                System.out.println("  ...");
-                                System.out.println("Hint: Use 'vgl diff -all' to show all changes.");
-                                break;
-                            }
-                            printed++;
-                        }
-                        any = true;
-                        String path = d.getNewPath();
-                        if (path == null || path.equals("/dev/null")) {
-                            path = d.getOldPath();
-                        }
-                        byte[] oldBytes = (d.getOldId() == null || d.getOldId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
-                        byte[] newBytes = (d.getNewId() == null || d.getNewId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
-                        if (oldBytes != null && newBytes != null) {
-                            byte[] an = normalizeNewlines(oldBytes);
-                            byte[] bn = normalizeNewlines(newBytes);
-                            if (java.util.Arrays.equals(an, bn)) {
-                                continue;
-                            }
-                        }
+            
+
+            // Top summary already shows matched/changed files; avoid redundant totals here.
 
-                        int[] counts = s.perFileCounts.get(path);
-                        int added = (counts == null) ? 0 : counts[0];
-                        int removed = (counts == null) ? 0 : counts[1];
-                        int blocks = s.perFileBlocks.getOrDefault(path, 0);
-                        FileChangeKind kind = toKind(d.getChangeType());
-                        printFileSummary(System.out, kind, path, added, removed, blocks);
-
-                        RawText at = new RawText(normalizeNewlines(oldBytes != null ? oldBytes : new byte[0]));
-                        RawText bt = new RawText(normalizeNewlines(newBytes != null ? newBytes : new byte[0]));
-                        HistogramDiff alg2 = new HistogramDiff();
-                        EditList edits2 = alg2.diff(RawTextComparator.DEFAULT, at, bt);
-                        if (v == Verbosity.RAW) {
-                            dfOut.format(d);
-                        } else {
-                            printHumanReadableDiff(at, bt, edits2);
-                            if (edits2 != null && !edits2.isEmpty()) System.out.println();
+            try (DiffFormatter dfOut = new DiffFormatter(System.out)) {
+                dfOut.setRepository(repo);
+                int printed = 0;
+                for (DiffEntry d : matched) {
+                    String path = d.getNewPath();
+                    if (path == null || path.equals("/dev/null")) {
+                        path = d.getOldPath();
+                    }
+                    Content oldContent = (d.getOldId() == null || d.getOldId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
+                    Content newContent = (d.getNewId() == null || d.getNewId().toObjectId() == null) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
+                    // Counted only once it is known to print, so line-ending-only changes
+                    // neither use up the first ten slots nor report a difference.
+                    if (sameText(oldContent, newContent)) {
+                        continue;
+                    }
+                    if (!showAll) {
+                        if (printed >= 10) {
+                            System.out.println("  ...");
+                            System.out.println("Hint: Use 'vgl diff -all' to show all changes.");
+                            break;
                         }
+                        printed++;
+                    }
+                    any = true;
+
+                    int[] lines = lineCounts(path, oldContent, newContent, budget);
+                    FileChangeKind kind = toKind(d.getChangeType());
+                    printFileSummary(System.out, kind, path, lines[0], lines[1], lines[2]);
+                    if (printLargeFileSummary(oldContent, newContent, v)) {
+                        continue;
+                    }
+
+                    RawText at = new RawText(normalizeNewlines(bytesOf(oldContent)));
+                    RawText bt = new RawText(normalizeNewlines(bytesOf(newContent)));
+                    EditList edits2 = budget.diff(at, bt);
+                    if (edits2 == null) {
+                        printBudgetSkipped(path, v, budget);
+                        continue;
+                    }
+                    if (v == Verbosity.RAW) {
+                        dfOut.format(d);
+                    } else {
+                        printHumanReadableDiff(at, bt, edits2);
+                        if (edits2 != null && !edits2.isEmpty()) System.out.println();
                     }
                 }
             }
@@ -581,435 +733,635 @@ public final class DiffHelper {
         return any;
     }
 
-    public static boolean diffTreeToWorking(Repository repo, ObjectId oldTreeId, FileTreeIterator workingTree, List<String> globs, Verbosity v, boolean showAll) throws Exception {
+    /**
+     * Per-directory change statistics between two trees ({@code vgl diff -dirstat}).
+     *
+     * <p>Both trees are walked with {@link TreeFilter#ANY_DIFF}, so a subtree whose id is the same on
+     * both sides is never opened; cost scales with what changed, not with the size of the tree.
+     * {@code SUMMARY} counts changed files per directory without reading any blob. {@code HUMAN} and
+     * {@code RAW} add line churn (same counts as the file summaries) and list the changed files
+     * grouped by directory. Renames are not paired; a moved file counts in both directories.
+     */
+    public static boolean printDirStat(Repository repo, ObjectId oldTreeId, ObjectId newTreeId, List<String> globs, Verbosity v, boolean showAll, DiffBudget budget) throws IOException {
+        boolean withLines = v != Verbosity.SUMMARY;
+        Map<String, int[]> perDir = new HashMap<>(); // dir -> {files, added, removed}
+        List<String> entries = new ArrayList<>();
+        int files = 0;
+        int totalAdded = 0;
+        int totalRemoved = 0;
+
+        try (TreeWalk tw = new TreeWalk(repo)) {
+            tw.addTree(oldTreeId);
+            tw.addTree(newTreeId);
+            tw.setRecursive(true);
+            tw.setFilter(AndTreeFilter.create(GlobUtils.toTreeFilter(globs), TreeFilter.ANY_DIFF));
+            while (tw.next()) {
+                boolean inOld = tw.getRawMode(0) != 0;
+                boolean inNew = tw.getRawMode(1) != 0;
+                if (tw.getFileMode(inNew ? 1 : 0) == FileMode.GITLINK) {
+                    continue;
+                }
+                String path = tw.getPathString();
+                String marker = !inOld ? "A" : (!inNew ? "D" : "M");
+
+                int[] lines = {0, 0, 0};
+                if (withLines) {
+                    Content oldContent = inOld ? readBlobOrNull(repo, tw.getObjectId(0)) : null;
+                    Content newContent = inNew ? readBlobOrNull(repo, tw.getObjectId(1)) : null;
+                    lines = lineCounts(path, oldContent, newContent, budget);
+                }
+
+                int slash = path.lastIndexOf('/');
+                String dir = (slash < 0) ? "./" : path.substring(0, slash + 1);
+                int[] agg = perDir.computeIfAbsent(dir, k -> new int[3]);
+                agg[0]++;
+                agg[1] += lines[0];
+                agg[2] += lines[1];
+                files++;
+                totalAdded += lines[0];
+                totalRemoved += lines[1];
+                entries.add(marker + " " + path);
+            }
+        }
+
+        if (files == 0) {
+            return false;
+        }
+
+        // Weight by churn when line counts were computed, otherwise by number of changed files.
+        long totalWeight = withLines ? (long) totalAdded + totalRemoved : files;
+        List<Map.Entry<String, int[]>> rows = new ArrayList<>(perDir.entrySet());
+        rows.sort((a, b) -> {
+            long wa = withLines ? (long) a.getValue()[1] + a.getValue()[2] : a.getValue()[0];
+            long wb = withLines ? (long) b.getValue()[1] + b.getValue()[2] : b.getValue()[0];
+            int c = Long.compare(wb, wa);
+            return (c != 0) ? c : a.getKey().compareTo(b.getKey());
+        });
+
+        System.out.println("Changed directories: " + rows.size() + "; Changed files: " + files);
+        System.out.println();
+        int printed = 0;
+        for (Map.Entry<String, int[]> row : rows) {
+            if (!showAll && printed >= 10) {
+                System.out.println("  ...");
+                System.out.println("Hint: Use 'vgl diff -all' to show all changes.");
+                break;
+            }
+            printed++;
+            int[] agg = row.getValue();
+            long weight = withLines ? (long) agg[1] + agg[2] : agg[0];
+            double pct = (totalWeight == 0) ? 0.0 : (100.0 * weight / totalWeight);
+            String counts = withLines
+                ? String.format(java.util.Locale.ROOT, "%6d file(s)  +%d/-%d", agg[0], agg[1], agg[2])
+                : String.format(java.util.Locale.ROOT, "%6d file(s)", agg[0]);
+            System.out.println(String.format(java.util.Locale.ROOT, "  %5.1f%% ", pct) + counts + "  " + row.getKey());
+        }
+        System.out.println();
+        if (withLines) {
+            System.out.println(files + " file(s) changed - +" + totalAdded + "/-" + totalRemoved);
+            System.out.println();
+            entries.sort(java.util.Comparator.comparing(e -> e.substring(2)));
+            StatusVerboseOutput.printCompactEntriesAlwaysGroupByDir("Changed files:", entries);
+        } else {
+            System.out.println("Use `vgl diff -dirstat -v` to add line churn and list the files.");
+        }
+        return true;
+    }
+
+    public static boolean diffTreeToWorking(Repository repo, ObjectId oldTreeId, FileTreeIterator workingTree, List<String> globs, Verbosity v, boolean showAll, DiffBudget budget) throws Exception {
         boolean any = false;
         try (ObjectReader reader = repo.newObjectReader()) {
             CanonicalTreeParser oldTree = new CanonicalTreeParser();
             oldTree.reset(reader, oldTreeId);
-            try (DiffFormatter df = new DiffFormatter(OutputStream.nullOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-
-                // If globs provided, expand them against the repo work tree for clarity.
-                int matchedFiles = -1;
-                if (globs != null && !globs.isEmpty()) {
-                    try {
-                        Path repoRoot = repo.getWorkTree() == null ? null : repo.getWorkTree().toPath();
-                        if (repoRoot != null) {
-                            List<String> resolved = GlobUtils.resolveGlobs(globs, repoRoot, System.out);
-                            if (resolved.isEmpty()) {
-                                return false;
-                            }
-                            globs = resolved;
-                            matchedFiles = resolved.size();
-                            // Delineate resolved-files from the upcoming changed-files output.
-                            System.out.println();
-                            System.out.println("Changed files:");
-                        }
-                    } catch (IOException ignored) {
-                        // Fall back to pattern matching if expansion fails
-                    }
-                }
-
-                List<DiffEntry> diffs = df.scan(oldTree, workingTree);
-                if (v == Verbosity.SUMMARY) {
-                    DiffSummary s = new DiffSummary();
-                    for (DiffEntry d : diffs) {
-                        if (!GlobUtils.matchesAny(d.getOldPath(), globs) && !GlobUtils.matchesAny(d.getNewPath(), globs)) {
-                            continue;
-                        }
-                        // Compute counts using HistogramDiff on the actual blob bytes so counts
-                        // match the human-readable rendering.
-                        String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
-                        String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
-                        byte[] oldBytes = "/dev/null".equals(oldPath) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
-                        byte[] newBytes = "/dev/null".equals(newPath) ? null : readWorkingFileOrNull(repo, newPath);
-
-                        // If the only difference is line endings (or a mode-only diff on platforms
-                        // where Git ignores file mode), treat as unchanged.
-                        if (oldBytes != null && newBytes != null) {
-                            byte[] an = normalizeNewlines(oldBytes);
-                            byte[] bn = normalizeNewlines(newBytes);
-                            if (java.util.Arrays.equals(an, bn)) {
-                                continue;
-                            }
-                        }
-
-                        any = true;
-                        int added = 0;
-                        int removed = 0;
-                        int blocks = 0;
-                        if (oldBytes != null && newBytes != null) {
-                            RawText at = new RawText(normalizeNewlines(oldBytes != null ? oldBytes : new byte[0]));
-                            RawText bt = new RawText(normalizeNewlines(newBytes != null ? newBytes : new byte[0]));
-                            HistogramDiff alg2 = new HistogramDiff();
-                            EditList edits2 = alg2.diff(RawTextComparator.DEFAULT, at, bt);
-                            blocks = edits2.size();
-                            for (org.eclipse.jgit.diff.Edit e : edits2) {
-                                removed += Math.max(0, e.getEndA() - e.getBeginA());
-                                added += Math.max(0, e.getEndB() - e.getBeginB());
-                            }
-                        } else if (oldBytes == null) {
-                            added = countLines(newBytes);
-                            blocks = (added > 0) ? 1 : 0;
-                        } else {
-                            removed = countLines(oldBytes);
-                            blocks = (removed > 0) ? 1 : 0;
-                        }
-                        String path = d.getNewPath();
-                        if (path == null || path.equals("/dev/null")) {
-                            path = d.getOldPath();
+            // Only explicit globs prune the walk; the default "*" expands to every workspace
+            // file, and a filter built from that list would cost more than it skips.
+            boolean pruneByGlobs = GlobUtils.toTreeFilter(globs) != TreeFilter.ALL;
+            // If globs provided, expand them against the repo work tree for clarity.
+            int matchedFiles = -1;
+            if (globs != null && !globs.isEmpty()) {
+                try {
+                    Path repoRoot = repo.getWorkTree() == null ? null : repo.getWorkTree().toPath();
+                    if (repoRoot != null) {
+                        List<String> resolved = GlobUtils.resolveGlobs(globs, repoRoot, System.out);
+                        if (resolved.isEmpty()) {
+                            return false;
                         }
-                        s.perFileCounts.put(path, new int[] {added, removed});
-                        s.perFileBlocks.put(path, blocks);
-                        s.perFileKind.put(path, toKind(d.getChangeType()));
-                        s.totalAdded += added;
-                        s.totalRemoved += removed;
-                    }
-                    if (!any) {
-                        return false;
+                        globs = resolved;
+                        matchedFiles = resolved.size();
+                        // Delineate resolved-files from the upcoming changed-files output.
+                        System.out.println();
+                        System.out.println("Changed files:");
                     }
-                    printSummary(System.out, s, matchedFiles);
-                    return true;
+                } catch (IOException ignored) {
+                    // Fall back to pattern matching if expansion fails
                 }
+            }
 
+            List<DiffEntry> diffs = scanWorkingTreeDiff(repo, reader, oldTree, workingTree,
+                pruneByGlobs ? GlobUtils.toTreeFilter(globs) : TreeFilter.ALL);
+            if (v == Verbosity.SUMMARY) {
                 DiffSummary s = new DiffSummary();
-                List<DiffEntry> matched = new ArrayList<>();
+                GlobSet globSet = GlobSet.compile(globs);
                 for (DiffEntry d : diffs) {
-                    if (!GlobUtils.matchesAny(d.getOldPath(), globs) && !GlobUtils.matchesAny(d.getNewPath(), globs)) {
+                    if (!globSet.matches(d.getOldPath()) && !globSet.matches(d.getNewPath())) {
                         continue;
                     }
-                    // Compute edits using the same HistogramDiff algorithm used for printing
-                    // so the summary counts match the printed +/- lines.
+                    // Compute counts using HistogramDiff on the actual blob bytes so counts
+                    // match the human-readable rendering.
                     String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
                     String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
-                    byte[] oldBytes = "/dev/null".equals(oldPath) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
-                    byte[] newBytes = "/dev/null".equals(newPath) ? null : readWorkingFileOrNull(repo, newPath);
-
-                    if (oldBytes != null && newBytes != null) {
-                        byte[] an = normalizeNewlines(oldBytes);
-                        byte[] bn = normalizeNewlines(newBytes);
-                        if (java.util.Arrays.equals(an, bn)) {
-                            continue;
-                        }
-                    }
+                    Content oldContent = "/dev/null".equals(oldPath) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
+                    Content newContent = "/dev/null".equals(newPath) ? null : readWorkingFileOrNull(repo, newPath);
 
-                    matched.add(d);
-                    int added = 0;
-                    int removed = 0;
-                    int blocks = 0;
-                    if (oldBytes != null && newBytes != null) {
-                        RawText at = new RawText(normalizeNewlines(oldBytes != null ? oldBytes : new byte[0]));
-                        RawText bt = new RawText(normalizeNewlines(newBytes != null ? newBytes : new byte[0]));
-                        HistogramDiff alg2 = new HistogramDiff();
-                        EditList edits2 = alg2.diff(RawTextComparator.DEFAULT, at, bt);
-                        blocks = edits2.size();
-                        for (org.eclipse.jgit.diff.Edit e : edits2) {
-                            removed += Math.max(0, e.getEndA() - e.getBeginA());
-                            added += Math.max(0, e.getEndB() - e.getBeginB());
-                        }
-                    } else if (oldBytes == null) {
-                        added = countLines(newBytes);
-                        blocks = (added > 0) ? 1 : 0;
-                    } else {
-                        removed = countLines(oldBytes);
-                        blocks = (removed > 0) ? 1 : 0;
+                    // If the only difference is line endings (or a mode-only diff on platforms
+                    // where Git ignores file mode), treat as unchanged.
+                    if (sameText(oldContent, newContent)) {
+                        continue;
                     }
+
+                    any = true;
+                    int[] lines = lineCounts(displayPath(d), oldContent, newContent, budget);
+                    int added = lines[0];
+                    int removed = lines[1];
+                    int blocks = lines[2];
                     String path = d.getNewPath();
-                    if (path == null || path.equals("/dev/null")) path = d.getOldPath();
+                    if (path == null || path.equals("/dev/null")) {
+                        path = d.getOldPath();
+                    }
                     s.perFileCounts.put(path, new int[] {added, removed});
                     s.perFileBlocks.put(path, blocks);
                     s.perFileKind.put(path, toKind(d.getChangeType()));
-                    s.totalAdded += added; s.totalRemoved += removed;
+                    s.totalAdded += added;
+                    s.totalRemoved += removed;
                 }
-
-                if (matched.isEmpty()) {
+                if (!any) {
                     return false;
                 }
+                printSummary(System.out, s, matchedFiles);
+                return true;
+            }
 
-                // IMPORTANT: tree -> working diffs can involve synthetic object IDs for the
-                // working-tree side. Calling DiffFormatter.format(DiffEntry) can then throw
-                // "Missing blob ...". Instead, load both sides ourselves and emit a simple
-                // unified diff.
-                if (v == Verbosity.HUMAN) {
-                    int changedFiles = matched.size();
-                    if (matchedFiles < 0) {
-                        matchedFiles = changedFiles;
-                    }
-                    System.out.println("Matched files: " + matchedFiles + "; Changed files: " + changedFiles);
-                    System.out.println();
+            // Line-ending-only changes still have to be weeded out here (a cheap byte compare).
+            // The contents read for that are kept for the entries displayed below, so those are
+            // not read twice, and line counts are computed only for them.
+            int changedFiles = 0;
+            List<ChangedFile> shown = new ArrayList<>();
+            GlobSet globSet = GlobSet.compile(globs);
+            for (DiffEntry d : diffs) {
+                if (!globSet.matches(d.getOldPath()) && !globSet.matches(d.getNewPath())) {
+                    continue;
                 }
+                String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
+                String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
+                Content oldContent = "/dev/null".equals(oldPath) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
+                Content newContent = "/dev/null".equals(newPath) ? null : readWorkingFileOrNull(repo, newPath);
 
-                
+                if (sameText(oldContent, newContent)) {
+                    continue;
+                }
 
-                // Top summary already shows matched/changed files; avoid redundant totals here.
+                changedFiles++;
+                if (showAll || shown.size() < 10) {
+                    shown.add(new ChangedFile(d, oldContent, newContent));
+                }
+            }
 
-                int printed = 0;
-                for (DiffEntry d : matched) {
-                    if (!showAll) {
-                        if (printed >= 10) {
-                            System.out.println("  ...");
-                            System.out.println("Hint: Use 'vgl diff -all' to show all changes.");
-                            break;
-                        }
-                        printed++;
-                    }
+            if (changedFiles == 0) {
+                return false;
+            }
 
-                    String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
-                    String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
+            // IMPORTANT: tree -> working diffs can involve synthetic object IDs for the
+            // working-tree side. Calling DiffFormatter.format(DiffEntry) can then throw
+            // "Missing blob ...". Instead, load both sides ourselves and emit a simple
+            // unified diff.
+            if (v == Verbosity.HUMAN) {
+                if (matchedFiles < 0) {
+                    matchedFiles = changedFiles;
+                }
+                System.out.println("Matched files: " + matchedFiles + "; Changed files: " + changedFiles);
+                System.out.println();
+            }
 
-                    byte[] oldBytes = "/dev/null".equals(oldPath) ? null : readBlobOrNull(repo, d.getOldId().toObjectId());
-                    byte[] newBytes = "/dev/null".equals(newPath) ? null : readWorkingFileOrNull(repo, newPath);
+            
 
-                    if (oldBytes != null && newBytes != null) {
-                        byte[] an = normalizeNewlines(oldBytes);
-                        byte[] bn = normalizeNewlines(newBytes);
-                        if (java.util.Arrays.equals(an, bn)) {
-                            continue;
-                        }
-                    }
+            // Top summary already shows matched/changed files; avoid redundant totals here.
 
-                    any = true;
+            for (ChangedFile c : shown) {
+                DiffEntry d = c.entry();
+                String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
+                String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
+                Content oldContent = c.oldContent();
+                Content newContent = c.newContent();
 
-                    String rel = newPath.equals("/dev/null") ? oldPath : newPath;
-                    int[] counts = s.perFileCounts.get(rel);
-                    int added = (counts == null) ? 0 : counts[0];
-                    int removed = (counts == null) ? 0 : counts[1];
-                    int blocks = s.perFileBlocks.getOrDefault(rel, 0);
-                    FileChangeKind kind = s.perFileKind.getOrDefault(rel, toKind(d.getChangeType()));
-                    printFileSummary(System.out, kind, rel, added, removed, blocks);
+                any = true;
 
-                    printUnifiedDiff(oldPath, newPath, oldBytes, newBytes, v);
-                }
+                String rel = newPath.equals("/dev/null") ? oldPath : newPath;
+                int[] lines = lineCounts(rel, oldContent, newContent, budget);
+                printFileSummary(System.out, toKind(d.getChangeType()), rel, lines[0], lines[1], lines[2]);
+
+                printUnifiedDiff(oldPath, newPath, oldContent, newContent, v, budget);
+            }
+            if (changedFiles > shown.size()) {
+                System.out.println("  ...");
+                System.out.println("Hint: Use 'vgl diff -all' to show all changes.");
             }
         }
         return any;
     }
 
-    public static boolean diffWorkingToTree(Repository repo, FileTreeIterator workingTree, ObjectId newTreeId, List<String> globs, Verbosity v, boolean showAll) throws Exception {
+    public static boolean diffWorkingToTree(Repository repo, FileTreeIterator workingTree, ObjectId newTreeId, List<String> globs, Verbosity v, boolean showAll, DiffBudget budget) throws Exception {
         boolean any = false;
         try (ObjectReader reader = repo.newObjectReader()) {
             CanonicalTreeParser newTree = new CanonicalTreeParser();
             newTree.reset(reader, newTreeId);
-            try (DiffFormatter df = new DiffFormatter(OutputStream.nullOutputStream())) {
-                df.setRepository(repo);
-                df.setDetectRenames(true);
-
-                // If globs provided, expand them against the repo work tree for clarity.
-                int matchedFiles = -1;
-                if (globs != null && !globs.isEmpty()) {
-                    try {
-                        Path repoRoot = repo.getWorkTree() == null ? null : repo.getWorkTree().toPath();
-                        if (repoRoot != null) {
-                            List<String> resolved = GlobUtils.resolveGlobs(globs, repoRoot, System.out);
-                            if (resolved.isEmpty()) {
-                                return false;
-                            }
-                            globs = resolved;
-                            matchedFiles = resolved.size();
-                            // Delineate resolved-files from the upcoming changed-files output.
-                            System.out.println();
-                            System.out.println("Changed files:");
-                        }
-                    } catch (IOException ignored) {
-                        // Fall back to pattern matching if expansion fails
-                    }
-                }
-
-                List<DiffEntry> diffs = df.scan(workingTree, newTree);
-                if (v == Verbosity.SUMMARY) {
-                    DiffSummary s = new DiffSummary();
-                    for (DiffEntry d : diffs) {
-                        if (!GlobUtils.matchesAny(d.getOldPath(), globs) && !GlobUtils.matchesAny(d.getNewPath(), globs)) {
-                            continue;
-                        }
-                        String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
-                        String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
-
-                        byte[] oldBytes = "/dev/null".equals(oldPath) ? null : readWorkingFileOrNull(repo, oldPath);
-                        byte[] newBytes = "/dev/null".equals(newPath) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
-
-                        if (oldBytes != null && newBytes != null) {
-                            byte[] an = normalizeNewlines(oldBytes);
-                            byte[] bn = normalizeNewlines(newBytes);
-                            if (java.util.Arrays.equals(an, bn)) {
-                                continue;
-                            }
-                        }
-
-                        any = true;
-
-                        int added = 0;
-                        int removed = 0;
-                        int blocks = 0;
-                        if (oldBytes != null && newBytes != null) {
-                            RawText at = new RawText(normalizeNewlines(oldBytes));
-                            RawText bt = new RawText(normalizeNewlines(newBytes));
-                            HistogramDiff alg2 = new HistogramDiff();
-                            EditList edits2 = alg2.diff(RawTextComparator.DEFAULT, at, bt);
-                            blocks = edits2.size();
-                            for (Edit e : edits2) {
-                                removed += Math.max(0, e.getEndA() - e.getBeginA());
-                                added += Math.max(0, e.getEndB() - e.getBeginB());
-                            }
-                        } else if (oldBytes == null) {
-                            added = countLines(newBytes);
-                            blocks = (added > 0) ? 1 : 0;
-                        } else {
-                            removed = countLines(oldBytes);
-                            blocks = (removed > 0) ? 1 : 0;
-                        }
-
-                        String path = d.getNewPath();
-                        if (path == null || path.equals("/dev/null")) {
-                            path = d.getOldPath();
+            // Only explicit globs prune the walk; the default "*" expands to every workspace
+            // file, and a filter built from that list would cost more than it skips.
+            boolean pruneByGlobs = GlobUtils.toTreeFilter(globs) != TreeFilter.ALL;
+            // If globs provided, expand them against the repo work tree for clarity.
+            int matchedFiles = -1;
+            if (globs != null && !globs.isEmpty()) {
+                try {
+                    Path repoRoot = repo.getWorkTree() == null ? null : repo.getWorkTree().toPath();
+                    if (repoRoot != null) {
+                        List<String> resolved = GlobUtils.resolveGlobs(globs, repoRoot, System.out);
+                        if (resolved.isEmpty()) {
+                            return false;
                         }
-                        s.perFileCounts.put(path, new int[] {added, removed});
-                        s.perFileBlocks.put(path, blocks);
-                        s.perFileKind.put(path, toKind(d.getChangeType()));
-                        s.totalAdded += added;
-                        s.totalRemoved += removed;
-                    }
-                    if (!any) {
-                        return false;
+                        globs = resolved;
+                        matchedFiles = resolved.size();
+                        // Delineate resolved-files from the upcoming changed-files output.
+                        System.out.println();
+                        System.out.println("Changed files:");
                     }
-                    printSummary(System.out, s, matchedFiles);
-                    return true;
+                } catch (IOException ignored) {
+                    // Fall back to pattern matching if expansion fails
                 }
+            }
 
+            List<DiffEntry> diffs = scanWorkingTreeDiff(repo, reader, workingTree, newTree,
+                pruneByGlobs ? GlobUtils.toTreeFilter(globs) : TreeFilter.ALL);
+            if (v == Verbosity.SUMMARY) {
                 DiffSummary s = new DiffSummary();
-                List<DiffEntry> matched = new ArrayList<>();
+                GlobSet globSet = GlobSet.compile(globs);
                 for (DiffEntry d : diffs) {
-                    if (!GlobUtils.matchesAny(d.getOldPath(), globs) && !GlobUtils.matchesAny(d.getNewPath(), globs)) {
+                    if (!globSet.matches(d.getOldPath()) && !globSet.matches(d.getNewPath())) {
                         continue;
                     }
                     String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
                     String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
 
-                    byte[] oldBytes = "/dev/null".equals(oldPath) ? null : readWorkingFileOrNull(repo, oldPath);
-                    byte[] newBytes = "/dev/null".equals(newPath) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
+                    Content oldContent = "/dev/null".equals(oldPath) ? null : readWorkingFileOrNull(repo, oldPath);
+                    Content newContent = "/dev/null".equals(newPath) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
 
-                    if (oldBytes != null && newBytes != null) {
-                        byte[] an = normalizeNewlines(oldBytes);
-                        byte[] bn = normalizeNewlines(newBytes);
-                        if (java.util.Arrays.equals(an, bn)) {
-                            continue;
-                        }
+                    if (sameText(oldContent, newContent)) {
+                        continue;
                     }
 
-                    matched.add(d);
-
-                    int added = 0;
-                    int removed = 0;
-                    int blocks = 0;
-                    if (oldBytes != null && newBytes != null) {
-                        RawText at = new RawText(normalizeNewlines(oldBytes));
-                        RawText bt = new RawText(normalizeNewlines(newBytes));
-                        HistogramDiff alg2 = new HistogramDiff();
-                        EditList edits2 = alg2.diff(RawTextComparator.DEFAULT, at, bt);
-                        blocks = edits2.size();
-                        for (Edit e : edits2) {
-                            removed += Math.max(0, e.getEndA() - e.getBeginA());
-                            added += Math.max(0, e.getEndB() - e.getBeginB());
-                        }
-                    } else if (oldBytes == null) {
-                        added = countLines(newBytes);
-                        blocks = (added > 0) ? 1 : 0;
-                    } else {
-                        removed = countLines(oldBytes);
-                        blocks = (removed > 0) ? 1 : 0;
-                    }
+                    any = true;
+
+                    int[] lines = lineCounts(displayPath(d), oldContent, newContent, budget);
+                    int added = lines[0];
+                    int removed = lines[1];
+                    int blocks = lines[2];
 
                     String path = d.getNewPath();
-                    if (path == null || path.equals("/dev/null")) path = d.getOldPath();
+                    if (path == null || path.equals("/dev/null")) {
+                        path = d.getOldPath();
+                    }
                     s.perFileCounts.put(path, new int[] {added, removed});
                     s.perFileBlocks.put(path, blocks);
                     s.perFileKind.put(path, toKind(d.getChangeType()));
                     s.totalAdded += added;
                     s.totalRemoved += removed;
                 }
-
-                if (matched.isEmpty()) {
+                if (!any) {
                     return false;
                 }
+                printSummary(System.out, s, matchedFiles);
+                return true;
+            }
 
-                
+            // Line-ending-only changes still have to be weeded out here (a cheap byte compare).
+            // The contents read for that are kept for the entries displayed below, so those are
+            // not read twice, and line counts are computed only for them.
+            int changedFiles = 0;
+            List<ChangedFile> shown = new ArrayList<>();
+            GlobSet globSet = GlobSet.compile(globs);
+            for (DiffEntry d : diffs) {
+                if (!globSet.matches(d.getOldPath()) && !globSet.matches(d.getNewPath())) {
+                    continue;
+                }
+                String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
+                String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
 
-                int printed = 0;
-                for (DiffEntry d : matched) {
-                    if (!showAll) {
-                        if (printed >= 10) {
-                            System.out.println("  ...");
-                            System.out.println("Hint: Use 'vgl diff -all' to show all changes.");
-                            break;
-                        }
-                        printed++;
-                    }
-                    String path = d.getNewPath();
-                    if (path == null || path.equals("/dev/null")) {
-                        path = d.getOldPath();
-                    }
+                Content oldContent = "/dev/null".equals(oldPath) ? null : readWorkingFileOrNull(repo, oldPath);
+                Content newContent = "/dev/null".equals(newPath) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
 
-                    if (v != Verbosity.RAW) {
-                        String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
-                        String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
-                        byte[] oldBytes = "/dev/null".equals(oldPath) ? null : readWorkingFileOrNull(repo, oldPath);
-                        byte[] newBytes = "/dev/null".equals(newPath) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
-                        if (oldBytes != null && newBytes != null) {
-                            byte[] an = normalizeNewlines(oldBytes);
-                            byte[] bn = normalizeNewlines(newBytes);
-                            if (java.util.Arrays.equals(an, bn)) {
-                                continue;
-                            }
-                        }
-                    }
+                if (sameText(oldContent, newContent)) {
+                    continue;
+                }
 
-                    any = true;
+                changedFiles++;
+                if (showAll || shown.size() < 10) {
+                    shown.add(new ChangedFile(d, oldContent, newContent));
+                }
+            }
 
-                    int[] counts = s.perFileCounts.get(path);
-                    int added = (counts == null) ? 0 : counts[0];
-                    int removed = (counts == null) ? 0 : counts[1];
-                    int blocks = s.perFileBlocks.getOrDefault(path, 0);
-                    FileChangeKind kind = toKind(d.getChangeType());
-                    printFileSummary(System.out, kind, path, added, removed, blocks);
+            if (changedFiles == 0) {
+                return false;
+            }
 
-                    if (v == Verbosity.RAW) {
-                        try (DiffFormatter dfOut = new DiffFormatter(System.out)) {
-                            dfOut.setRepository(repo);
-                            dfOut.setDetectRenames(true);
-                            dfOut.format(d);
-                        }
-                    } else {
-                        String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
-                        String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
-                        byte[] oldBytes = "/dev/null".equals(oldPath) ? null : readWorkingFileOrNull(repo, oldPath);
-                        byte[] newBytes = "/dev/null".equals(newPath) ? null : readBlobOrNull(repo, d.getNewId().toObjectId());
-
-                        RawText at = new RawText(normalizeNewlines(oldBytes != null ? oldBytes : new byte[0]));
-                        RawText bt = new RawText(normalizeNewlines(newBytes != null ? newBytes : new byte[0]));
-                        HistogramDiff alg2 = new HistogramDiff();
-                        EditList edits2 = alg2.diff(RawTextComparator.DEFAULT, at, bt);
-                        printHumanReadableDiff(at, bt, edits2);
-                        if (edits2 != null && !edits2.isEmpty()) System.out.println();
+            for (ChangedFile c : shown) {
+                DiffEntry d = c.entry();
+                String path = d.getNewPath();
+                if (path == null || path.equals("/dev/null")) {
+                    path = d.getOldPath();
+                }
+
+                String oldPath = (d.getOldPath() == null) ? "/dev/null" : d.getOldPath();
+                String newPath = (d.getNewPath() == null) ? "/dev/null" : d.getNewPath();
+                Content oldContent = c.oldContent();
+                Content newContent = c.newContent();
+
+                any = true;
+
+                int[] lines = lineCounts(path, oldContent, newContent, budget);
+                printFileSummary(System.out, toKind(d.getChangeType()), path, lines[0], lines[1], lines[2]);
+
+                if (v == Verbosity.RAW) {
+                    // Working-tree ids are synthetic (never inserted), so format from the bytes
+                    // we already hold rather than DiffFormatter.format(DiffEntry).
+                    printUnifiedDiff(oldPath, newPath, oldContent, newContent, v, budget);
+                } else if (!printLargeFileSummary(oldContent, newContent, v)) {
+                    RawText at = new RawText(normalizeNewlines(bytesOf(oldContent)));
+                    RawText bt = new RawText(normalizeNewlines(bytesOf(newContent)));
+                    EditList edits2 = budget.diff(at, bt);
+                    if (edits2 == null) {
+                        printBudgetSkipped(path, v, budget);
+                        continue;
                     }
+                    printHumanReadableDiff(at, bt, edits2);
+                    if (edits2 != null && !edits2.isEmpty()) System.out.println();
                 }
             }
+            if (changedFiles > shown.size()) {
+                System.out.println("  ...");
+                System.out.println("Hint: Use 'vgl diff -all' to show all changes.");
+            }
         }
         return any;
     }
 
-    private static byte[] readBlobOrNull(Repository repo, ObjectId id) {
+    /**
+     * Scans a tree against the working tree (either side may be the working tree) and returns
+     * rename-detected entries. Index stat data is consulted first: a file whose size/mtime match
+     * its index entry, and whose indexed blob equals the tree's blob, is skipped without being
+     * read or hashed. Only stat-dirty paths fall through to the usual content comparison.
+     * {@code pathFilter} (e.g. from {@link GlobUtils#toTreeFilter}) prunes the walk up front.
+     */
+    public static List<DiffEntry> scanWorkingTreeDiff(Repository repo, ObjectReader reader,
+            AbstractTreeIterator oldTree, AbstractTreeIterator newTree, TreeFilter pathFilter) throws IOException {
+        int workingIdx = (oldTree instanceof WorkingTreeIterator) ? 0 : 1;
+        WorkingTreeIterator working = (WorkingTreeIterator) (workingIdx == 0 ? oldTree : newTree);
+
+        DirCache index;
+        try {
+            index = repo.readDirCache();
+        } catch (Exception e) {
+            index = null; // best-effort: fall back to a plain content diff
+        }
+
+        TreeFilter diff = (index == null)
+            ? TreeFilter.ANY_DIFF
+            : new IndexStatDiffFilter(index, workingIdx, 1 - workingIdx);
+        ContentSource workingSource = ContentSource.create(working);
+        ContentSource objectSource = ContentSource.create(reader);
+        ContentSource.Pair sources = (workingIdx == 0)
+            ? new ContentSource.Pair(workingSource, objectSource)
+            : new ContentSource.Pair(objectSource, workingSource);
+        return scanPaired(repo, reader, oldTree, newTree, pathFilter, diff, sources);
+    }
+
+    /**
+     * Scans two trees and returns rename-detected entries. {@code pathFilter} prunes the walk up
+     * front, the same as for {@link #scanWorkingTreeDiff}.
+     */
+    public static List<DiffEntry> scanTreeDiff(Repository repo, ObjectReader reader,
+            AbstractTreeIterator oldTree, AbstractTreeIterator newTree, TreeFilter pathFilter) throws IOException {
+        ContentSource objects = ContentSource.create(reader);
+        return scanPaired(repo, reader, oldTree, newTree, pathFilter, TreeFilter.ANY_DIFF, new ContentSource.Pair(objects, objects));
+    }
+
+    /*
+     * A pruned walk alone would show a file moved across the edge of pathFilter as a bare add or
+     * delete. When the pruned walk finds adds (deletes), the trees are walked once more for the
+     * deletes (adds) outside the filter; those are offered to rename pairing and dropped again
+     * unless they pair up with an entry inside it.
+     */
+    private static List<DiffEntry> scanPaired(Repository repo, ObjectReader reader, AbstractTreeIterator oldTree,
+            AbstractTreeIterator newTree, TreeFilter pathFilter, TreeFilter diff, ContentSource.Pair sources) throws IOException {
+        TreeFilter inside = (pathFilter == null) ? TreeFilter.ALL : pathFilter;
+        List<DiffEntry> entries = scan(repo, reader, oldTree, newTree, AndTreeFilter.create(inside, diff));
+        if (inside == TreeFilter.ALL || RenameDetection.mode() == RenameDetection.Mode.OFF) {
+            return RenameDetection.detect(repo, entries, sources);
+        }
+        boolean adds = false;
+        boolean deletes = false;
+        for (DiffEntry e : entries) {
+            adds |= e.getChangeType() == DiffEntry.ChangeType.ADD;
+            deletes |= e.getChangeType() == DiffEntry.ChangeType.DELETE;
+        }
+        if (!adds && !deletes) {
+            return RenameDetection.detect(repo, entries, sources);
+        }
+        oldTree.reset();
+        newTree.reset();
+        List<DiffEntry> outside = scan(repo, reader, oldTree, newTree,
+            AndTreeFilter.create(new OutsideFilter(inside, deletes, adds), diff));
+        if (outside.isEmpty()) {
+            return RenameDetection.detect(repo, entries, sources);
+        }
+        Set<DiffEntry> unpaired = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+        unpaired.addAll(outside);
+        List<DiffEntry> all = new ArrayList<>(entries);
+        all.addAll(outside);
+        List<DiffEntry> out = new ArrayList<>(RenameDetection.detect(repo, all, sources));
+        out.removeIf(unpaired::contains);
+        return out;
+    }
+
+    private static List<DiffEntry> scan(Repository repo, ObjectReader reader, AbstractTreeIterator oldTree,
+            AbstractTreeIterator newTree, TreeFilter filter) throws IOException {
+        try (TreeWalk walk = new TreeWalk(repo, reader)) {
+            walk.addTree(oldTree);
+            walk.addTree(newTree);
+            walk.setRecursive(true);
+            walk.setFilter(filter);
+            return DiffEntry.scan(walk);
+        }
+    }
+
+    // Files outside a path filter that exist on one side only; every subtree is entered.
+    private static final class OutsideFilter extends TreeFilter {
+        private final TreeFilter inside;
+        private final boolean adds;
+        private final boolean deletes;
+
+        OutsideFilter(TreeFilter inside, boolean adds, boolean deletes) {
+            this.inside = inside;
+            this.adds = adds;
+            this.deletes = deletes;
+        }
+
+        @Override
+        public boolean include(TreeWalk walk) throws IOException {
+            if (walk.isSubtree()) {
+                return true;
+            }
+            boolean inOld = walk.getRawMode(0) != 0;
+            boolean inNew = walk.getRawMode(1) != 0;
+            if (inOld == inNew || (inNew ? !adds : !deletes)) {
+                return false;
+            }
+            return !inside.include(walk);
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            return true;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
+    }
+
+    private static final class IndexStatDiffFilter extends TreeFilter {
+        private final DirCache index;
+        private final int workingIdx;
+        private final int treeIdx;
+
+        IndexStatDiffFilter(DirCache index, int workingIdx, int treeIdx) {
+            this.index = index;
+            this.workingIdx = workingIdx;
+            this.treeIdx = treeIdx;
+        }
+
+        @Override
+        public boolean include(TreeWalk walk) throws IOException {
+            if (walk.isSubtree()) {
+                return TreeFilter.ANY_DIFF.include(walk);
+            }
+            WorkingTreeIterator working = walk.getTree(workingIdx, WorkingTreeIterator.class);
+            int treeMode = walk.getRawMode(treeIdx);
+            if (working != null && treeMode != 0) {
+                DirCacheEntry entry = index.getEntry(walk.getPathString());
+                if (entry != null
+                    && entry.getRawMode() == treeMode
+                    && entry.getObjectId().equals(walk.getObjectId(treeIdx))
+                    && working.compareMetadata(entry) == WorkingTreeIterator.MetadataDiff.EQUAL) {
+                    return false;
+                }
+            }
+            return TreeFilter.ANY_DIFF.include(walk);
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            return false;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
+    }
+
+    private static Content readBlobOrNull(Repository repo, ObjectId id) {
         if (repo == null || id == null || ObjectId.zeroId().equals(id)) {
             return null;
         }
         try {
-            return repo.open(id).getBytes();
+            ObjectLoader loader = repo.open(id, Constants.OBJ_BLOB);
+            long size = loader.getSize();
+            if (size > largeFileThreshold()) {
+                // The blob id already is the content hash; no need to inflate it.
+                return Content.large(size, id.copy());
+            }
+            if (loader.isLarge()) {
+                // Below our threshold but above JGit's in-memory limit: stream it instead of
+                // letting getBytes() throw LargeObjectException.
+                try (ObjectStream in = loader.openStream()) {
+                    return Content.of(in.readAllBytes());
+                }
+            }
+            return Content.of(loader.getBytes());
         } catch (Exception e) {
             return null;
         }
     }
 
-    private static byte[] readWorkingFileOrNull(Repository repo, String repoRelativePath) {
+    /** Reads a working file; above the large-file threshold only its size and blob id are kept. */
+    private static Content readFileContent(Path p) throws IOException {
+        long size = Files.size(p);
+        if (size <= largeFileThreshold()) {
+            return Content.of(Files.readAllBytes(p));
+        }
+        try (InputStream in = Files.newInputStream(p)) {
+            return Content.large(size, new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, size, in));
+        }
+    }
+
+    /** Files/blobs above this many bytes are compared by hash and summarized, never line-diffed. */
+    private static long largeFileThreshold() {
+        return Long.getLong("vgl.diff.largeFileThreshold", DEFAULT_LARGE_FILE_THRESHOLD);
+    }
+
+    private static boolean isLarge(Content c) {
+        return c != null && c.large();
+    }
+
+    private static boolean isBinary(Content c) {
+        return c != null && !c.large() && RawText.isBinary(c.bytes());
+    }
+
+    private static byte[] bytesOf(Content c) {
+        return (c == null) ? new byte[0] : c.bytes();
+    }
+
+    /** Same content on both sides once CRLF/LF differences are ignored; false if either is missing. */
+    private static boolean sameText(Content a, Content b) {
+        if (a == null || b == null) {
+            return false;
+        }
+        if (a.large() || b.large()) {
+            return a.sameBytes(b);
+        }
+        return java.util.Arrays.equals(normalizeNewlines(a.bytes()), normalizeNewlines(b.bytes()));
+    }
+
+    private static String describeSide(Content c) {
+        if (c == null) {
+            return "(none)";
+        }
+        ObjectId id = c.large() ? c.id() : new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, c.bytes());
+        return c.size() + " bytes  " + id.name().substring(0, 10);
+    }
+
+    /** Prints the "binary/large: sizes and hashes" summary when either side is large; returns true if printed. */
+    private static boolean printLargeFileSummary(Content oldContent, Content newContent, Verbosity v) {
+        if (!isLarge(oldContent) && !isLarge(newContent)) {
+            return false;
+        }
+        System.out.println(v == Verbosity.RAW ? "Binary files differ (large)" : "  (binary/large: sizes and hashes)");
+        System.out.println("    A: " + describeSide(oldContent));
+        System.out.println("    B: " + describeSide(newContent));
+        System.out.println();
+        return true;
+    }
+
+    private static Content readWorkingFileOrNull(Repository repo, String repoRelativePath) {
         if (repo == null || repoRelativePath == null || repoRelativePath.isBlank()) {
             return null;
         }
@@ -1022,13 +1374,13 @@ public final class DiffHelper {
             if (!Files.exists(p) || !Files.isRegularFile(p)) {
                 return null;
             }
-            return Files.readAllBytes(p);
+            return readFileContent(p);
         } catch (Exception e) {
             return null;
         }
     }
 
-    private static void printUnifiedDiff(String oldPath, String newPath, byte[] oldBytes, byte[] newBytes, Verbosity v) throws IOException {
+    private static void printUnifiedDiff(String oldPath, String newPath, Content oldContent, Content newContent, Verbosity v, DiffBudget budget) throws IOException {
         if (v == Verbosity.RAW) {
             String aGit = "/dev/null".equals(oldPath) ? "a/" + newPath : "a/" + oldPath;
             String bGit = "/dev/null".equals(newPath) ? "b/" + oldPath : "b/" + newPath;
@@ -1041,7 +1393,10 @@ public final class DiffHelper {
             System.out.println("+++ " + bPath);
         }
 
-        if ((oldBytes != null && RawText.isBinary(oldBytes)) || (newBytes != null && RawText.isBinary(newBytes))) {
+        if (printLargeFileSummary(oldContent, newContent, v)) {
+            return;
+        }
+        if (isBinary(oldContent) || isBinary(newContent)) {
             if (v == Verbosity.RAW) {
                 System.out.println("Binary files differ");
             } else {
@@ -1051,10 +1406,13 @@ public final class DiffHelper {
             return;
         }
 
-        RawText at = new RawText(oldBytes != null ? oldBytes : new byte[0]);
-        RawText bt = new RawText(newBytes != null ? newBytes : new byte[0]);
-        HistogramDiff alg = new HistogramDiff();
-        EditList edits = alg.diff(RawTextComparator.DEFAULT, at, bt);
+        RawText at = new RawText(bytesOf(oldContent));
+        RawText bt = new RawText(bytesOf(newContent));
+        EditList edits = budget.diff(at, bt);
+        if (edits == null) {
+            printBudgetSkipped("/dev/null".equals(newPath) ? oldPath : newPath, v, budget);
+            return;
+        }
         if (v == Verbosity.RAW) {
             try (DiffFormatter df = new DiffFormatter(System.out)) {
                 df.format(edits, at, bt);
@@ -0,0 +1,166 @@
+package com.vgl.cli.commands.helpers;
+
+import com.vgl.cli.utils.GlobSet;
+import com.vgl.cli.utils.Utils;
+import com.vgl.cli.utils.WorkspaceWalker;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+
+/**
+ * Content-hash manifest of a plain (non-git) directory, cached between {@code vgl diff -lr} runs.
+ *
+ * <p>Each entry records a file's size, modification time and blob id. On the next run a file whose
+ * size and mtime are unchanged reuses its recorded id, so only files whose stat signature changed
+ * are read and re-hashed. Files modified within the last couple of seconds are not cached, since a
+ * further write in the same timestamp tick would go unnoticed.
+ *
+ * <p>Enabled with {@code -Dvgl.diff.manifests=true}; manifests live under the user cache directory
+ * ({@code ~/.cache/vgl/manifests}), one per compared root, never inside the compared tree.
+ */
+final class DiffManifest {
+    private static final String HEADER = "vgl-manifest 1";
+    private static final long RACY_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private record Entry(long size, long mtimeNanos, ObjectId id) {}
+
+    private DiffManifest() {}
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean("vgl.diff.manifests");
+    }
+
+    /** Repo-relative files under both roots (matching {@code globs}) whose blob ids are equal. */
+    static Set<String> identicalFiles(Path leftRoot, Path rightRoot, List<String> globs) throws IOException {
+        Map<String, ObjectId> left = hashes(leftRoot, globs);
+        Map<String, ObjectId> right = hashes(rightRoot, globs);
+        Set<String> out = new HashSet<>();
+        for (Map.Entry<String, ObjectId> e : left.entrySet()) {
+            if (e.getValue().equals(right.get(e.getKey()))) {
+                out.add(e.getKey());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Blob id of every file under {@code root} matching {@code globs}, hashing only files whose stat
+     * changed. Files are listed by {@link WorkspaceWalker}, as in {@link DiffHelper#snapshotFiles}.
+     */
+    static Map<String, ObjectId> hashes(Path root, List<String> globs) throws IOException {
+        Path absRoot = root.toAbsolutePath().normalize();
+        Path manifestFile = manifestFor(absRoot);
+        Map<String, Entry> cached = load(manifestFile, absRoot);
+        Map<String, Entry> current = new HashMap<>();
+        Map<String, ObjectId> out = new HashMap<>();
+        long racyAfter = System.currentTimeMillis() * 1_000_000L - RACY_NANOS;
+        boolean dirty = false;
+        GlobSet globSet = GlobSet.compile(globs);
+
+        for (String rel : WorkspaceWalker.at(absRoot).walk().files()) {
+            if (rel.equals(".vgl") || !globSet.matches(rel)) {
+                continue;
+            }
+            Path file = absRoot.resolve(rel);
+            BasicFileAttributes a;
+            try {
+                a = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException vanished) {
+                continue;
+            }
+            long mtime = a.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            Entry e = cached.get(rel);
+            if (e == null || e.size() != a.size() || e.mtimeNanos() != mtime) {
+                e = new Entry(a.size(), mtime, hash(file, a.size()));
+                dirty = true;
+            }
+            out.put(rel, e.id());
+            if (mtime < racyAfter) {
+                current.put(rel, e);
+            }
+        }
+
+        // Entries outside this run's globs are kept as they were; vanished matches are dropped.
+        for (Map.Entry<String, Entry> e : cached.entrySet()) {
+            if (current.containsKey(e.getKey())) {
+                continue;
+            }
+            if (globSet.matches(e.getKey())) {
+                dirty = true;
+            } else {
+                current.put(e.getKey(), e.getValue());
+            }
+        }
+        if (dirty || current.size() != cached.size()) {
+            save(manifestFile, absRoot, current);
+        }
+        return out;
+    }
+
+    private static ObjectId hash(Path file, long size) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, size, in);
+        }
+    }
+
+    private static Path manifestFor(Path absRoot) {
+        String key = ObjectId.fromRaw(Constants.newMessageDigest().digest(absRoot.toString().getBytes(StandardCharsets.UTF_8))).name();
+        return Utils.userCacheDir("manifests").resolve(key);
+    }
+
+    private static Map<String, Entry> load(Path manifestFile, Path absRoot) {
+        Map<String, Entry> out = new HashMap<>();
+        if (!Files.isRegularFile(manifestFile)) {
+            return out;
+        }
+        try {
+            List<String> lines = Files.readAllLines(manifestFile, StandardCharsets.UTF_8);
+            // A hash collision between roots, or a manifest from another format, is simply ignored.
+            if (lines.isEmpty() || !lines.get(0).equals(HEADER + "\t" + absRoot)) {
+                return out;
+            }
+            for (int i = 1; i < lines.size(); i++) {
+                String[] parts = lines.get(i).split(" ", 4);
+                if (parts.length == 4 && ObjectId.isId(parts[2])) {
+                    out.put(parts[3], new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), ObjectId.fromString(parts[2])));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            out.clear();
+        }
+        return out;
+    }
+
+    private static void save(Path manifestFile, Path absRoot, Map<String, Entry> entries) {
+        try {
+            Files.createDirectories(manifestFile.getParent());
+            Path tmp = Files.createTempFile(manifestFile.getParent(), manifestFile.getFileName().toString(), ".tmp");
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                w.write(HEADER + "\t" + absRoot);
+                w.newLine();
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    Entry v = e.getValue();
+                    w.write(v.size() + " " + v.mtimeNanos() + " " + v.id().name() + " " + e.getKey());
+                    w.newLine();
+                }
+            }
+            Files.move(tmp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+            // best-effort: the next run simply re-hashes
+        }
+    }
+}
@@ -12,6 +12,7 @@ public final class Usage {
             "",
             "Commands:",
             "  abort",
+            "  maintain",
             "  pull",
             "  push",
             "  sync",
@@ -66,6 +67,10 @@ public final class Usage {
         return Messages.abortUsage();
     }
 
+    public static String maintain() {
+        return Messages.maintainUsage();
+    }
+
     public static String pull() {
         return Messages.pullUsage();
     }
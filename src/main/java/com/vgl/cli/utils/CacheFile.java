@@ -0,0 +1,163 @@
+package com.vgl.cli.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record file behind the best-effort caches in {@code .git/vgl/}: one record per line,
+ * fields separated by tabs. Backslash, tab, newline and carriage return inside a field are escaped
+ * ({@code \\}, {@code \t}, {@code \n}, {@code \r}), so any path round-trips. Rather than grow without
+ * bound, the file starts over once it is larger than its cap.
+ *
+ * <p>Each line ends with a CRC-32 of the rest of it, and lines that fail the check are skipped, so a
+ * write cut short (crash, full disk) never reads back as a shorter record. A batch is appended in one
+ * write under an exclusive file lock, starting on a fresh line if the file does not end with one.
+ *
+ * <p>New records are queued and written by {@link #flush}, which holds no lock that {@link #append}
+ * needs, so workers filling the cache never wait on the disk.
+ */
+final class CacheFile {
+    private final Path file;
+    private final long maxBytes;
+    private List<String> pending = new ArrayList<>();
+    private final Object writing = new Object();
+
+    /** A file of at most about {@code maxBytes}; a null {@code file} persists nothing (in-memory repositories). */
+    CacheFile(Path file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Hands each record in the file to {@code record}, oldest first. A missing file has none. */
+    void read(Consumer<List<String>> record) throws IOException {
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        // A reader rather than Files.newBufferedReader: bytes cut mid-character decode as U+FFFD and
+        // fail the line's check instead of failing the whole read.
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                int tab = line.lastIndexOf('\t');
+                if (tab < 0 || !line.substring(tab + 1).equals(checksum(line.substring(0, tab)))) {
+                    continue; // partial or damaged line
+                }
+                List<String> fields = new ArrayList<>();
+                for (String field : line.substring(0, tab).split("\t", -1)) {
+                    fields.add(unescape(field));
+                }
+                record.accept(fields);
+            }
+        }
+    }
+
+    /** Queues a record for the next {@link #flush}; returns the number now queued. */
+    synchronized int append(List<String> fields) {
+        StringBuilder line = new StringBuilder();
+        for (String field : fields) {
+            if (line.length() > 0) {
+                line.append('\t');
+            }
+            escape(field, line);
+        }
+        String sum = checksum(line.toString());
+        line.append('\t').append(sum);
+        pending.add(line.toString());
+        return pending.size();
+    }
+
+    /** Writes out the queued records. Best-effort: on any I/O problem they are dropped. */
+    void flush() {
+        List<String> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        if (file == null) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : batch) {
+            text.append(line).append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        synchronized (writing) {
+            try {
+                Files.createDirectories(file.getParent());
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    channel.lock();
+                    long end = channel.size();
+                    if (end > maxBytes) {
+                        channel.truncate(0);
+                        end = 0;
+                    }
+                    ByteBuffer out = ByteBuffer.allocate(bytes.length + 1);
+                    ByteBuffer last = ByteBuffer.allocate(1);
+                    if (end > 0 && channel.read(last, end - 1) == 1 && last.get(0) != '\n') {
+                        out.put((byte) '\n'); // after a cut-short write
+                    }
+                    out.put(bytes).flip();
+                    while (out.hasRemaining()) {
+                        end += channel.write(out, end);
+                    }
+                }
+            } catch (Exception ignored) {
+                // best-effort
+            }
+        }
+    }
+
+    private static String checksum(String line) {
+        CRC32 crc = new CRC32();
+        crc.update(line.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    private static void escape(String field, StringBuilder out) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder out = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\' || i + 1 == field.length()) {
+                out.append(c);
+                continue;
+            }
+            char next = field.charAt(++i);
+            switch (next) {
+                case 't' -> out.append('\t');
+                case 'n' -> out.append('\n');
+                case 'r' -> out.append('\r');
+                default -> out.append(next);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,243 @@
+package com.vgl.cli.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Per-commit change lists (what a commit added, modified, renamed or deleted relative to its first
+ * parent), as shown by {@code log -vv} and the ahead/behind file lists of {@code status -vv}.
+ *
+ * <p>A commit's changes never change, so they are cached in {@code .git/vgl/change-summaries},
+ * keyed by commit id and {@link RenameDetection#settings()}. Browsing the same history again reads
+ * them back instead of diffing trees and pairing renames. New entries are appended in batches;
+ * callers {@link #save} once they are done. Only the most recently used entries, up to a fixed
+ * number of changes, are kept in memory; a commit whose entry was dropped is diffed again.
+ */
+public final class ChangeSummaries {
+    private ChangeSummaries() {}
+
+    private static final String CACHE_FILE = "vgl/change-summaries";
+    private static final long MAX_CACHE_FILE_BYTES = 32L * 1024 * 1024;
+    private static final int SAVE_BATCH = 512;
+    // Changes (summed over commits) held in memory per repository.
+    private static final int MAX_HELD_CHANGES = 1 << 16;
+
+    private static final Map<File, SummaryCache> CACHES = new ConcurrentHashMap<>();
+
+    /** One changed file; paths are as in {@link DiffEntry} ({@link DiffEntry#DEV_NULL} for the missing side). */
+    public record Change(DiffEntry.ChangeType type, String oldPath, String newPath) {}
+
+    /**
+     * Changes between {@code oldTree} (null for a root commit) and {@code newTree}, the trees of
+     * {@code commit}'s first parent and of {@code commit}. Safe to call from several threads, each
+     * with its own reader.
+     */
+    public static List<Change> changes(Repository repo, ObjectReader reader, AnyObjectId commit, ObjectId oldTree, ObjectId newTree)
+            throws IOException {
+        SummaryCache cache = cacheFor(repo);
+        String key = keyOf(commit);
+        List<Change> changes = cache.get(key);
+        if (changes != null) {
+            return changes;
+        }
+
+        List<DiffEntry> entries;
+        try (TreeWalk tw = new TreeWalk(repo, reader)) {
+            tw.setRecursive(true);
+            tw.setFilter(TreeFilter.ANY_DIFF);
+            if (oldTree != null) {
+                tw.addTree(oldTree);
+            } else {
+                tw.addTree(new EmptyTreeIterator());
+            }
+            tw.addTree(newTree);
+            entries = DiffEntry.scan(tw);
+        }
+        changes = new ArrayList<>();
+        for (DiffEntry e : RenameDetection.detect(repo, reader, entries)) {
+            changes.add(new Change(e.getChangeType(), e.getOldPath(), e.getNewPath()));
+        }
+        changes = List.copyOf(changes);
+        cache.put(key, changes);
+        return changes;
+    }
+
+    /**
+     * Like {@link #changes(Repository, ObjectReader, AnyObjectId, ObjectId, ObjectId)}, but parses
+     * {@code commit} and its first parent with {@code walk}, and only on a cache miss.
+     */
+    public static List<Change> changes(Repository repo, RevWalk walk, AnyObjectId commit) throws IOException {
+        List<Change> cached = cacheFor(repo).get(keyOf(commit));
+        if (cached != null) {
+            return cached;
+        }
+        RevCommit c = walk.parseCommit(commit);
+        ObjectId oldTree = null;
+        if (c.getParentCount() > 0) {
+            RevCommit parent = c.getParent(0);
+            walk.parseHeaders(parent);
+            oldTree = parent.getTree();
+        }
+        return changes(repo, walk.getObjectReader(), c, oldTree, c.getTree());
+    }
+
+    /** Writes out entries added since the last save. Best-effort. */
+    public static void save(Repository repo) {
+        cacheFor(repo).save();
+    }
+
+    private static String keyOf(AnyObjectId commit) {
+        return commit.name() + " " + RenameDetection.settings();
+    }
+
+    private static SummaryCache cacheFor(Repository repo) {
+        File gitDir = (repo == null) ? null : repo.getDirectory();
+        if (gitDir == null) {
+            return new SummaryCache(null); // in-memory repository: nothing to persist
+        }
+        return CACHES.computeIfAbsent(gitDir, dir -> new SummaryCache(new File(dir, CACHE_FILE).toPath()));
+    }
+
+    /**
+     * Changes keyed by "{@code <commit> <settings>}", backed by a {@link CacheFile} with one record
+     * per commit: the key, then per change its letter (A, M, D, R, C) directly followed by its path;
+     * renames and copies add a field with the new path. Best-effort: any I/O problem just means
+     * diffing again.
+     *
+     * <p>In memory, entries are kept in least-recently-used order and the oldest are dropped once
+     * they hold more than {@link #MAX_HELD_CHANGES} changes in all. The map's lock is never held
+     * while the file is written.
+     */
+    private static final class SummaryCache {
+        private final CacheFile file;
+        private Map<String, List<Change>> changes;
+        private int held;
+
+        SummaryCache(Path file) {
+            this.file = new CacheFile(file, MAX_CACHE_FILE_BYTES);
+        }
+
+        synchronized List<Change> get(String key) {
+            return loaded().get(key);
+        }
+
+        void put(String key, List<Change> found) {
+            synchronized (this) {
+                if (loaded().containsKey(key)) {
+                    return;
+                }
+                remember(key, found);
+            }
+            List<String> fields = new ArrayList<>();
+            fields.add(key);
+            for (Change c : found) {
+                switch (c.type()) {
+                    case DELETE -> fields.add(letter(c.type()) + c.oldPath());
+                    case RENAME, COPY -> {
+                        fields.add(letter(c.type()) + c.oldPath());
+                        fields.add(c.newPath());
+                    }
+                    default -> fields.add(letter(c.type()) + c.newPath());
+                }
+            }
+            if (file.append(fields) >= SAVE_BATCH) {
+                save();
+            }
+        }
+
+        void save() {
+            file.flush();
+        }
+
+        // Read on first use, so commands that never ask for a summary do not pay for the file.
+        private Map<String, List<Change>> loaded() {
+            if (changes != null) {
+                return changes;
+            }
+            changes = new LinkedHashMap<>(16, 0.75f, true);
+            try {
+                file.read(this::parse);
+            } catch (Exception ignored) {
+                changes.clear();
+                held = 0;
+            }
+            return changes;
+        }
+
+        private void remember(String key, List<Change> found) {
+            List<Change> replaced = changes.put(key, found);
+            held += found.size() - ((replaced == null) ? 0 : replaced.size());
+            Iterator<List<Change>> eldest = changes.values().iterator();
+            while (held > MAX_HELD_CHANGES && changes.size() > 1) {
+                held -= eldest.next().size();
+                eldest.remove();
+            }
+        }
+
+        private void parse(List<String> fields) {
+            int space = fields.get(0).indexOf(' ');
+            if (space < 0 || !ObjectId.isId(fields.get(0).substring(0, space))) {
+                return; // damaged line
+            }
+            List<Change> found = new ArrayList<>();
+            for (int i = 1; i < fields.size(); i++) {
+                String field = fields.get(i);
+                DiffEntry.ChangeType type = field.isEmpty() ? null : typeOf(field.charAt(0));
+                if (type == null) {
+                    return;
+                }
+                String path = field.substring(1);
+                switch (type) {
+                    case ADD -> found.add(new Change(type, DiffEntry.DEV_NULL, path));
+                    case DELETE -> found.add(new Change(type, path, DiffEntry.DEV_NULL));
+                    case RENAME, COPY -> {
+                        if (++i >= fields.size()) {
+                            return;
+                        }
+                        found.add(new Change(type, path, fields.get(i)));
+                    }
+                    default -> found.add(new Change(type, path, path));
+                }
+            }
+            remember(fields.get(0), List.copyOf(found));
+        }
+
+        private static char letter(DiffEntry.ChangeType type) {
+            return switch (type) {
+                case ADD -> 'A';
+                case DELETE -> 'D';
+                case RENAME -> 'R';
+                case COPY -> 'C';
+                default -> 'M';
+            };
+        }
+
+        private static DiffEntry.ChangeType typeOf(char letter) {
+            return switch (letter) {
+                case 'A' -> DiffEntry.ChangeType.ADD;
+                case 'D' -> DiffEntry.ChangeType.DELETE;
+                case 'R' -> DiffEntry.ChangeType.RENAME;
+                case 'C' -> DiffEntry.ChangeType.COPY;
+                case 'M' -> DiffEntry.ChangeType.MODIFY;
+                default -> null;
+            };
+        }
+    }
+}
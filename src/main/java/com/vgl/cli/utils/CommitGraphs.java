@@ -0,0 +1,359 @@
+package com.vgl.cli.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.eclipse.jgit.internal.storage.commitgraph.ChangedPathFilter;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphLoader;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphWriter;
+import org.eclipse.jgit.internal.storage.commitgraph.GraphCommits;
+import org.eclipse.jgit.internal.storage.file.LockFile;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Writes and maintains the repository's commit-graph file ({@code objects/info/commit-graph}).
+ *
+ * <p>With a commit-graph present (and {@code core.commitGraph} enabled), JGit's walks read parents
+ * and commit times from the graph instead of inflating commit objects, and {@link #isAncestor}
+ * prunes by generation number. Only {@code vgl maintain} creates the file; it also sets
+ * {@code core.commitGraph=true} in the repo's config unless the repo sets it explicitly. After that,
+ * commit and pull rewrite the file once {@code -Dvgl.commitGraph.refreshAfter} (default 100)
+ * reachable commits are missing from it. {@code -Dvgl.commitGraph=false} disables the automatic
+ * refresh.
+ *
+ * <p>The graph also stores a changed-path Bloom filter per commit (unless
+ * {@code commitGraph.writeChangedPaths=false}), which lets path-limited walks skip the tree diffs of
+ * commits that cannot have touched the paths; see {@link #changedPathFilter}.
+ */
+public final class CommitGraphs {
+    private CommitGraphs() {}
+
+    private static final int DEFAULT_REFRESH_AFTER = 100;
+
+    public static boolean isAutoRefreshEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty("vgl.commitGraph", "true").trim());
+    }
+
+    /**
+     * Rewrites the commit-graph from every ref and enables reading it. Bloom filters already in the
+     * old graph are carried over, so only commits new since the last write are diffed. Returns the
+     * number of commits written, or -1 when the repo opts out ({@code core.commitGraph=false}), is
+     * not file-based, or another process holds the graph's lock.
+     */
+    public static long write(Repository repo) throws IOException {
+        File graphFile = graphFile(repo);
+        if (graphFile == null || isDisabledByConfig(repo)) {
+            return -1;
+        }
+
+        Set<ObjectId> tips = new HashSet<>();
+        try (RevWalk walk = new RevWalk(repo)) {
+            for (Ref ref : repo.getRefDatabase().getRefs()) {
+                ObjectId id = ref.getObjectId();
+                if (id == null) {
+                    continue;
+                }
+                try {
+                    RevObject peeled = walk.peel(walk.parseAny(id));
+                    if (peeled instanceof RevCommit) {
+                        tips.add(peeled.copy());
+                    }
+                } catch (IOException ignored) {
+                    // dangling or non-commit ref: not part of the graph
+                }
+            }
+        }
+        if (tips.isEmpty()) {
+            return 0;
+        }
+
+        boolean changedPaths = repo.getConfig().getBoolean(
+            ConfigConstants.CONFIG_COMMIT_GRAPH_SECTION, ConfigConstants.CONFIG_KEY_WRITE_CHANGED_PATHS, true);
+        long count = 0;
+        // The writer diffs trees through the walk's reader, so the walk stays open until it is done.
+        try (RevWalk walk = newWalkWithChangedPaths(repo)) {
+            walk.setRetainBody(false);
+            GraphCommits commits = GraphCommits.fromWalk(NullProgressMonitor.INSTANCE, tips, walk);
+            for (RevCommit ignored : commits) {
+                count++;
+            }
+
+            Files.createDirectories(graphFile.getParentFile().toPath());
+            LockFile lock = new LockFile(graphFile);
+            if (!lock.lock()) {
+                return -1;
+            }
+            try {
+                try (OutputStream out = lock.getOutputStream()) {
+                    new CommitGraphWriter(commits, changedPaths).write(NullProgressMonitor.INSTANCE, out);
+                }
+                if (!lock.commit()) {
+                    return -1;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        enableReading(repo);
+        return count;
+    }
+
+    /**
+     * Best-effort refresh after history grew (commit, pull): rewrites an existing graph that the repo
+     * reads ({@code core.commitGraph=true}) once it lags the refs by at least
+     * {@code -Dvgl.commitGraph.refreshAfter} commits. Never creates the graph or changes the repo's
+     * config; that is left to {@code vgl maintain}. Never throws.
+     */
+    public static void refreshIfStale(Repository repo) {
+        if (repo == null || !isAutoRefreshEnabled()) {
+            return;
+        }
+        try {
+            File graphFile = graphFile(repo);
+            if (graphFile == null || !graphFile.isFile() || !isEnabledByConfig(repo)) {
+                return;
+            }
+            int threshold = Math.max(1, Integer.getInteger("vgl.commitGraph.refreshAfter", DEFAULT_REFRESH_AFTER));
+            if (countMissing(repo, threshold) < threshold) {
+                return;
+            }
+            write(repo);
+        } catch (Exception ignored) {
+            // best-effort: walks fall back to parsing commit objects
+        }
+    }
+
+    /**
+     * Whether {@code ancestor} is reachable from {@code descendant}. When the ancestor is in the
+     * commit-graph, the walk runs over graph positions and skips every commit whose generation is not
+     * above the ancestor's (none of those can reach it); otherwise this is {@link RevWalk#isMergedInto}.
+     */
+    public static boolean isAncestor(RevWalk walk, RevCommit ancestor, RevCommit descendant) throws IOException {
+        if (ancestor.equals(descendant)) {
+            return true;
+        }
+        CommitGraph graph = walk.getObjectReader().getCommitGraph().orElse(CommitGraph.EMPTY);
+        int target = graph.findGraphPosition(ancestor);
+        int floor = (target < 0) ? 0 : graph.getCommitData(target).getGeneration();
+        if (floor <= 0) {
+            return walk.isMergedInto(ancestor, descendant);
+        }
+
+        // Commits newer than the graph are parsed until the walk reaches the graph's frontier.
+        BitSet seen = new BitSet();
+        Deque<Integer> inGraph = new ArrayDeque<>();
+        Deque<RevCommit> loose = new ArrayDeque<>();
+        Set<ObjectId> seenLoose = new HashSet<>();
+        loose.push(descendant);
+        while (!loose.isEmpty()) {
+            RevCommit c = loose.pop();
+            int pos = graph.findGraphPosition(c);
+            if (pos >= 0) {
+                if (!seen.get(pos)) {
+                    seen.set(pos);
+                    inGraph.push(pos);
+                }
+                continue;
+            }
+            if (!seenLoose.add(c.copy())) {
+                continue;
+            }
+            walk.parseHeaders(c);
+            for (RevCommit p : c.getParents()) {
+                loose.push(p);
+            }
+        }
+
+        while (!inGraph.isEmpty()) {
+            int pos = inGraph.pop();
+            if (pos == target) {
+                return true;
+            }
+            CommitGraph.CommitData data = graph.getCommitData(pos);
+            if (data.getGeneration() <= floor) {
+                continue;
+            }
+            for (int p : data.getParents()) {
+                if (!seen.get(p)) {
+                    seen.set(p);
+                    inGraph.push(p);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A walk whose commits carry the changed-path Bloom filters stored in the commit-graph. JGit only
+     * loads those when its global {@code commitGraph.readChangedPaths} is set, so the graph file is
+     * read here and handed to the walk through its reader. Falls back to a plain walk when there is
+     * no readable graph or {@code core.commitGraph} is off. Closing the walk closes the reader.
+     */
+    public static RevWalk newWalkWithChangedPaths(Repository repo) throws IOException {
+        ObjectReader base = repo.newObjectReader();
+        Optional<CommitGraph> withFilters = Optional.empty();
+        File graphFile = graphFile(repo);
+        if (graphFile != null && graphFile.isFile() && base.getCommitGraph().isPresent()) {
+            try (InputStream in = Files.newInputStream(graphFile.toPath())) {
+                withFilters = Optional.of(CommitGraphLoader.read(in, true));
+            } catch (IOException ignored) {
+                // replaced or unreadable: the reader's own graph (without filters) still applies
+            }
+        }
+
+        Optional<CommitGraph> graph = withFilters;
+        ObjectReader reader = graph.isEmpty() ? base : new ObjectReader.Filter() {
+            @Override
+            protected ObjectReader delegate() {
+                return base;
+            }
+
+            @Override
+            public Optional<CommitGraph> getCommitGraph() {
+                return graph;
+            }
+        };
+        return new RevWalk(reader) {
+            @Override
+            public void close() {
+                super.close();
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * Rejects single-parent commits whose changed-path Bloom filter rules out every one of
+     * {@code paths} (repo-relative files or directories; the filters record both), so a path-limited
+     * walk can skip their tree diffs. A Bloom filter has no false negatives, so nothing that touched
+     * the paths is lost. Merges, roots, commits without a filter, and every commit when {@code paths}
+     * is empty pass. Filters are only present on walks from {@link #newWalkWithChangedPaths}.
+     */
+    public static RevFilter changedPathFilter(Collection<String> paths) {
+        if (paths == null || paths.isEmpty()) {
+            return RevFilter.ALL;
+        }
+        List<byte[]> keys = new ArrayList<>();
+        for (String p : paths) {
+            keys.add(p.getBytes(StandardCharsets.UTF_8));
+        }
+        return new RevFilter() {
+            @Override
+            public boolean include(RevWalk walker, RevCommit c) {
+                if (c.getParentCount() != 1) {
+                    return true;
+                }
+                ChangedPathFilter filter = c.getChangedPathFilter(walker);
+                if (filter == null) {
+                    return true;
+                }
+                for (byte[] key : keys) {
+                    if (filter.maybeContains(key)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean requiresCommitBody() {
+                return false;
+            }
+
+            @Override
+            public RevFilter clone() {
+                return this;
+            }
+
+            @Override
+            public String toString() {
+                return "CHANGED_PATHS" + paths;
+            }
+        };
+    }
+
+    /** Commits reachable from branches (local and remote-tracking) but absent from the graph, up to {@code cap}. */
+    private static int countMissing(Repository repo, int cap) throws IOException {
+        try (RevWalk walk = new RevWalk(repo)) {
+            walk.setRetainBody(false);
+            CommitGraph graph = walk.getObjectReader().getCommitGraph().orElse(CommitGraph.EMPTY);
+            Deque<RevCommit> pending = new ArrayDeque<>();
+            for (Ref ref : repo.getRefDatabase().getRefsByPrefix("refs/heads/", "refs/remotes/")) {
+                ObjectId id = ref.getObjectId();
+                if (id == null) {
+                    continue;
+                }
+                try {
+                    pending.push(walk.parseCommit(id));
+                } catch (IOException ignored) {
+                    // not a commit
+                }
+            }
+
+            Set<ObjectId> seen = new HashSet<>();
+            int missing = 0;
+            while (!pending.isEmpty() && missing < cap) {
+                RevCommit c = pending.pop();
+                if (graph.findGraphPosition(c) >= 0 || !seen.add(c.copy())) {
+                    continue;
+                }
+                missing++;
+                walk.parseHeaders(c);
+                for (RevCommit p : c.getParents()) {
+                    pending.push(p);
+                }
+            }
+            return missing;
+        }
+    }
+
+    private static File graphFile(Repository repo) {
+        if (!(repo.getObjectDatabase() instanceof ObjectDirectory objects)) {
+            return null;
+        }
+        return new File(new File(objects.getDirectory(), "info"), "commit-graph");
+    }
+
+    private static boolean isDisabledByConfig(Repository repo) {
+        String v = repo.getConfig().getString(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH);
+        return v != null && !repo.getConfig().getBoolean(ConfigConstants.CONFIG_CORE_SECTION, ConfigConstants.CONFIG_COMMIT_GRAPH, false);
+    }
+
+    private static boolean isEnabledByConfig(Repository repo) {
+        return repo.getConfig().getBoolean(ConfigConstants.CONFIG_CORE_SECTION, ConfigConstants.CONFIG_COMMIT_GRAPH, false);
+    }
+
+    private static void enableReading(Repository repo) throws IOException {
+        StoredConfig config = repo.getConfig();
+        if (config.getString(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH) != null) {
+            return;
+        }
+        config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+        config.save();
+    }
+}
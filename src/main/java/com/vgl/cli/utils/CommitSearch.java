@@ -0,0 +1,493 @@
+package com.vgl.cli.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.file.LockFile;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Commit message and author search for {@code log -grep} and {@code log -author}.
+ *
+ * <p>Both match case-insensitively: {@code -grep} anywhere in the full message, {@code -author}
+ * anywhere in "{@code name <email>}". An inverted index of the words in each commit's message and
+ * author identity narrows a search to the commits that contain every word of the query, so only
+ * those commits' bodies are read.
+ *
+ * <p>The index lives in {@code .git/vgl/}: {@code search-commits} numbers the indexed commits (one
+ * fixed-width id per line), {@code search-index} holds the postings, and {@code search-tips} the
+ * tips whose history is indexed. Each search first indexes the commits reachable from its starts
+ * but not from those tips (new commits, usually a handful) on a worker pool and appends them. When
+ * every old tip is an ancestor of the starts, the starts become the tips and the index covers
+ * exactly their history, so {@link #newestFirst} can list the matches without walking history at
+ * all; otherwise {@link #filter} narrows a walk.
+ *
+ * <p>Updating and reading the index happen under {@code search-index.lock}. A search that finds
+ * another process holding it reads every commit instead of waiting.
+ */
+public final class CommitSearch {
+    private static final String COMMITS_FILE = "vgl/search-commits";
+    private static final String INDEX_FILE = "vgl/search-index";
+    private static final String TIPS_FILE = "vgl/search-tips";
+    private static final long MAX_INDEX_FILE_BYTES = 128L * 1024 * 1024;
+    private static final int ID_LINE = Constants.OBJECT_ID_STRING_LENGTH + 1;
+    // Index format, recorded in the tips file; an index in another format is rebuilt.
+    private static final String FORMAT = "2";
+    // A lock this old was left by a process that died while updating.
+    private static final long STALE_LOCK_MS = 10L * 60 * 1000;
+
+    private final String text;
+    private final String name;
+    private final Map<ObjectId, Integer> candidates; // with their index numbers; null: read every commit
+    private final boolean exact;
+    private final long indexed;
+
+    private CommitSearch(String text, String name, Map<ObjectId, Integer> candidates, boolean exact, long indexed) {
+        this.text = text;
+        this.name = name;
+        this.candidates = candidates;
+        this.exact = exact;
+        this.indexed = indexed;
+    }
+
+    /**
+     * Searches the history of {@code starts} for commits whose message contains {@code grep} and
+     * whose author contains {@code author} (either may be null), bringing the index up to date first.
+     * Index trouble is not an error: the search then reads every commit.
+     */
+    public static CommitSearch open(Repository repo, Collection<? extends ObjectId> starts, String grep, String author) {
+        String text = (grep == null) ? null : grep.toLowerCase(Locale.ROOT);
+        String name = (author == null) ? null : author.toLowerCase(Locale.ROOT);
+        File gitDir = repo.getDirectory();
+        if (gitDir == null) {
+            return new CommitSearch(text, name, null, false, 0); // in-memory repository: nothing to persist
+        }
+        Path commitsFile = new File(gitDir, COMMITS_FILE).toPath();
+        Path indexFile = new File(gitDir, INDEX_FILE).toPath();
+        Path tipsFile = new File(gitDir, TIPS_FILE).toPath();
+        try {
+            Files.createDirectories(indexFile.getParent());
+            LockFile lock = new LockFile(indexFile.toFile());
+            if (!lock(lock, indexFile)) {
+                return new CommitSearch(text, name, null, false, 0);
+            }
+            try {
+                boolean exact = update(repo, commitsFile, indexFile, tipsFile, starts);
+                Map<ObjectId, Integer> candidates = candidates(commitsFile, indexFile, text, name);
+                long indexed = Files.isRegularFile(commitsFile) ? Files.size(commitsFile) / ID_LINE : 0;
+                return new CommitSearch(text, name, candidates, exact && candidates != null, indexed);
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            return new CommitSearch(text, name, null, false, 0);
+        }
+    }
+
+    /** Takes the index lock, first clearing one left behind by a process that died holding it. */
+    private static boolean lock(LockFile lock, Path indexFile) throws IOException {
+        if (lock.lock()) {
+            return true;
+        }
+        Path stale = indexFile.resolveSibling(indexFile.getFileName() + ".lock");
+        try {
+            if (System.currentTimeMillis() - Files.getLastModifiedTime(stale).toMillis() < STALE_LOCK_MS) {
+                return false;
+            }
+            Files.deleteIfExists(stale);
+        } catch (NoSuchFileException e) {
+            // released meanwhile
+        }
+        return lock.lock();
+    }
+
+    /** Keeps index candidates whose message and author really contain the query. */
+    public RevFilter filter() {
+        return new Matches();
+    }
+
+    /**
+     * The index's candidates in the starts' history, newest first (by commit time, then in walk
+     * order), with their headers parsed by {@code walk}; null when the index does not cover exactly
+     * that history, or when a walk would find the first {@code limit} matches sooner (for a common
+     * word, walking to the first few matches beats ordering all of them). Callers still apply
+     * {@link #filter} to each.
+     */
+    public List<RevCommit> newestFirst(RevWalk walk, int limit) throws IOException {
+        // With n of N commits matching, a walk reads about limit * N / n commits to find limit.
+        long n = (candidates == null) ? 0 : candidates.size();
+        if (!exact || n * n > (long) limit * indexed) {
+            return null;
+        }
+        List<RevCommit> found = new ArrayList<>(candidates.size());
+        for (ObjectId id : candidates.keySet()) {
+            RevCommit c = walk.lookupCommit(id);
+            walk.parseHeaders(c);
+            found.add(c);
+        }
+        found.sort(Comparator.comparingInt(RevCommit::getCommitTime).reversed().thenComparing(candidates::get));
+        return found;
+    }
+
+    private final class Matches extends RevFilter {
+        @Override
+        public boolean include(RevWalk walker, RevCommit c) throws IOException {
+            if (candidates != null && !candidates.containsKey(c)) {
+                return false;
+            }
+            walker.parseBody(c);
+            boolean match = (text == null || c.getFullMessage().toLowerCase(Locale.ROOT).contains(text))
+                && (name == null || identity(c).toLowerCase(Locale.ROOT).contains(name));
+            if (!match) {
+                c.disposeBody();
+            }
+            return match;
+        }
+
+        @Override
+        public boolean requiresCommitBody() {
+            return false;
+        }
+
+        @Override
+        public RevFilter clone() {
+            return this;
+        }
+    }
+
+    /** Lowercased words (runs of letters and digits), whole however long they are. */
+    private static Set<String> tokens(String s) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (s == null) {
+            return tokens;
+        }
+        String lower = s.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String identity(RevCommit c) {
+        PersonIdent who = c.getAuthorIdent();
+        return (who == null) ? "" : who.getName() + " <" + who.getEmailAddress() + ">";
+    }
+
+    /** Indexed tips, whether the index holds nothing but their history, and whether it is in the current format. */
+    private record Tips(Set<ObjectId> ids, boolean clean, boolean current) {}
+
+    /**
+     * Indexes the commits reachable from {@code starts} but not from the indexed tips and records
+     * the new tips. Returns whether the index now covers exactly the history of {@code starts}.
+     */
+    private static boolean update(Repository repo, Path commitsFile, Path indexFile, Path tipsFile, Collection<? extends ObjectId> starts)
+            throws IOException {
+        Tips old = readTips(tipsFile);
+        long commitsSize = Files.isRegularFile(commitsFile) ? Files.size(commitsFile) : 0;
+        long indexSize = Files.isRegularFile(indexFile) ? Files.size(indexFile) : 0;
+        if (commitsSize % ID_LINE != 0 || indexSize > MAX_INDEX_FILE_BYTES || !old.current()) {
+            // Damaged, too large or in an older format: start over.
+            Files.deleteIfExists(commitsFile);
+            Files.deleteIfExists(indexFile);
+            Files.deleteIfExists(tipsFile);
+            commitsSize = 0;
+            old = new Tips(Set.of(), true, true);
+        }
+
+        boolean clean = old.clean();
+        Set<ObjectId> startIds = new LinkedHashSet<>();
+        List<ObjectId> tail = new ArrayList<>();
+        boolean fastForward = true;
+        try (RevWalk walk = new RevWalk(repo); RevWalk ancestry = new RevWalk(repo)) {
+            walk.setRetainBody(false);
+            List<RevCommit> startCommits = new ArrayList<>();
+            for (ObjectId id : starts) {
+                RevCommit start = walk.parseCommit(id);
+                walk.markStart(start);
+                startIds.add(start.copy());
+                startCommits.add(ancestry.parseCommit(id));
+            }
+            for (ObjectId tip : old.ids()) {
+                RevCommit t;
+                try {
+                    t = walk.parseCommit(tip);
+                } catch (MissingObjectException e) {
+                    clean = false; // history was rewritten and pruned: its commits stay in the index
+                    continue;
+                }
+                walk.markUninteresting(t);
+                if (fastForward && !startIds.contains(tip)) {
+                    fastForward = reachableFromAny(ancestry, ancestry.parseCommit(tip), startCommits);
+                }
+            }
+            for (RevCommit c = walk.next(); c != null; c = walk.next()) {
+                tail.add(c.copy());
+            }
+        }
+
+        // Starts that contain every old tip replace them; otherwise both are kept.
+        Set<ObjectId> tips = new LinkedHashSet<>(startIds);
+        if (!fastForward) {
+            tips.addAll(old.ids());
+        }
+        if (tail.isEmpty() && tips.equals(old.ids()) && clean == old.clean()) {
+            return clean && fastForward;
+        }
+
+        List<String> ids = new ArrayList<>(tail.size());
+        for (ObjectId id : tail) {
+            ids.add(id.name());
+        }
+        List<String> tipLines = new ArrayList<>();
+        tipLines.add(FORMAT + " " + (clean ? "clean" : "mixed"));
+        for (ObjectId tip : tips) {
+            tipLines.add(tip.name());
+        }
+        // Tips go last: if writing stops halfway, the tail is indexed again next time.
+        Files.write(commitsFile, lines(ids, StandardCharsets.US_ASCII), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Files.write(indexFile, lines(postingLines(repo, tail, (int) (commitsSize / ID_LINE)), StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Files.write(tipsFile, lines(tipLines, StandardCharsets.US_ASCII));
+        return clean && fastForward;
+    }
+
+    // Always '\n', whatever the platform's line separator: commit records are read at fixed offsets.
+    private static byte[] lines(List<String> lines, Charset charset) {
+        StringBuilder out = new StringBuilder();
+        for (String line : lines) {
+            out.append(line).append('\n');
+        }
+        return out.toString().getBytes(charset);
+    }
+
+    private static boolean reachableFromAny(RevWalk walk, RevCommit tip, List<RevCommit> starts) throws IOException {
+        for (RevCommit start : starts) {
+            if (CommitGraphs.isAncestor(walk, tip, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Index lines for {@code tail}, numbered from {@code base}: one per word, "{@code m<word>}" for
+     * messages and "{@code a<word>}" for authors, then a tab and the commit numbers, ascending, as
+     * comma-separated base-36 gaps. Bodies are read on a worker pool, each worker with its own reader.
+     */
+    private static List<String> postingLines(Repository repo, List<ObjectId> tail, int base) throws IOException {
+        int threads = Math.max(1, Integer.getInteger("vgl.log.threads", Runtime.getRuntime().availableProcessors()));
+        int chunk = Math.max(256, (tail.size() + threads - 1) / threads);
+        List<Future<List<Set<String>>>> parts = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int from = 0; from < tail.size(); from += chunk) {
+                List<ObjectId> slice = tail.subList(from, Math.min(tail.size(), from + chunk));
+                parts.add(pool.submit(() -> {
+                    List<Set<String>> words = new ArrayList<>(slice.size());
+                    try (ObjectReader reader = repo.newObjectReader(); RevWalk walk = new RevWalk(reader)) {
+                        for (ObjectId id : slice) {
+                            RevCommit c = walk.parseCommit(id);
+                            Set<String> w = new HashSet<>();
+                            for (String t : tokens(c.getFullMessage())) {
+                                w.add("m" + t);
+                            }
+                            for (String t : tokens(identity(c))) {
+                                w.add("a" + t);
+                            }
+                            words.add(w);
+                            c.disposeBody();
+                        }
+                    }
+                    return words;
+                }));
+            }
+
+            Map<String, StringBuilder> lines = new TreeMap<>();
+            Map<String, Integer> last = new HashMap<>();
+            int ord = base;
+            for (Future<List<Set<String>>> part : parts) {
+                for (Set<String> words : part.get()) {
+                    for (String w : words) {
+                        StringBuilder line = lines.get(w);
+                        Integer prev = last.put(w, ord);
+                        if (line == null) {
+                            lines.put(w, new StringBuilder(w).append('\t').append(Integer.toString(ord, 36)));
+                        } else {
+                            line.append(',').append(Integer.toString(ord - prev, 36));
+                        }
+                    }
+                    ord++;
+                }
+            }
+            List<String> out = new ArrayList<>(lines.size());
+            for (StringBuilder line : lines.values()) {
+                out.add(line.toString());
+            }
+            return out;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof IOException io) ? io : new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** The recorded tips: the format and "clean" or "mixed" on one line, then one id per line. */
+    private static Tips readTips(Path tipsFile) throws IOException {
+        Set<ObjectId> ids = new LinkedHashSet<>();
+        if (!Files.isRegularFile(tipsFile)) {
+            return new Tips(ids, true, true);
+        }
+        List<String> lines = Files.readAllLines(tipsFile, StandardCharsets.US_ASCII);
+        for (String line : lines) {
+            if (ObjectId.isId(line)) {
+                ids.add(ObjectId.fromString(line));
+            }
+        }
+        String header = lines.isEmpty() ? "" : lines.get(0);
+        return new Tips(ids, header.equals(FORMAT + " clean"), header.startsWith(FORMAT + " "));
+    }
+
+    /**
+     * Commits containing every query word (as part of one of their words), with their index numbers,
+     * or null when the query has no words to look up. Each index line is checked by its word alone;
+     * only matching lines' numbers are decoded.
+     */
+    private static Map<ObjectId, Integer> candidates(Path commitsFile, Path indexFile, String text, String name) throws IOException {
+        List<String> wanted = new ArrayList<>();
+        for (String t : tokens(text)) {
+            wanted.add("m" + t);
+        }
+        for (String t : tokens(name)) {
+            wanted.add("a" + t);
+        }
+        if (wanted.isEmpty()) {
+            return null;
+        }
+
+        List<BitSet> hits = new ArrayList<>();
+        for (int i = 0; i < wanted.size(); i++) {
+            hits.add(new BitSet());
+        }
+        // Scanned as bytes: only the lines whose word matches are decoded.
+        byte[] index = Files.isRegularFile(indexFile) ? Files.readAllBytes(indexFile) : new byte[0];
+        List<byte[]> needles = new ArrayList<>();
+        for (String w : wanted) {
+            needles.add(w.getBytes(StandardCharsets.UTF_8));
+        }
+        for (int start = 0, end; start < index.length; start = end + 1) {
+            end = indexOf(index, (byte) '\n', start, index.length);
+            int tab = indexOf(index, (byte) '\t', start, end);
+            if (tab <= start) {
+                continue;
+            }
+            for (int i = 0; i < needles.size(); i++) {
+                byte[] w = needles.get(i);
+                if (index[start] == w[0] && contains(index, start + 1, tab, w)) {
+                    decode(index, tab + 1, end, hits.get(i));
+                }
+            }
+        }
+
+        BitSet common = hits.get(0);
+        for (BitSet h : hits.subList(1, hits.size())) {
+            common.and(h);
+        }
+        Map<ObjectId, Integer> found = new HashMap<>();
+        if (common.isEmpty()) {
+            return found;
+        }
+        byte[] ids = Files.readAllBytes(commitsFile);
+        for (int ord = common.nextSetBit(0); ord >= 0; ord = common.nextSetBit(ord + 1)) {
+            long at = (long) ord * ID_LINE;
+            if (at + ID_LINE <= ids.length) {
+                found.put(ObjectId.fromString(ids, (int) at), ord);
+            }
+        }
+        return found;
+    }
+
+    /** Position of {@code b} in {@code buf[from, to)}, or {@code to}. */
+    private static int indexOf(byte[] buf, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /** Whether {@code buf[from, to)} contains {@code word} without its field letter. */
+    private static boolean contains(byte[] buf, int from, int to, byte[] word) {
+        int len = word.length - 1;
+        for (int i = from; i + len <= to; i++) {
+            int j = 0;
+            while (j < len && buf[i + j] == word[j + 1]) {
+                j++;
+            }
+            if (j == len) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Sets the commit numbers in {@code buf[from, to)}: base-36 gaps separated by commas. */
+    private static void decode(byte[] buf, int from, int to, BitSet into) {
+        int ord = 0;
+        int n = 0;
+        boolean first = true;
+        for (int i = from; i <= to; i++) {
+            if (i == to || buf[i] == ',') {
+                ord = first ? n : ord + n;
+                into.set(ord);
+                first = false;
+                n = 0;
+                continue;
+            }
+            int digit = Character.digit(buf[i], 36);
+            if (digit < 0) {
+                return; // damaged line
+            }
+            n = n * 36 + digit;
+        }
+    }
+}
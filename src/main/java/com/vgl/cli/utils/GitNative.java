@@ -102,6 +102,53 @@ public final class GitNative {
         }
     }
 
+    /**
+     * Fetches only the tip commit of each refspec from a URL into {@code gitDir} (a bare repo),
+     * without tags and without writing a working tree.
+     */
+    public static void fetchTips(Path gitDir, String remoteUrl, List<String> refSpecs) throws IOException {
+        if (gitDir == null) {
+            throw new IllegalArgumentException("gitDir is null");
+        }
+        if (remoteUrl == null || remoteUrl.isBlank()) {
+            throw new IllegalArgumentException("remoteUrl is blank");
+        }
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add("git");
+        cmd.add("fetch");
+        cmd.add("--quiet");
+        cmd.add("--no-tags");
+        cmd.add("--depth");
+        cmd.add("1");
+        cmd.add(remoteUrl);
+        cmd.addAll(refSpecs);
+
+        ExecResult r = exec(cmd, gitDir);
+        if (r.exitCode != 0) {
+            throw new IOException(failureMessage("git fetch", r));
+        }
+    }
+
+    /**
+     * Brings a bare mirror at {@code gitDir} up to date with every branch of {@code remoteUrl}
+     * (full history, no tags); branches deleted upstream are pruned.
+     */
+    public static void fetchMirror(Path gitDir, String remoteUrl) throws IOException {
+        if (gitDir == null) {
+            throw new IllegalArgumentException("gitDir is null");
+        }
+        if (remoteUrl == null || remoteUrl.isBlank()) {
+            throw new IllegalArgumentException("remoteUrl is blank");
+        }
+
+        List<String> cmd = List.of("git", "fetch", "--quiet", "--prune", "--no-tags", remoteUrl, "+refs/heads/*:refs/heads/*");
+        ExecResult r = exec(cmd, gitDir);
+        if (r.exitCode != 0) {
+            throw new IOException(failureMessage("git fetch", r));
+        }
+    }
+
     /**
      * Pushes a refspec (localBranch -> remoteBranch).
      */
@@ -106,6 +106,17 @@ public final class GitRemoteOps {
      * @return true if cloned successfully, false if auth is required (and was already reported).
      */
     public static boolean cloneInto(Path targetDir, String remoteUrl, String branch, PrintStream err) throws Exception {
+        if (MirrorCache.appliesTo(remoteUrl)) {
+            try (MirrorCache.Lease mirror = MirrorCache.acquire(remoteUrl, err)) {
+                if (mirror == null) {
+                    return false;
+                }
+                cloneFromMirror(targetDir, mirror.gitDir(), remoteUrl, branch);
+                MirrorCache.evict();
+                return true;
+            }
+        }
+
         boolean hasEnvCreds = GitAuth.credentialsProviderFromEnvOrNull() != null;
 
         if (!hasEnvCreds && GitNative.isGitAvailable()) {
@@ -135,6 +146,114 @@ public final class GitRemoteOps {
         }
     }
 
+    /**
+     * Clone from an up-to-date local mirror, then point origin back at {@code remoteUrl}. The local
+     * clone hardlinks (native git) or copies the mirror's objects, so the result stays valid if the
+     * mirror is later evicted.
+     */
+    private static void cloneFromMirror(Path targetDir, Path mirrorDir, String remoteUrl, String branch) throws Exception {
+        String mirrorUri = mirrorDir.toAbsolutePath().toString();
+        if (GitNative.isGitAvailable()) {
+            GitNative.cloneIntoCurrentDir(targetDir, mirrorUri, branch);
+        } else {
+            Git.cloneRepository()
+                .setURI(mirrorUri)
+                .setDirectory(targetDir.toFile())
+                .setBranch("refs/heads/" + ((branch == null || branch.isBlank()) ? "main" : branch))
+                .call()
+                .close();
+        }
+        try (Git git = Git.open(targetDir.toFile())) {
+            StoredConfig cfg = git.getRepository().getConfig();
+            cfg.setString("remote", "origin", "url", remoteUrl);
+            cfg.save();
+        }
+    }
+
+    /**
+     * Fetch every branch of {@code remoteUrl} into the bare mirror at {@code gitDir}.
+     *
+     * @return true if fetched, false if auth is required (and was already reported).
+     */
+    public static boolean fetchMirrorInto(Path gitDir, String remoteUrl, PrintStream err) throws Exception {
+        boolean hasEnvCreds = GitAuth.credentialsProviderFromEnvOrNull() != null;
+
+        if (!hasEnvCreds && GitNative.isGitAvailable()) {
+            try {
+                GitNative.fetchMirror(gitDir, remoteUrl);
+                return true;
+            } catch (Exception e) {
+                if (GitAuth.handleNativeAuthFailure(e, remoteUrl, err)) {
+                    return false;
+                }
+                throw e;
+            }
+        }
+
+        try (Git git = Git.open(gitDir.toFile())) {
+            GitAuth.applyCredentialsIfPresent(git.fetch()
+                .setRemote(remoteUrl)
+                .setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*"))
+                .setRemoveDeletedRefs(true)
+                .setTagOpt(org.eclipse.jgit.transport.TagOpt.NO_TAGS))
+                .call();
+            return true;
+        } catch (Exception e) {
+            if (GitAuth.handleMissingCredentialsProvider(e, remoteUrl, err)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fetch the tip commits of {@code branches} from {@code remoteUrl} into the bare repo at
+     * {@code gitDir}, storing each under {@code refPrefix + index}. Nothing is checked out.
+     *
+     * @return true if fetched, false if auth is required (and was already reported).
+     */
+    public static boolean fetchTipsInto(Path gitDir, String remoteUrl, java.util.List<String> branches, String refPrefix, PrintStream err)
+        throws Exception {
+        java.util.List<String> specs = new java.util.ArrayList<>();
+        for (int i = 0; i < branches.size(); i++) {
+            String b = (branches.get(i) == null || branches.get(i).isBlank()) ? "main" : branches.get(i);
+            specs.add("+refs/heads/" + b + ":" + refPrefix + i);
+        }
+
+        boolean hasEnvCreds = GitAuth.credentialsProviderFromEnvOrNull() != null;
+
+        if (!hasEnvCreds && GitNative.isGitAvailable()) {
+            try {
+                GitNative.fetchTips(gitDir, remoteUrl, specs);
+                return true;
+            } catch (Exception e) {
+                if (GitAuth.handleNativeAuthFailure(e, remoteUrl, err)) {
+                    return false;
+                }
+                throw e;
+            }
+        }
+
+        try (Git git = Git.open(gitDir.toFile())) {
+            java.util.List<RefSpec> refSpecs = new java.util.ArrayList<>();
+            for (String s : specs) {
+                refSpecs.add(new RefSpec(s));
+            }
+            GitAuth.applyCredentialsIfPresent(git.fetch()
+                .setRemote(remoteUrl)
+                .setRefSpecs(refSpecs)
+                .setTagOpt(org.eclipse.jgit.transport.TagOpt.NO_TAGS)
+                .setDepth(1))
+                .call();
+            return true;
+        } catch (Exception e) {
+            if (GitAuth.handleMissingCredentialsProvider(e, remoteUrl, err)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
     /**
      * Push localBranch -> remoteBranch.
      *
@@ -2,11 +2,10 @@ package com.vgl.cli.utils;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import org.eclipse.jgit.api.Git;
@@ -129,32 +128,37 @@ public final class GitUtils {
         if (repoRoot == null) {
             return out;
         }
+        out.addAll(WorkspaceWalker.at(repoRoot).stopAtNestedRepos(true).walk().nestedRepos());
+        return out;
+    }
 
+    /**
+     * Like {@link #listNestedRepos}, but only checks the directories leading to {@code repoRelativePaths},
+     * so the cost scales with the given paths rather than with the whole workspace.
+     */
+    public static Set<String> listNestedReposAlong(Path repoRoot, Collection<String> repoRelativePaths) {
+        Set<String> out = new LinkedHashSet<>();
+        if (repoRoot == null || repoRelativePaths == null) {
+            return out;
+        }
         Path normalizedRoot = repoRoot.toAbsolutePath().normalize();
-        Files.walkFileTree(normalizedRoot, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                if (dir.equals(normalizedRoot)) {
-                    return FileVisitResult.CONTINUE;
+        Set<String> checked = new HashSet<>();
+        for (String p : repoRelativePaths) {
+            if (p == null || p.isBlank()) {
+                continue;
+            }
+            String norm = p.replace('\\', '/');
+            for (int slash = norm.indexOf('/'); slash > 0; slash = norm.indexOf('/', slash + 1)) {
+                String dir = norm.substring(0, slash);
+                if (!checked.add(dir)) {
+                    continue;
                 }
-
-                Path gitDir = dir.resolve(".git");
-                if (Files.isDirectory(gitDir)) {
-                    Path rel = normalizedRoot.relativize(dir);
-                    String relStr = rel.toString().replace('\\', '/');
-                    out.add(relStr);
-                    return FileVisitResult.SKIP_SUBTREE;
+                if (Files.isDirectory(normalizedRoot.resolve(dir).resolve(".git"))) {
+                    out.add(dir);
+                    break;
                 }
-
-                return FileVisitResult.CONTINUE;
             }
-
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                return FileVisitResult.CONTINUE;
-            }
-        });
-
+        }
         return out;
     }
 
@@ -0,0 +1,98 @@
+package com.vgl.cli.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A list of CLI globs compiled once for repeated matching; same semantics as
+ * {@link GlobUtils#matchesAny}.
+ *
+ * <p>Literal globs become hash lookups: a literal path matches itself and anything under it, and a
+ * bare name also matches that basename anywhere. All wildcard globs share one compiled
+ * {@link Pattern}, so matching a path costs a few set probes plus at most one regex match,
+ * instead of a regex compile per (path, glob) pair.
+ */
+public final class GlobSet {
+    private static final GlobSet NONE = new GlobSet(List.of(), false, Set.of(), Set.of(), null);
+
+    private final List<String> source;
+    private final boolean matchesAll;
+    private final Set<String> pathsAndDirs;
+    private final Set<String> basenames;
+    private final Pattern wildcards;
+
+    private GlobSet(List<String> source, boolean matchesAll, Set<String> pathsAndDirs, Set<String> basenames, Pattern wildcards) {
+        this.source = source;
+        this.matchesAll = matchesAll;
+        this.pathsAndDirs = pathsAndDirs;
+        this.basenames = basenames;
+        this.wildcards = wildcards;
+    }
+
+    public static GlobSet compile(List<String> globs) {
+        if (globs == null || globs.isEmpty()) {
+            return NONE;
+        }
+        boolean all = false;
+        Set<String> paths = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        List<String> regexes = new ArrayList<>();
+        for (String g : globs) {
+            if (g == null || g.isBlank()) {
+                continue;
+            }
+            String trimmed = g.trim();
+            if (trimmed.equals("*") || trimmed.equals(".")) {
+                all = true;
+                break;
+            }
+            if (!GlobUtils.hasWildcard(trimmed)) {
+                String lit = trimmed.replace('\\', '/');
+                paths.add(lit);
+                if (!lit.contains("/")) {
+                    names.add(lit);
+                }
+                continue;
+            }
+            regexes.add("(?:" + GlobUtils.globToRegex(trimmed) + ")");
+        }
+        Pattern combined = (all || regexes.isEmpty()) ? null : Pattern.compile(String.join("|", regexes));
+        return new GlobSet(List.copyOf(globs), all, paths, names, combined);
+    }
+
+    /** The globs this set was compiled from. */
+    public List<String> globs() {
+        return source;
+    }
+
+    /** True when the set matches every path ({@code *} or {@code .}). */
+    public boolean matchesAll() {
+        return matchesAll;
+    }
+
+    /** Returns true if {@code repoRelativePath} matches any glob in the set. */
+    public boolean matches(String repoRelativePath) {
+        if (repoRelativePath == null || repoRelativePath.isBlank()) {
+            return false;
+        }
+        if (matchesAll) {
+            return true;
+        }
+        String p = repoRelativePath.replace('\\', '/');
+        if (!pathsAndDirs.isEmpty()) {
+            // The path itself or any leading directory of it.
+            for (int i = p.length(); i > 0; i = p.lastIndexOf('/', i - 1)) {
+                if (pathsAndDirs.contains(p.substring(0, i))) {
+                    return true;
+                }
+            }
+        }
+        if (!basenames.isEmpty() && basenames.contains(p.substring(p.lastIndexOf('/') + 1))) {
+            return true;
+        }
+        return wildcards != null && wildcards.matcher(p).matches();
+    }
+}
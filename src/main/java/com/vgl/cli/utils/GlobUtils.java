@@ -1,66 +1,140 @@
 package com.vgl.cli.utils;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 public final class GlobUtils {
     private GlobUtils() {}
 
-    /** Returns true if {@code repoRelativePath} matches any of {@code globs}. */
+    // Most callers pass the same glob list for every path of a command; keep the last compiled set.
+    private static volatile GlobSet lastCompiled = GlobSet.compile(List.of());
+
+    /**
+     * Returns true if {@code repoRelativePath} matches any of {@code globs}. Loops over many paths
+     * should compile a {@link GlobSet} once instead.
+     */
     public static boolean matchesAny(String repoRelativePath, List<String> globs) {
-        if (repoRelativePath == null || repoRelativePath.isBlank()) {
-            return false;
-        }
         if (globs == null || globs.isEmpty()) {
             return false;
         }
+        GlobSet set = lastCompiled;
+        if (!set.globs().equals(globs)) {
+            set = GlobSet.compile(globs);
+            lastCompiled = set;
+        }
+        return set.matches(repoRelativePath);
+    }
 
-        String p = repoRelativePath.replace('\\', '/');
+    /**
+     * Translates {@code globs} into a JGit {@link TreeFilter} so tree walks can prune subtrees that
+     * no glob can reach. Files are still matched with {@link #matchesAny}; directories are entered
+     * only when they lie on, or under, a glob's literal leading path. Globs whose first segment is a
+     * wildcard, or bare names (which match a basename anywhere), keep every directory in play.
+     */
+    public static TreeFilter toTreeFilter(List<String> globs) {
+        if (globs == null || globs.isEmpty()) {
+            return TreeFilter.ALL;
+        }
+        List<String> cleaned = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
         for (String g : globs) {
             if (g == null || g.isBlank()) {
                 continue;
             }
-            String trimmed = g.trim();
+            String trimmed = g.trim().replace('\\', '/');
             if (trimmed.equals("*") || trimmed.equals(".")) {
-                return true;
+                return TreeFilter.ALL;
             }
+            cleaned.add(trimmed);
+            prefixes.add(literalDirPrefix(trimmed));
+        }
+        if (cleaned.isEmpty()) {
+            return TreeFilter.ALL;
+        }
+        return new GlobTreeFilter(GlobSet.compile(cleaned), prefixes);
+    }
 
-            // Match literal paths and literal directories.
-            if (!hasWildcard(trimmed)) {
-                String lit = trimmed.replace('\\', '/');
-                // Convenience: a bare filename (no path separators) matches any file with that basename.
-                if (!lit.contains("/")) {
-                    if (p.equals(lit) || p.endsWith("/" + lit)) {
-                        return true;
-                    }
-                }
-                if (p.equals(lit) || p.startsWith(lit + "/")) {
+    /** Leading directory path a glob is confined to, or null when it can match anywhere. */
+    public static String literalDirPrefix(String glob) {
+        if (!hasWildcard(glob)) {
+            // Bare names match by basename anywhere; "a/b" matches itself or anything under it.
+            return glob.contains("/") ? stripTrailingSlash(glob) : null;
+        }
+        int star = glob.indexOf('*');
+        int q = glob.indexOf('?');
+        int firstWild = (star < 0) ? q : (q < 0 ? star : Math.min(star, q));
+        int lastSep = glob.lastIndexOf('/', firstWild);
+        return (lastSep <= 0) ? null : glob.substring(0, lastSep);
+    }
+
+    private static String stripTrailingSlash(String s) {
+        return s.endsWith("/") ? s.substring(0, s.length() - 1) : s;
+    }
+
+    private static final class GlobTreeFilter extends TreeFilter {
+        private final GlobSet globs;
+        private final List<String> prefixes;
+
+        GlobTreeFilter(GlobSet globs, List<String> prefixes) {
+            this.globs = globs;
+            this.prefixes = prefixes;
+        }
+
+        @Override
+        public boolean include(TreeWalk walk) {
+            String path = walk.getPathString();
+            if (!walk.isSubtree()) {
+                return globs.matches(path);
+            }
+            for (String prefix : prefixes) {
+                if (prefix == null
+                    || prefix.equals(path)
+                    || prefix.startsWith(path + "/")
+                    || path.startsWith(prefix + "/")) {
                     return true;
                 }
             }
+            return false;
+        }
 
-            String regex = globToRegex(trimmed);
-            if (p.matches(regex)) {
-                return true;
-            }
+        @Override
+        public boolean shouldBeRecursive() {
+            return true;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "GlobTreeFilter" + globs.globs();
         }
-        return false;
     }
 
     /**
      * Expands glob-ish patterns into repo-root-relative file paths (with '/' separators).
      * Expansion is bounded to {@code repoRoot}, honors ignore rules when possible, and excludes nested git repositories.
+     *
+     * <p>Only the subtrees a pattern can reach are listed: each pattern's literal leading directory
+     * is derived up front, and a single traversal descends only into directories on or under one of
+     * those prefixes, skipping ignored directories and stopping at nested repositories. Patterns
+     * that can match anywhere (bare names, a leading wildcard, {@code *}) still walk the whole tree.
      */
     public static List<String> expandGlobsToFiles(List<String> globs, Path repoRoot) throws IOException {
         if (repoRoot == null) {
@@ -97,82 +171,26 @@ public final class GlobUtils {
         }
 
         Path root = repoRoot.toAbsolutePath().normalize();
-        Set<String> nested = GitUtils.listNestedRepos(root);
+        List<String> prefixes = new ArrayList<>();
+        for (String pattern : patterns) {
+            prefixes.add(walkPrefix(pattern.replace('\\', '/')));
+        }
 
         // Prefer JGit working-tree iteration so we honor ignore rules. If that fails,
         // fall back to a filesystem walk.
         Set<String> candidates = null;
         try (Git git = GitUtils.openGit(root)) {
-            Repository repo = git.getRepository();
-            candidates = GitUtils.listNonIgnoredFiles(root, repo);
+            candidates = listFilesUnderPrefixes(git.getRepository(), prefixes);
         } catch (Exception ignored) {
             candidates = null;
         }
         if (candidates == null) {
-            final Set<String> fsCandidates = new LinkedHashSet<>();
-            Files.walkFileTree(root, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                    if (dir.equals(root)) {
-                        return FileVisitResult.CONTINUE;
-                    }
-                    Path rel = root.relativize(dir);
-                    String relStr = rel.toString().replace('\\', '/');
-                    if (".git".equals(relStr) || relStr.endsWith("/.git")) {
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
-                    for (String n : nested) {
-                        if (relStr.equals(n) || relStr.startsWith(n + "/")) {
-                            return FileVisitResult.SKIP_SUBTREE;
-                        }
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    if (!attrs.isRegularFile()) {
-                        return FileVisitResult.CONTINUE;
-                    }
-                    Path rel = root.relativize(file);
-                    String relStr = rel.toString().replace('\\', '/');
-                    if (relStr.equals(".vgl") || relStr.equals(".gitignore")) {
-                        return FileVisitResult.CONTINUE;
-                    }
-                    fsCandidates.add(relStr);
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-            candidates = fsCandidates;
+            candidates = walkFilesUnderPrefixes(root, prefixes);
         }
 
-        // Always exclude nested repo files and VGL admin files from candidates.
-        Set<String> filteredCandidates = new LinkedHashSet<>();
-        for (String f : candidates) {
-            if (f == null || f.isBlank()) {
-                continue;
-            }
-            String relStr = f.replace('\\', '/');
-            if (relStr.equals(".vgl") || relStr.equals(".gitignore")) {
-                continue;
-            }
-            boolean underNested = false;
-            for (String n : nested) {
-                if (relStr.equals(n) || relStr.startsWith(n + "/")) {
-                    underNested = true;
-                    break;
-                }
-            }
-            if (underNested) {
-                continue;
-            }
-            filteredCandidates.add(relStr);
-        }
+        // Always exclude VGL admin files from candidates.
+        candidates.remove(".vgl");
+        candidates.remove(".gitignore");
 
         Set<String> out = new LinkedHashSet<>();
         for (String pattern : patterns) {
@@ -188,7 +206,7 @@ public final class GlobUtils {
                     if (!prefix.endsWith("/")) {
                         prefix = prefix + "/";
                     }
-                    for (String f : filteredCandidates) {
+                    for (String f : candidates) {
                         if (f.startsWith(prefix)) {
                             out.add(f);
                         }
@@ -198,22 +216,22 @@ public final class GlobUtils {
 
                 // Literal file path, or bare filename convenience.
                 if (!lit.contains("/")) {
-                    for (String f : filteredCandidates) {
+                    for (String f : candidates) {
                         if (f.equals(lit) || f.endsWith("/" + lit)) {
                             out.add(f);
                         }
                     }
                 } else {
-                    if (filteredCandidates.contains(lit)) {
+                    if (candidates.contains(lit)) {
                         out.add(lit);
                     }
                 }
                 continue;
             }
 
-            String regex = globToRegex(pattern);
-            for (String f : filteredCandidates) {
-                if (f.matches(regex)) {
+            Pattern regex = Pattern.compile(globToRegex(pattern));
+            for (String f : candidates) {
+                if (regex.matcher(f).matches()) {
                     out.add(f);
                 }
             }
@@ -224,6 +242,96 @@ public final class GlobUtils {
         return sorted;
     }
 
+    // Directory an expansion pattern is confined to ("" for the whole tree). Unlike
+    // literalDirPrefix, a bare literal here is a root-level name, since its "**/" twin covers the rest.
+    private static String walkPrefix(String pattern) {
+        if (!hasWildcard(pattern)) {
+            return stripTrailingSlash(pattern);
+        }
+        String prefix = literalDirPrefix(pattern);
+        return (prefix == null) ? "" : prefix;
+    }
+
+    // True when a directory at repo-relative {@code dir} is on the way to, or inside, some prefix.
+    private static boolean onAnyPrefix(String dir, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (prefix.isEmpty()
+                || prefix.equals(dir)
+                || prefix.startsWith(dir + "/")
+                || dir.startsWith(prefix + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Non-ignored working-tree files on or under {@code prefixes}. Ignored directories and
+     * directories outside every prefix are never listed; nested repositories (gitlinks) are not
+     * entered.
+     */
+    private static Set<String> listFilesUnderPrefixes(Repository repo, List<String> prefixes) throws IOException {
+        Set<String> out = new LinkedHashSet<>();
+        try (TreeWalk walk = new TreeWalk(repo)) {
+            walk.addTree(new FileTreeIterator(repo));
+            walk.setRecursive(true);
+            walk.setFilter(new TreeFilter() {
+                @Override
+                public boolean include(TreeWalk w) {
+                    WorkingTreeIterator wti = w.getTree(0, WorkingTreeIterator.class);
+                    try {
+                        if (wti != null && wti.isEntryIgnored()) {
+                            return false;
+                        }
+                    } catch (IOException e) {
+                        // treat as not ignored
+                    }
+                    String path = w.getPathString();
+                    if (w.isSubtree()) {
+                        return onAnyPrefix(path, prefixes);
+                    }
+                    int slash = path.lastIndexOf('/');
+                    return onAnyPrefix(slash < 0 ? "" : path.substring(0, slash), prefixes)
+                        || prefixes.contains(path);
+                }
+
+                @Override
+                public boolean shouldBeRecursive() {
+                    return true;
+                }
+
+                @Override
+                public TreeFilter clone() {
+                    return this;
+                }
+            });
+            while (walk.next()) {
+                if ((walk.getRawMode(0) & FileMode.TYPE_MASK) == FileMode.TYPE_GITLINK) {
+                    continue;
+                }
+                out.add(walk.getPathString());
+            }
+        }
+        return out;
+    }
+
+    /** Fallback for non-git roots: the same pruning, honoring any .gitignore files and stopping at nested repositories. */
+    private static Set<String> walkFilesUnderPrefixes(Path root, List<String> prefixes) {
+        Set<String> out = new LinkedHashSet<>();
+        WorkspaceWalker.Result walked = WorkspaceWalker.at(root)
+            .honorIgnores(true)
+            .stopAtNestedRepos(true)
+            .enterDirsWhere(dir -> onAnyPrefix(dir, prefixes))
+            .walk();
+        for (String relStr : walked.files()) {
+            int slash = relStr.lastIndexOf('/');
+            if (onAnyPrefix(slash < 0 ? "" : relStr.substring(0, slash), prefixes) || prefixes.contains(relStr)) {
+                out.add(relStr);
+            }
+        }
+        return out;
+    }
+
     /**
      * Resolve globs against the repo root and print a short report to `out`.
      * Returns the sorted list of matched repo-relative paths (or an empty list).
@@ -294,48 +402,7 @@ public final class GlobUtils {
         return resolved;
     }
 
-    private static void collectFilesUnderDir(Set<String> out, Path repoRoot, Path dir, Set<String> nested) throws IOException {
-        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
-                if (d.equals(dir)) {
-                    return FileVisitResult.CONTINUE;
-                }
-                Path rel = repoRoot.relativize(d);
-                String relStr = rel.toString().replace('\\', '/');
-                if (".git".equals(relStr) || relStr.endsWith("/.git")) {
-                    return FileVisitResult.SKIP_SUBTREE;
-                }
-                for (String n : nested) {
-                    if (relStr.equals(n) || relStr.startsWith(n + "/")) {
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
-                }
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                if (!attrs.isRegularFile()) {
-                    return FileVisitResult.CONTINUE;
-                }
-                Path rel = repoRoot.relativize(file);
-                String relStr = rel.toString().replace('\\', '/');
-                if (relStr.equals(".vgl") || relStr.equals(".gitignore")) {
-                    return FileVisitResult.CONTINUE;
-                }
-                out.add(relStr);
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                return FileVisitResult.CONTINUE;
-            }
-        });
-    }
-
-    private static boolean hasWildcard(String pattern) {
+    public static boolean hasWildcard(String pattern) {
         return pattern.contains("*") || pattern.contains("?");
     }
 
@@ -343,7 +410,7 @@ public final class GlobUtils {
      * Very small glob-to-regex converter for our CLI patterns.
      * Supports *, ?, and ** (match any segments).
      */
-    private static String globToRegex(String glob) {
+    static String globToRegex(String glob) {
         String g = glob.replace('\\', '/');
 
         StringBuilder sb = new StringBuilder();
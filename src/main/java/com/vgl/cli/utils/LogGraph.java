@@ -0,0 +1,233 @@
+package com.vgl.cli.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Incremental lane renderer for {@code log -graph}, in the manner of git's graph.c.
+ *
+ * <p>Commits are fed in the order the walk emits them and each gets its rows as it arrives; the only
+ * state is one lane per line of history still open (the commit each lane is waiting for), so the
+ * whole DAG is never loaded. Merges fan out into new lanes to the right, lanes that reach the same
+ * commit collapse into the leftmost, and lanes move at most one column per connector row.
+ *
+ * <p>The walk emits commits newest first, so a lane whose commit is newer than the one being placed
+ * waited for a commit the walk passed over (filtered out by paths or dates): the lane moves on to
+ * that commit's first parent, the way git rewrites parents. Lanes stop at excluded history.
+ *
+ * <p>Newest first is only a topological order when parents are strictly older; commits sharing a
+ * timestamp come out of the walk in queue order, parents possibly ahead of children. {@link
+ * #nextCommit()} therefore reads each run of equal commit times (up to {@code vgl.log.graphTies}
+ * commits) and hands it out children first.
+ */
+public final class LogGraph {
+    private final RevWalk walk;
+    private final RevFlag shown;
+    private final int maxTies = Math.max(1, Integer.getInteger("vgl.log.graphTies", 512));
+    private final List<RevCommit> tied = new ArrayList<>();
+    private final Map<RevCommit, Integer> tiedChildren = new HashMap<>();
+    private RevCommit ahead;
+    private List<RevCommit> lanes = new ArrayList<>();
+
+    /** Rows for one commit: connectors above it, its own prefix, the prefix for its further lines, connectors below it. */
+    public record Rows(List<String> before, String commit, String padding, List<String> after) {}
+
+    public LogGraph(RevWalk walk) {
+        this.walk = walk;
+        this.shown = walk.newFlag("graph-shown");
+    }
+
+    /** The walk's next commit in graph order, or null at the end. */
+    public RevCommit nextCommit() throws IOException {
+        if (tied.isEmpty()) {
+            RevCommit first = (ahead != null) ? ahead : walk.next();
+            ahead = null;
+            if (first == null) {
+                return null;
+            }
+            tied.add(first);
+            while (tied.size() < maxTies) {
+                RevCommit c = walk.next();
+                if (c == null || c.getCommitTime() != first.getCommitTime()) {
+                    ahead = c;
+                    break;
+                }
+                tied.add(c);
+            }
+            tiedChildren.clear();
+            for (RevCommit c : tied) {
+                for (RevCommit p : c.getParents()) {
+                    tiedChildren.merge(p, 1, Integer::sum);
+                }
+            }
+        }
+        int pick = 0;
+        for (int i = 0; i < tied.size(); i++) {
+            if (tiedChildren.getOrDefault(tied.get(i), 0) == 0) {
+                pick = i;
+                break;
+            }
+        }
+        RevCommit c = tied.remove(pick);
+        for (RevCommit p : c.getParents()) {
+            tiedChildren.merge(p, -1, Integer::sum);
+        }
+        return c;
+    }
+
+    /** Places {@code c} (the walk's next emitted commit) and advances the lanes past it. */
+    public Rows next(RevCommit c) throws IOException {
+        List<String> before = settle(c);
+
+        int col = lanes.indexOf(c);
+        if (col < 0) {
+            col = lanes.size();
+            lanes.add(c);
+        }
+        c.add(shown);
+
+        StringBuilder commitRow = new StringBuilder();
+        for (int i = 0; i < lanes.size(); i++) {
+            commitRow.append(i == col ? '*' : '|').append(' ');
+        }
+
+        // Parents either open lanes in the commit's column or join lanes already waiting for them.
+        List<RevCommit> fresh = new ArrayList<>();
+        List<Integer> joined = new ArrayList<>();
+        for (RevCommit p : c.getParents()) {
+            if (p.has(shown) || p.has(RevFlag.UNINTERESTING) || fresh.contains(p)) {
+                continue;
+            }
+            int existing = lanes.indexOf(p);
+            if (existing >= 0 && existing != col) {
+                if (!joined.contains(existing)) {
+                    joined.add(existing);
+                }
+            } else {
+                fresh.add(p);
+            }
+        }
+
+        List<RevCommit> next = new ArrayList<>();
+        List<int[]> edges = new ArrayList<>();
+        int[] moved = new int[lanes.size()];
+        for (int i = 0; i < lanes.size(); i++) {
+            if (i == col) {
+                for (RevCommit p : fresh) {
+                    edges.add(new int[] {col, next.size()});
+                    next.add(p);
+                }
+            } else {
+                moved[i] = next.size();
+                edges.add(new int[] {i, next.size()});
+                next.add(lanes.get(i));
+            }
+        }
+        for (int j : joined) {
+            edges.add(new int[] {col, moved[j]});
+        }
+
+        StringBuilder pad = new StringBuilder();
+        for (int i = 0; i < lanes.size(); i++) {
+            pad.append(i != col || !fresh.isEmpty() || !joined.isEmpty() ? '|' : ' ').append(' ');
+        }
+        lanes = next;
+        return new Rows(before, commitRow.toString(), pad.toString(), connect(edges));
+    }
+
+    /**
+     * Moves lanes waiting for commits the walk has already passed over onto those commits' first
+     * parents, drops lanes that reached excluded or already shown history, and collapses lanes that
+     * now wait for the same commit. Returns the connector rows that draw the change.
+     */
+    private List<String> settle(RevCommit c) throws IOException {
+        List<RevCommit> next = new ArrayList<>();
+        List<int[]> edges = new ArrayList<>();
+        boolean changed = false;
+        for (int i = 0; i < lanes.size(); i++) {
+            RevCommit t = lanes.get(i);
+            while (t != null && t != c) {
+                if (t.has(shown) || t.has(RevFlag.UNINTERESTING)) {
+                    t = null;
+                } else if (t.getCommitTime() > c.getCommitTime()) {
+                    t = (t.getParentCount() == 0) ? null : t.getParent(0);
+                    if (t != null) {
+                        walk.parseHeaders(t);
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (t != lanes.get(i)) {
+                changed = true;
+            }
+            if (t == null) {
+                continue;
+            }
+            int to = next.indexOf(t);
+            if (to < 0) {
+                to = next.size();
+                next.add(t);
+            } else {
+                changed = true;
+            }
+            edges.add(new int[] {i, to});
+        }
+        if (!changed) {
+            return List.of();
+        }
+        lanes = next;
+        return connect(edges);
+    }
+
+    /**
+     * Connector rows taking each edge from its old column to its new one, one column per row: '|'
+     * for a lane that stays, '\' and '/' for lanes moving right and left.
+     */
+    private static List<String> connect(List<int[]> edges) {
+        List<String> rows = new ArrayList<>();
+        int[] at = new int[edges.size()];
+        int width = 0;
+        for (int e = 0; e < edges.size(); e++) {
+            at[e] = edges.get(e)[0];
+            width = Math.max(width, Math.max(edges.get(e)[0], edges.get(e)[1]) + 1);
+        }
+        while (true) {
+            boolean moving = false;
+            for (int e = 0; e < edges.size(); e++) {
+                if (at[e] != edges.get(e)[1]) {
+                    moving = true;
+                    break;
+                }
+            }
+            if (!moving) {
+                return rows;
+            }
+            char[] row = " ".repeat(2 * width).toCharArray();
+            for (int e = 0; e < edges.size(); e++) {
+                int to = edges.get(e)[1];
+                if (at[e] == to) {
+                    put(row, 2 * at[e], '|');
+                } else if (at[e] < to) {
+                    put(row, 2 * at[e] + 1, '\\');
+                    at[e]++;
+                } else {
+                    put(row, 2 * at[e] - 1, '/');
+                    at[e]--;
+                }
+            }
+            rows.add(new String(row).stripTrailing());
+        }
+    }
+
+    private static void put(char[] row, int pos, char ch) {
+        char old = row[pos];
+        row[pos] = (old == ' ' || old == ch) ? ch : 'X';
+    }
+}
@@ -99,6 +99,8 @@ public final class MergeAnalysis {
     private static int countNewCommits(Repository repo, ObjectId base, ObjectId source) {
         int count = 0;
         try (RevWalk walk = new RevWalk(repo)) {
+            // Only the count is needed: with a commit-graph, commits are never inflated.
+            walk.setRetainBody(false);
             RevCommit baseCommit = walk.parseCommit(base);
             RevCommit sourceCommit = walk.parseCommit(source);
 
@@ -119,7 +121,6 @@ public final class MergeAnalysis {
         try (DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
             df.setRepository(repo);
             df.setDiffComparator(RawTextComparator.DEFAULT);
-            df.setDetectRenames(true);
 
             CanonicalTreeParser oldTree = new CanonicalTreeParser();
             CanonicalTreeParser newTree = new CanonicalTreeParser();
@@ -127,15 +128,15 @@ public final class MergeAnalysis {
             try (var reader = repo.newObjectReader()) {
                 oldTree.reset(reader, repo.parseCommit(oldId).getTree());
                 newTree.reset(reader, repo.parseCommit(newId).getTree());
-            }
 
-            List<DiffEntry> diffs = df.scan(oldTree, newTree);
-            for (DiffEntry entry : diffs) {
-                String path = entry.getChangeType() == DiffEntry.ChangeType.DELETE
-                    ? entry.getOldPath()
-                    : entry.getNewPath();
-                if (path != null && !path.isBlank()) {
-                    files.add(path);
+                List<DiffEntry> diffs = RenameDetection.detect(repo, reader, df.scan(oldTree, newTree));
+                for (DiffEntry entry : diffs) {
+                    String path = entry.getChangeType() == DiffEntry.ChangeType.DELETE
+                        ? entry.getOldPath()
+                        : entry.getNewPath();
+                    if (path != null && !path.isBlank()) {
+                        files.add(path);
+                    }
                 }
             }
         }
@@ -47,26 +47,32 @@ public final class Messages {
     private static final String USAGE_PUSH = "Usage:\n  vgl push [-noop]";
     private static final String USAGE_SYNC = "Usage:\n  vgl sync [-noop]";
     private static final String USAGE_ABORT = "Usage:\n  vgl abort";
+    private static final String USAGE_MAINTAIN = "Usage:\n  vgl maintain";
     private static final String USAGE_RESTORE = "Usage:\n  vgl restore [-f] [GLOB|*]";
     private static final String USAGE_DIFF = String.join("\n",
         "Usage:",
         "  vgl diff [-noop] [-all] [GLOB|*] [-lr DIR] [-lb BRANCH|-bb BRANCH] [-rr URL] [-rb BRANCH]",
-        "  vgl diff [-noop] [-all] COMMIT1 COMMIT2",
-        "  vgl diff [-noop] [-all] -lb BRANCH1 -lb BRANCH2",
+        "  vgl diff [-noop] [-all] [-dirstat] COMMIT1 COMMIT2",
+        "  vgl diff [-noop] [-all] [-dirstat] -lb BRANCH1 -lb BRANCH2",
         "  vgl diff [-noop] [-all] -lr DIR1 -lr DIR2",
         "",
         "Notes:",
-        "  - Default: shows up to 10 matching changes/results; use '-all' to show all"
+        "  - Default: shows up to 10 matching changes/results; use '-all' to show all",
+        "  - -dirstat summarizes changed files per directory (-v adds line churn)"
     );
     private static final String USAGE_LOG = String.join("\n",
         "Usage:",
-        "  vgl log [-v|-vv] [-all] [-graph] [COMMIT | COMMIT..COMMIT | DATE | DATE..DATE]...",
+        "  vgl log [-v|-vv] [-all] [-graph] [-follow PATH] [-grep TEXT] [-author NAME] [-S TEXT] [COMMIT | COMMIT..COMMIT | DATE | DATE..DATE]... [-- PATH|GLOB...]",
         "",
         "Notes:",
         "  - Default: shows the 10 most recent commits; use '-all' to show all commits",
         "  - DATE formats accepted: yyyy-MM-dd (day) or yyyy-MM (month)",
         "  - Ranges use two dots: COMMIT..COMMIT or DATE..DATE",
-        "  - Multiple commits/dates may be provided and are combined"
+        "  - Multiple commits/dates may be provided and are combined",
+        "  - '-- PATH|GLOB...' limits the history to commits that changed matching files",
+        "  - '-follow PATH' lists the history of one file, continuing across renames",
+        "  - '-grep TEXT' and '-author NAME' list commits whose message or author contains the text (ignoring case)",
+        "  - '-S TEXT' lists commits that added or removed TEXT in some file"
     );
     private static final String USAGE_MERGE = "Usage:\n  vgl merge -from|-into [-lr DIR] [-lb BRANCH|-bb BRANCH]";
     private static final String USAGE_SPLIT = "Usage:\n  vgl split -from|-into [-lr DIR] [-lb BRANCH|-bb BRANCH]";
@@ -273,6 +279,10 @@ public final class Messages {
         return USAGE_ABORT;
     }
 
+    public static String maintainUsage() {
+        return USAGE_MAINTAIN;
+    }
+
     public static String restoreUsage() {
         return USAGE_RESTORE;
     }
@@ -337,6 +347,10 @@ public final class Messages {
         return "Dry run: " + filesWillChange + " file(s) will change, 0 in conflict. Review recommended.";
     }
 
+    public static String diffDirStatNeedsTwoTrees() {
+        return "Warning: -dirstat compares two commits or branches; showing the regular diff instead.";
+    }
+
     public static String pushNoRemoteConfigured() {
         return "ERROR: No remote configured.";
     }
@@ -369,6 +383,26 @@ public final class Messages {
         return "Aborted.";
     }
 
+    public static String logFollowNeedsOnePath() {
+        return "ERROR: -follow needs exactly one file path.";
+    }
+
+    public static String logSearchNeedsText(String option) {
+        return "ERROR: " + option + " needs text to search for.";
+    }
+
+    public static String maintainNothingToDo() {
+        return "Nothing to maintain: repository has no commits.";
+    }
+
+    public static String maintainCommitGraphWritten(long commits) {
+        return "Commit graph written: " + commits + (commits == 1 ? " commit." : " commits.");
+    }
+
+    public static String maintainCommitGraphSkipped() {
+        return "Note: Commit graph not written (core.commitGraph is false, or another process is writing it).";
+    }
+
     public static String checkoutCompleted(Path repoRoot, String branch) {
         return "Checked out: " + Utils.formatPath(repoRoot) + " (branch: " + branch + ")";
     }
@@ -0,0 +1,332 @@
+package com.vgl.cli.utils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Opt-in local mirrors of remote repositories, shared by remote diff, checkout and copy.
+ *
+ * <p>With {@code -Dvgl.mirrors=true}, each remote URL gets a bare mirror under
+ * {@code -Dvgl.mirrors.dir} (default {@code $XDG_CACHE_HOME/vgl/mirrors}, else
+ * {@code ~/.cache/vgl/mirrors}), named by a hash of the URL. Every use fetches incrementally into it,
+ * so only new objects cross the network. Remote diffs read trees straight from the mirror; checkouts
+ * and copies clone from it locally.
+ *
+ * <p>Mirrors are evicted least-recently-used once the cache exceeds {@code -Dvgl.mirrors.maxMb}
+ * (default 4096). A mirror in use by any vgl process is held under a file lock and never evicted.
+ *
+ * <p>Each mirror {@code <key>.git} has two lock files beside it. Readers hold {@code <key>.lock}
+ * shared from before the fetch until the lease is closed, and eviction needs it exclusively.
+ * {@code <key>.fetch} is held exclusively while fetching, so that only one process updates a
+ * mirror at a time. File locks belong to the whole process, and on POSIX systems closing any
+ * channel on a file drops all of the process's locks on it. For that reason each {@code .lock}
+ * file is opened once per process and shared by all of its leases, and {@link #evict} never opens
+ * one that this process holds.
+ */
+public final class MirrorCache {
+    private MirrorCache() {}
+
+    private static final long DEFAULT_MAX_MB = 4096L;
+    private static final String LAST_USED_FILE = "vgl-last-used";
+    private static final String URL_FILE = "vgl-url";
+
+    // Lock files this process holds shared, with the number of open leases on each; guarded by itself.
+    private static final Map<Path, Held> HELD = new HashMap<>();
+    // Serializes fetches into the same mirror between threads of this process.
+    private static final Map<Path, Object> FETCHING = new ConcurrentHashMap<>();
+
+    private static final class Held {
+        final FileChannel channel;
+        int leases;
+
+        Held(FileChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /** A mirror held open for reading; closing it releases the lock that protects it from eviction. */
+    public static final class Lease implements AutoCloseable {
+        private final Path gitDir;
+        private final Path lockFile;
+        private boolean closed;
+
+        private Lease(Path gitDir, Path lockFile) {
+            this.gitDir = gitDir;
+            this.lockFile = lockFile;
+        }
+
+        public Path gitDir() {
+            return gitDir;
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (HELD) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                Held held = HELD.get(lockFile);
+                if (held != null && --held.leases == 0) {
+                    HELD.remove(lockFile);
+                    held.channel.close();
+                }
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("vgl.mirrors");
+    }
+
+    /** True when mirrors are enabled and {@code remoteUrl} is a URL rather than a local directory (which clones cheaply already). */
+    public static boolean appliesTo(String remoteUrl) {
+        if (!isEnabled() || remoteUrl == null || remoteUrl.isBlank()) {
+            return false;
+        }
+        try {
+            return !Files.isDirectory(Path.of(remoteUrl.trim()));
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    public static Path root() {
+        String dir = System.getProperty("vgl.mirrors.dir");
+        if (dir != null && !dir.isBlank()) {
+            return Path.of(dir).toAbsolutePath().normalize();
+        }
+        return Utils.userCacheDir("mirrors");
+    }
+
+    /**
+     * Creates or updates the mirror of {@code remoteUrl} and returns it locked for reading.
+     *
+     * @return the lease, or null if auth is required (and was already reported).
+     */
+    public static Lease acquire(String remoteUrl, PrintStream err) throws Exception {
+        Path root = root();
+        Files.createDirectories(root);
+        String key = keyFor(remoteUrl);
+        Path gitDir = root.resolve(key + ".git");
+        Path fetchFile = root.resolve(key + ".fetch");
+
+        // Held before the mirror is created or fetched, so it cannot be evicted in between.
+        Lease lease = lease(gitDir, root.resolve(key + ".lock"));
+        try {
+            boolean fetched;
+            synchronized (FETCHING.computeIfAbsent(fetchFile, k -> new Object())) {
+                try (FileChannel channel = FileChannel.open(fetchFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    FileLock lock = channel.lock();
+                    try {
+                        boolean created = false;
+                        if (!Files.isDirectory(gitDir)) {
+                            Git.init().setBare(true).setDirectory(gitDir.toFile()).call().close();
+                            Files.writeString(gitDir.resolve(URL_FILE), remoteUrl.trim() + "\n", StandardCharsets.UTF_8);
+                            created = true;
+                        }
+                        fetched = GitRemoteOps.fetchMirrorInto(gitDir, remoteUrl.trim(), err);
+                        if (fetched) {
+                            touch(gitDir);
+                        } else if (created) {
+                            deleteTree(gitDir);
+                        }
+                    } finally {
+                        lock.release();
+                    }
+                }
+            }
+            if (!fetched) {
+                lease.close();
+                return null;
+            }
+            return lease;
+        } catch (Exception e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    private static Lease lease(Path gitDir, Path lockFile) throws IOException {
+        synchronized (HELD) {
+            Held held = HELD.get(lockFile);
+            if (held == null) {
+                held = new Held(lockShared(lockFile));
+                HELD.put(lockFile, held);
+            }
+            held.leases++;
+            return new Lease(gitDir, lockFile);
+        }
+    }
+
+    // evict() deletes lock files it holds exclusively, so a shared lock only counts once the file
+    // locked is still the one at that path; otherwise it is taken again on the new file.
+    private static FileChannel lockShared(Path lockFile) throws IOException {
+        while (true) {
+            try {
+                Files.createFile(lockFile);
+            } catch (FileAlreadyExistsException ignored) {
+                // usual case
+            }
+            Object before;
+            try {
+                before = fileKey(lockFile);
+            } catch (NoSuchFileException evicted) {
+                continue;
+            }
+            FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            try {
+                channel.lock(0L, Long.MAX_VALUE, true);
+                if (Files.exists(lockFile) && Objects.equals(before, fileKey(lockFile))) {
+                    return channel;
+                }
+            } catch (NoSuchFileException evicted) {
+                // retry below
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            channel.close();
+        }
+    }
+
+    private static Object fileKey(Path p) throws IOException {
+        return Files.readAttributes(p, BasicFileAttributes.class).fileKey();
+    }
+
+    /** Deletes least-recently-used mirrors until the cache fits its size cap, skipping any in use. */
+    public static void evict() {
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long maxBytes = Long.getLong("vgl.mirrors.maxMb", DEFAULT_MAX_MB) * 1024L * 1024L;
+
+        record Entry(Path gitDir, long size, FileTime lastUsed) {}
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> list = Files.list(root)) {
+            for (Path p : (Iterable<Path>) list::iterator) {
+                if (!Files.isDirectory(p) || !p.getFileName().toString().endsWith(".git")) {
+                    continue;
+                }
+                long size = sizeOf(p);
+                total += size;
+                entries.add(new Entry(p, size, lastUsed(p)));
+            }
+        } catch (IOException ignored) {
+            return;
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(Entry::lastUsed));
+        for (Entry e : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            String name = e.gitDir().getFileName().toString();
+            String key = name.substring(0, name.length() - ".git".length());
+            Path lockFile = root.resolve(key + ".lock");
+            // Also keeps lease() in this process from locking the file while it is being deleted.
+            synchronized (HELD) {
+                if (HELD.containsKey(lockFile)) {
+                    continue; // in use here; opening it again would drop this process's lock
+                }
+                try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    FileLock lock = channel.tryLock();
+                    if (lock == null) {
+                        continue;
+                    }
+                    deleteTree(e.gitDir());
+                    total -= e.size();
+                    Files.deleteIfExists(root.resolve(key + ".fetch"));
+                    Files.deleteIfExists(lockFile);
+                } catch (IOException ignored) {
+                    // best-effort
+                }
+            }
+        }
+    }
+
+    private static String keyFor(String remoteUrl) {
+        String url = remoteUrl.trim();
+        while (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+        return ObjectId.fromRaw(Constants.newMessageDigest().digest(url.getBytes(StandardCharsets.UTF_8))).name();
+    }
+
+    private static void touch(Path gitDir) throws IOException {
+        Path stamp = gitDir.resolve(LAST_USED_FILE);
+        if (!Files.exists(stamp)) {
+            Files.createFile(stamp);
+        }
+        Files.setLastModifiedTime(stamp, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    private static FileTime lastUsed(Path gitDir) {
+        try {
+            return Files.getLastModifiedTime(gitDir.resolve(LAST_USED_FILE));
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        long[] total = {0L};
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                total[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return total[0];
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.deleteIfExists(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
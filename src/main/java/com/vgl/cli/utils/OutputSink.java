@@ -0,0 +1,152 @@
+package com.vgl.cli.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Buffered stdout for commands that can emit large reports (diff, log, status).
+ *
+ * <p>{@code System.out} is line-flushed, so a big diff piped to a file spends most of its time in
+ * write syscalls. Installing a sink swaps {@code System.out} for a large, non-auto-flushing UTF-8
+ * stream; {@link #restore()} flushes it and puts the previous streams back. Output is only pushed
+ * early at the explicit {@link #flush()} points (e.g. before a slow network step), and before
+ * anything is written to {@code System.err}, so warnings still appear after the output that
+ * preceded them. {@link #note} collects one-off notes (possibly from worker threads) and prints
+ * them on stderr once the command's output is complete.
+ *
+ * <p>When stdout is a terminal and {@code VGL_PAGER} (or {@code -Dvgl.pager}) names a command, output
+ * is piped through that pager instead.
+ */
+public final class OutputSink {
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    private static volatile OutputSink current;
+
+    private final PrintStream previous;
+    private final PrintStream previousErr;
+    private final PrintStream buffered;
+    private final PrintStream errors;
+    private final Process pager;
+    private final OutputSink outer;
+    private final Map<String, String> notes = new LinkedHashMap<>();
+
+    private OutputSink(PrintStream previous, PrintStream previousErr, PrintStream buffered, Process pager) {
+        this.previous = previous;
+        this.previousErr = previousErr;
+        this.buffered = buffered;
+        this.pager = pager;
+        this.outer = current;
+        this.errors = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                buffered.flush();
+                previousErr.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                buffered.flush();
+                previousErr.write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                previousErr.flush();
+            }
+        }, true, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Installs a buffered {@code System.out} (optionally feeding a pager) and a {@code System.err}
+     * that flushes it first. Callers must {@link #restore()} in a {@code finally} block.
+     */
+    public static OutputSink install() {
+        PrintStream previous = System.out;
+        Process pager = startPager();
+        OutputStream target = (pager != null) ? pager.getOutputStream() : previous;
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(target, BUFFER_SIZE), false, StandardCharsets.UTF_8);
+        OutputSink sink = new OutputSink(previous, System.err, buffered, pager);
+        System.setOut(buffered);
+        System.setErr(sink.errors);
+        current = sink;
+        return sink;
+    }
+
+    /**
+     * Reports a note on stderr after the running command's output, once per {@code key} for the
+     * command; safe to call from worker threads. Without an installed sink it is printed at once.
+     */
+    public static void note(String key, String message) {
+        OutputSink sink = current;
+        if (sink == null) {
+            System.err.println(message);
+            return;
+        }
+        synchronized (sink.notes) {
+            sink.notes.putIfAbsent(key, message);
+        }
+    }
+
+    /** Pushes buffered output through now; call before waiting on something slow or interactive. */
+    public static void flush() {
+        System.out.flush();
+    }
+
+    /** Flushes the buffered output and puts back the streams that were installed before. */
+    public void restore() {
+        buffered.flush();
+        synchronized (notes) {
+            for (String message : notes.values()) {
+                errors.println(message);
+            }
+            notes.clear();
+        }
+        if (current == this) {
+            current = outer;
+        }
+        if (System.out == buffered) {
+            System.setOut(previous);
+        }
+        if (System.err == errors) {
+            System.setErr(previousErr);
+        }
+        if (pager != null) {
+            buffered.close();
+            try {
+                pager.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Process startPager() {
+        if (!Utils.isInteractive()) {
+            return null;
+        }
+        String cmd = System.getProperty("vgl.pager");
+        if (cmd == null || cmd.isBlank()) {
+            cmd = System.getenv("VGL_PAGER");
+        }
+        if (cmd == null || cmd.isBlank() || cmd.trim().equals("cat")) {
+            return null;
+        }
+        boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+        List<String> argv = windows ? List.of("cmd", "/c", cmd) : List.of("sh", "-c", cmd);
+        try {
+            ProcessBuilder pb = new ProcessBuilder(argv);
+            pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            pb.environment().putIfAbsent("LESS", "FRX");
+            return pb.start();
+        } catch (Exception e) {
+            return null; // best-effort: fall back to plain buffered stdout
+        }
+    }
+}
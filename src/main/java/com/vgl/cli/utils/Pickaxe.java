@@ -0,0 +1,241 @@
+package com.vgl.cli.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Content search for {@code log -S TEXT}: keeps the commits that change how many times TEXT occurs
+ * in some file, in the manner of git's pickaxe.
+ *
+ * <p>Each commit is compared with its first parent file by file. A modified file matches when its
+ * old and new contents hold TEXT a different number of times, an added or deleted one when it holds
+ * TEXT at all. Adds and deletes of the same blob (exact renames) cancel out. Merges are not searched,
+ * as in git, nor are binary blobs or blobs above {@code -Dvgl.diff.largeFileThreshold} bytes.
+ *
+ * <p>The caller's walk feeds a work-stealing pool of {@code -Dvgl.log.threads} workers, each reading
+ * objects through its own reader, and runs ahead of the commit being listed by a bounded window.
+ * {@link #next} hands matches back in the order the walk produced them. A file's blob is usually
+ * the new side of one commit and the old side of an older one, so counts are kept per blob id and
+ * each blob is read once.
+ */
+public final class Pickaxe implements AutoCloseable {
+    private static final long DEFAULT_MAX_SIZE = 16L * 1024 * 1024;
+    private static final int MAX_COUNTED_BLOBS = 1 << 16;
+
+    /** Commits to search, in the order they are listed; null at the end. */
+    public interface Source {
+        RevCommit next() throws IOException;
+    }
+
+    private record Pending(RevCommit commit, Future<Boolean> changed) {}
+
+    private final RevWalk walk;
+    private final byte[] text;
+    private final long maxSize;
+    private final int window;
+    private final ExecutorService pool;
+    private final BlockingQueue<ObjectReader> readers;
+    private final Map<ObjectId, Integer> counts = new ConcurrentHashMap<>();
+    private final ArrayDeque<Pending> inFlight = new ArrayDeque<>();
+    private boolean drained;
+    private volatile boolean closed;
+
+    /** Searches for {@code text} in commits from {@code walk}, which parses them on the caller's thread. */
+    public Pickaxe(Repository repo, RevWalk walk, String text) {
+        this.walk = walk;
+        this.text = text.getBytes(StandardCharsets.UTF_8);
+        this.maxSize = Math.min(Long.getLong("vgl.diff.largeFileThreshold", DEFAULT_MAX_SIZE), Integer.MAX_VALUE - 8);
+        int threads = Math.max(1, Integer.getInteger("vgl.log.threads", Runtime.getRuntime().availableProcessors()));
+        this.window = threads * 8;
+        this.pool = Executors.newWorkStealingPool(threads);
+        this.readers = new ArrayBlockingQueue<>(threads);
+        for (int t = 0; t < threads; t++) {
+            readers.add(repo.newObjectReader());
+        }
+    }
+
+    /** The next commit from {@code source} that changes the number of occurrences, or null at the end. */
+    public RevCommit next(Source source) throws IOException {
+        while (true) {
+            while (!drained && inFlight.size() < window) {
+                RevCommit c = source.next();
+                if (c == null) {
+                    drained = true;
+                } else if (c.getParentCount() <= 1) {
+                    inFlight.add(new Pending(c, submit(c)));
+                }
+            }
+            Pending p = inFlight.poll();
+            if (p == null) {
+                return null;
+            }
+            try {
+                if (p.changed().get()) {
+                    return p.commit();
+                }
+            } catch (ExecutionException e) {
+                // best-effort: a commit whose objects cannot be read is not listed
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * Stops the lookahead and closes the workers' readers. Tasks still running are waited for, so
+     * their readers are back in the queue; one that outlasts the wait closes its own reader.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ObjectReader r = readers.poll(); r != null; r = readers.poll()) {
+            r.close();
+        }
+    }
+
+    private Future<Boolean> submit(RevCommit c) throws IOException {
+        // Trees are read here: the walk's commits are not safe to parse from other threads.
+        walk.parseHeaders(c);
+        ObjectId oldTree = null;
+        if (c.getParentCount() == 1) {
+            RevCommit parent = c.getParent(0);
+            walk.parseHeaders(parent);
+            oldTree = parent.getTree().copy();
+        }
+        ObjectId newTree = c.getTree().copy();
+        ObjectId fromTree = oldTree;
+        return pool.submit(() -> {
+            ObjectReader reader = readers.take();
+            try {
+                return changesCount(reader, fromTree, newTree);
+            } finally {
+                readers.add(reader);
+                if (closed && readers.remove(reader)) {
+                    reader.close();
+                }
+            }
+        });
+    }
+
+    private boolean changesCount(ObjectReader reader, ObjectId oldTree, ObjectId newTree) throws IOException {
+        List<ObjectId> added = new ArrayList<>();
+        Map<ObjectId, Integer> deleted = new HashMap<>();
+        try (TreeWalk tw = new TreeWalk(reader)) {
+            tw.setRecursive(true);
+            tw.setFilter(TreeFilter.ANY_DIFF);
+            if (oldTree != null) {
+                tw.addTree(oldTree);
+            } else {
+                tw.addTree(new EmptyTreeIterator());
+            }
+            tw.addTree(newTree);
+            while (tw.next()) {
+                boolean hadBlob = tw.getFileMode(0).getObjectType() == Constants.OBJ_BLOB;
+                boolean hasBlob = tw.getFileMode(1).getObjectType() == Constants.OBJ_BLOB;
+                if (hadBlob && hasBlob) {
+                    int before = occurrences(reader, tw.getObjectId(0));
+                    int after = (before < 0) ? -1 : occurrences(reader, tw.getObjectId(1));
+                    if (after >= 0 && before != after) {
+                        return true;
+                    }
+                } else if (hasBlob) {
+                    added.add(tw.getObjectId(1));
+                } else if (hadBlob) {
+                    deleted.merge(tw.getObjectId(0), 1, Integer::sum);
+                }
+            }
+        }
+        for (ObjectId id : added) {
+            Integer renamed = deleted.get(id);
+            if (renamed == null) {
+                if (occurrences(reader, id) > 0) {
+                    return true;
+                }
+            } else if (renamed == 1) {
+                deleted.remove(id);
+            } else {
+                deleted.put(id, renamed - 1);
+            }
+        }
+        for (ObjectId id : deleted.keySet()) {
+            if (occurrences(reader, id) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Non-overlapping occurrences of the text in a blob; -1 for binary or oversized blobs. */
+    private int occurrences(ObjectReader reader, ObjectId blob) throws IOException {
+        Integer known = counts.get(blob);
+        if (known != null) {
+            return known;
+        }
+        if (counts.size() >= MAX_COUNTED_BLOBS) {
+            counts.clear();
+        }
+        int count = count(reader, blob);
+        counts.put(blob, count);
+        return count;
+    }
+
+    private int count(ObjectReader reader, ObjectId blob) throws IOException {
+        ObjectLoader loader = reader.open(blob, Constants.OBJ_BLOB);
+        if (loader.getSize() > maxSize) {
+            return -1;
+        }
+        byte[] data = loader.getCachedBytes((int) maxSize);
+        if (RawText.isBinary(data)) {
+            return -1;
+        }
+        int count = 0;
+        byte first = text[0];
+        int last = data.length - text.length;
+        outer:
+        for (int i = 0; i <= last; i++) {
+            if (data[i] != first) {
+                continue;
+            }
+            for (int k = 1; k < text.length; k++) {
+                if (data[i + k] != text[k]) {
+                    continue outer;
+                }
+            }
+            count++;
+            i += text.length - 1;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,153 @@
+package com.vgl.cli.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Rename edges per commit, for following a file back through renames ({@code vgl log -follow}).
+ *
+ * <p>The first time a commit is asked about, its whole first-parent diff goes through
+ * {@link RenameDetection} and every (old path, new path) pair it finds is recorded in
+ * {@code .git/vgl/rename-edges}, including "no renames". Later queries for that commit, whether for
+ * the same file or for any other file it moved (e.g. a renamed directory), read the recorded edges
+ * instead of diffing and scoring again. Entries are keyed by {@link RenameDetection#settings()}, so
+ * changing the rename settings recomputes them.
+ */
+public final class RenameChains {
+    private RenameChains() {}
+
+    private static final String CACHE_FILE = "vgl/rename-edges";
+    private static final long MAX_CACHE_FILE_BYTES = 8L * 1024 * 1024;
+
+    private static final Map<File, EdgeCache> CACHES = new ConcurrentHashMap<>();
+
+    /** One rename found in a commit. */
+    public record Edge(String oldPath, String newPath) {}
+
+    /**
+     * The path {@code path} had in {@code commit}'s first parent when the commit renamed it there, or
+     * null when the commit did not rename it (including root commits).
+     */
+    public static String renamedFrom(Repository repo, RevWalk walk, RevCommit commit, String path) throws IOException {
+        for (Edge e : renamesIn(repo, walk, commit)) {
+            if (e.newPath().equals(path)) {
+                return e.oldPath();
+            }
+        }
+        return null;
+    }
+
+    /** Renames between {@code commit}'s first parent and {@code commit}, from the cache when recorded. */
+    public static List<Edge> renamesIn(Repository repo, RevWalk walk, RevCommit commit) throws IOException {
+        if (commit.getParentCount() == 0) {
+            return List.of();
+        }
+        EdgeCache cache = cacheFor(repo);
+        String key = commit.name() + " " + RenameDetection.settings();
+        List<Edge> edges = cache.get(key);
+        if (edges != null) {
+            return edges;
+        }
+
+        RevCommit parent = commit.getParent(0);
+        walk.parseHeaders(parent);
+        walk.parseHeaders(commit);
+        ObjectReader reader = walk.getObjectReader();
+        List<DiffEntry> entries;
+        try (TreeWalk tw = new TreeWalk(repo, reader)) {
+            tw.setRecursive(true);
+            tw.setFilter(TreeFilter.ANY_DIFF);
+            tw.addTree(parent.getTree());
+            tw.addTree(commit.getTree());
+            entries = DiffEntry.scan(tw);
+        }
+        edges = new ArrayList<>();
+        for (DiffEntry e : RenameDetection.detect(repo, reader, entries)) {
+            if (e.getChangeType() == DiffEntry.ChangeType.RENAME) {
+                edges.add(new Edge(e.getOldPath(), e.getNewPath()));
+            }
+        }
+        cache.put(key, edges);
+        cache.save();
+        return edges;
+    }
+
+    private static EdgeCache cacheFor(Repository repo) {
+        File gitDir = (repo == null) ? null : repo.getDirectory();
+        if (gitDir == null) {
+            return new EdgeCache(null); // in-memory repository: nothing to persist
+        }
+        return CACHES.computeIfAbsent(gitDir, dir -> new EdgeCache(new File(dir, CACHE_FILE).toPath()));
+    }
+
+    /**
+     * Edges keyed by "{@code <commit> <settings>}", backed by a {@link CacheFile} with one record per
+     * commit: the key, then the old and new path of each rename. Best-effort: any I/O problem just
+     * means recomputing.
+     */
+    private static final class EdgeCache {
+        private final CacheFile file;
+        private final Map<String, List<Edge>> edges = new HashMap<>();
+
+        EdgeCache(Path file) {
+            this.file = new CacheFile(file, MAX_CACHE_FILE_BYTES);
+            load();
+        }
+
+        synchronized List<Edge> get(String key) {
+            return edges.get(key);
+        }
+
+        void put(String key, List<Edge> found) {
+            synchronized (this) {
+                if (edges.put(key, List.copyOf(found)) != null) {
+                    return;
+                }
+            }
+            List<String> fields = new ArrayList<>();
+            fields.add(key);
+            for (Edge e : found) {
+                fields.add(e.oldPath());
+                fields.add(e.newPath());
+            }
+            file.append(fields);
+        }
+
+        void save() {
+            file.flush();
+        }
+
+        private void load() {
+            try {
+                file.read(fields -> {
+                    String key = fields.get(0);
+                    int space = key.indexOf(' ');
+                    if (fields.size() % 2 != 1 || space < 0 || !ObjectId.isId(key.substring(0, space))) {
+                        return; // damaged line
+                    }
+                    List<Edge> found = new ArrayList<>();
+                    for (int i = 1; i < fields.size(); i += 2) {
+                        found.add(new Edge(fields.get(i), fields.get(i + 1)));
+                    }
+                    edges.put(key, List.copyOf(found));
+                });
+            } catch (Exception ignored) {
+                edges.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.vgl.cli.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.jgit.diff.ContentSource;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.SimilarityIndex;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Rename detection shared by diff, status, log and merge previews.
+ *
+ * <p>Callers scan with renames off and hand the raw entries to {@link #detect}. Adds and deletes with
+ * the same blob id are paired first, by id alone. Unless {@code -Dvgl.renames=exact} (or {@code off})
+ * is set, the remaining candidates are then scored for similarity, provided neither side has more than
+ * {@code -Dvgl.renames.limit} of them (default 1000). Pairs scoring at least {@code -Dvgl.renames.score}
+ * (default 60) are matched best-first.
+ *
+ * <p>Similarity scores are cached per (old blob, new blob) in {@code .git/vgl/rename-scores}, so
+ * repeated runs over the same commits reuse earlier results instead of rescoring.
+ */
+public final class RenameDetection {
+    private RenameDetection() {}
+
+    public enum Mode {
+        OFF, EXACT, FULL
+    }
+
+    private static final int DEFAULT_LIMIT = 1000;
+    private static final int DEFAULT_MIN_SCORE = 60;
+    private static final long DEFAULT_MAX_SCORED_SIZE = 16L * 1024 * 1024;
+    private static final long MAX_CACHE_FILE_BYTES = 8L * 1024 * 1024;
+    private static final String CACHE_FILE = "vgl/rename-scores";
+
+    private static final Map<File, ScoreCache> CACHES = new ConcurrentHashMap<>();
+
+    public static Mode mode() {
+        String v = System.getProperty("vgl.renames", "").trim().toLowerCase(Locale.ROOT);
+        return switch (v) {
+            case "off", "false", "none" -> Mode.OFF;
+            case "exact" -> Mode.EXACT;
+            default -> Mode.FULL;
+        };
+    }
+
+    /**
+     * The settings that decide which renames {@link #detect} pairs; results cached elsewhere are
+     * only reused under the same settings.
+     */
+    public static String settings() {
+        return mode().name().toLowerCase(Locale.ROOT)
+            + "/" + Integer.getInteger("vgl.renames.score", DEFAULT_MIN_SCORE)
+            + "/" + Integer.getInteger("vgl.renames.limit", DEFAULT_LIMIT)
+            + "/" + Long.getLong("vgl.diff.largeFileThreshold", DEFAULT_MAX_SCORED_SIZE);
+    }
+
+    /** Pairs renames among {@code entries}, reading blob content from the object database. */
+    public static List<DiffEntry> detect(Repository repo, ObjectReader reader, List<DiffEntry> entries) throws IOException {
+        ContentSource objects = ContentSource.create(reader);
+        return detect(repo, entries, new ContentSource.Pair(objects, objects));
+    }
+
+    /**
+     * Pairs renames among {@code entries}; {@code sources} supplies old/new content (e.g. a working
+     * tree on one side). Returns the entries sorted by path, like JGit's own rename detector.
+     */
+    public static List<DiffEntry> detect(Repository repo, List<DiffEntry> entries, ContentSource.Pair sources) throws IOException {
+        Mode mode = mode();
+        if (mode == Mode.OFF || entries == null || entries.isEmpty()) {
+            return entries;
+        }
+
+        List<DiffEntry> out = new ArrayList<>();
+        List<DiffEntry> deletes = new ArrayList<>();
+        List<DiffEntry> adds = new ArrayList<>();
+        for (DiffEntry e : entries) {
+            switch (e.getChangeType()) {
+                case DELETE -> deletes.add(e);
+                case ADD -> adds.add(e);
+                default -> out.add(e);
+            }
+        }
+        if (deletes.isEmpty() || adds.isEmpty()) {
+            return entries;
+        }
+
+        boolean[] deleteUsed = new boolean[deletes.size()];
+        boolean[] addUsed = new boolean[adds.size()];
+        pairExact(deletes, adds, deleteUsed, addUsed, out);
+
+        if (mode == Mode.FULL) {
+            pairSimilar(repo, deletes, adds, deleteUsed, addUsed, sources, out);
+        }
+
+        for (int i = 0; i < deletes.size(); i++) {
+            if (!deleteUsed[i]) {
+                out.add(deletes.get(i));
+            }
+        }
+        for (int i = 0; i < adds.size(); i++) {
+            if (!addUsed[i]) {
+                out.add(adds.get(i));
+            }
+        }
+        out.sort(Comparator.comparing(RenameDetection::nameOf).thenComparing(e -> e.getChangeType() == DiffEntry.ChangeType.DELETE ? 0 : 1));
+        return out;
+    }
+
+    private static void pairExact(List<DiffEntry> deletes, List<DiffEntry> adds, boolean[] deleteUsed, boolean[] addUsed, List<DiffEntry> out) {
+        Map<ObjectId, List<Integer>> byId = new HashMap<>();
+        for (int i = 0; i < deletes.size(); i++) {
+            ObjectId id = idOf(deletes.get(i).getOldId());
+            if (id != null) {
+                byId.computeIfAbsent(id, k -> new ArrayList<>()).add(i);
+            }
+        }
+        for (int a = 0; a < adds.size(); a++) {
+            DiffEntry add = adds.get(a);
+            ObjectId id = idOf(add.getNewId());
+            List<Integer> candidates = (id == null) ? null : byId.get(id);
+            if (candidates == null) {
+                continue;
+            }
+            // Prefer a delete with the same file name (a move), then any delete of the same type.
+            int best = -1;
+            for (int d : candidates) {
+                DiffEntry del = deletes.get(d);
+                if (deleteUsed[d] || !sameType(del.getOldMode(), add.getNewMode())) {
+                    continue;
+                }
+                if (best < 0 || baseName(del.getOldPath()).equals(baseName(add.getNewPath()))) {
+                    best = d;
+                }
+            }
+            if (best >= 0) {
+                deleteUsed[best] = true;
+                addUsed[a] = true;
+                out.add(new RenamedEntry(deletes.get(best), add, 100));
+            }
+        }
+    }
+
+    private static void pairSimilar(Repository repo, List<DiffEntry> deletes, List<DiffEntry> adds, boolean[] deleteUsed, boolean[] addUsed,
+            ContentSource.Pair sources, List<DiffEntry> out) {
+        List<Integer> dels = unused(deleteUsed);
+        List<Integer> ads = unused(addUsed);
+        if (dels.isEmpty() || ads.isEmpty()) {
+            return;
+        }
+        int limit = Integer.getInteger("vgl.renames.limit", DEFAULT_LIMIT);
+        if (limit > 0 && Math.max(dels.size(), ads.size()) > limit) {
+            OutputSink.note("renames.limit", "Note: " + Math.max(dels.size(), ads.size()) + " rename candidates exceed -Dvgl.renames.limit=" + limit
+                + "; only exact renames were detected.");
+            return;
+        }
+        int minScore = Integer.getInteger("vgl.renames.score", DEFAULT_MIN_SCORE);
+        long maxSize = Long.getLong("vgl.diff.largeFileThreshold", DEFAULT_MAX_SCORED_SIZE);
+
+        ScoreCache cache = cacheFor(repo);
+        Map<Integer, SimilarityIndex> oldIdx = new HashMap<>();
+        Map<Integer, SimilarityIndex> newIdx = new HashMap<>();
+        Map<Integer, Long> oldSize = new HashMap<>();
+        Map<Integer, Long> newSize = new HashMap<>();
+
+        List<int[]> matches = new ArrayList<>(); // {score, delete, add}
+        for (int d : dels) {
+            DiffEntry del = deletes.get(d);
+            ObjectId oldId = idOf(del.getOldId());
+            if (oldId == null) {
+                continue;
+            }
+            for (int a : ads) {
+                DiffEntry add = adds.get(a);
+                ObjectId newId = idOf(add.getNewId());
+                if (newId == null || !sameType(del.getOldMode(), add.getNewMode())) {
+                    continue;
+                }
+                Integer score = cache.get(oldId, newId);
+                if (score == null) {
+                    // Two sizes bound the best achievable score; skip pairs that cannot reach the minimum.
+                    long os = oldSize.computeIfAbsent(d, k -> sizeOf(sources, DiffEntry.Side.OLD, del));
+                    long ns = newSize.computeIfAbsent(a, k -> sizeOf(sources, DiffEntry.Side.NEW, add));
+                    if (os < 0 || ns < 0 || os > maxSize || ns > maxSize) {
+                        continue;
+                    }
+                    long max = Math.max(os, ns);
+                    if (max > 0 && Math.min(os, ns) * 100 / max < minScore) {
+                        continue;
+                    }
+                    SimilarityIndex si = oldIdx.computeIfAbsent(d, k -> index(sources, DiffEntry.Side.OLD, del));
+                    SimilarityIndex ti = newIdx.computeIfAbsent(a, k -> index(sources, DiffEntry.Side.NEW, add));
+                    if (si == null || ti == null) {
+                        continue;
+                    }
+                    score = si.score(ti, 100);
+                    cache.put(oldId, newId, score);
+                }
+                if (score >= minScore) {
+                    matches.add(new int[] {score, d, a});
+                }
+            }
+        }
+        cache.save();
+
+        matches.sort((x, y) -> Integer.compare(y[0], x[0]));
+        for (int[] m : matches) {
+            if (deleteUsed[m[1]] || addUsed[m[2]]) {
+                continue;
+            }
+            deleteUsed[m[1]] = true;
+            addUsed[m[2]] = true;
+            out.add(new RenamedEntry(deletes.get(m[1]), adds.get(m[2]), m[0]));
+        }
+    }
+
+    private static List<Integer> unused(boolean[] used) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < used.length; i++) {
+            if (!used[i]) {
+                out.add(i);
+            }
+        }
+        return out;
+    }
+
+    private static long sizeOf(ContentSource.Pair sources, DiffEntry.Side side, DiffEntry e) {
+        try {
+            return sources.open(side, e).getSize();
+        } catch (Exception ex) {
+            return -1L;
+        }
+    }
+
+    private static SimilarityIndex index(ContentSource.Pair sources, DiffEntry.Side side, DiffEntry e) {
+        try {
+            return SimilarityIndex.create(sources.open(side, e));
+        } catch (Exception ex) {
+            return null; // unreadable or too many distinct lines: not a rename candidate
+        }
+    }
+
+    private static ObjectId idOf(AbbreviatedObjectId id) {
+        if (id == null || !id.isComplete()) {
+            return null;
+        }
+        ObjectId full = id.toObjectId();
+        return ObjectId.zeroId().equals(full) ? null : full;
+    }
+
+    private static boolean sameType(FileMode a, FileMode b) {
+        if (a == null || b == null || a == FileMode.GITLINK || b == FileMode.GITLINK) {
+            return false;
+        }
+        return (a.getBits() & FileMode.TYPE_MASK) == (b.getBits() & FileMode.TYPE_MASK);
+    }
+
+    private static String baseName(String path) {
+        int slash = (path == null) ? -1 : path.lastIndexOf('/');
+        return (slash < 0) ? String.valueOf(path) : path.substring(slash + 1);
+    }
+
+    private static String nameOf(DiffEntry e) {
+        return (e.getChangeType() == DiffEntry.ChangeType.DELETE) ? e.getOldPath() : e.getNewPath();
+    }
+
+    private static ScoreCache cacheFor(Repository repo) {
+        File gitDir = (repo == null) ? null : repo.getDirectory();
+        if (gitDir == null) {
+            return new ScoreCache(null); // in-memory repository: nothing to persist
+        }
+        return CACHES.computeIfAbsent(gitDir, dir -> new ScoreCache(new File(dir, CACHE_FILE).toPath()));
+    }
+
+    /** A rename pairing; DiffEntry only exposes protected fields for building one. */
+    private static final class RenamedEntry extends DiffEntry {
+        RenamedEntry(DiffEntry deleted, DiffEntry added, int score) {
+            this.changeType = ChangeType.RENAME;
+            this.score = score;
+            this.oldPath = deleted.getOldPath();
+            this.oldMode = deleted.getOldMode();
+            this.oldId = deleted.getOldId();
+            this.newPath = added.getNewPath();
+            this.newMode = added.getNewMode();
+            this.newId = added.getNewId();
+            this.diffAttribute = added.getDiffAttribute();
+        }
+    }
+
+    /**
+     * Similarity scores keyed by (old blob, new blob), backed by a {@link CacheFile} of
+     * {@code <old> <new> <score>} records. Best-effort: any I/O problem just means rescoring.
+     */
+    private static final class ScoreCache {
+        private final CacheFile file;
+        private final Map<String, Integer> scores = new HashMap<>();
+
+        ScoreCache(Path file) {
+            this.file = new CacheFile(file, MAX_CACHE_FILE_BYTES);
+            load();
+        }
+
+        synchronized Integer get(ObjectId oldId, ObjectId newId) {
+            return scores.get(key(oldId, newId));
+        }
+
+        void put(ObjectId oldId, ObjectId newId, int score) {
+            synchronized (this) {
+                if (scores.put(key(oldId, newId), score) != null) {
+                    return;
+                }
+            }
+            file.append(List.of(oldId.name(), newId.name(), Integer.toString(score)));
+        }
+
+        void save() {
+            file.flush();
+        }
+
+        private void load() {
+            try {
+                file.read(fields -> {
+                    if (fields.size() != 3 || !ObjectId.isId(fields.get(0)) || !ObjectId.isId(fields.get(1))) {
+                        return;
+                    }
+                    try {
+                        scores.put(fields.get(0) + fields.get(1), Integer.parseInt(fields.get(2)));
+                    } catch (NumberFormatException ignored) {
+                        // skip damaged line
+                    }
+                });
+            } catch (Exception ignored) {
+                scores.clear();
+            }
+        }
+
+        private static String key(ObjectId oldId, ObjectId newId) {
+            return oldId.name() + newId.name();
+        }
+    }
+}
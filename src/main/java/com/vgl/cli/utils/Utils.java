@@ -27,6 +27,22 @@ public final class Utils {
         return version;
     }
 
+    /**
+     * Per-user cache directory for {@code name} (e.g. "mirrors"): under {@code -Dvgl.cache.dir} if
+     * set, else {@code $XDG_CACHE_HOME/vgl}, else {@code ~/.cache/vgl}.
+     */
+    public static Path userCacheDir(String name) {
+        String dir = System.getProperty("vgl.cache.dir");
+        Path base;
+        if (dir != null && !dir.isBlank()) {
+            base = Path.of(dir);
+        } else {
+            String xdg = System.getenv("XDG_CACHE_HOME");
+            base = ((xdg != null && !xdg.isBlank()) ? Path.of(xdg) : Path.of(System.getProperty("user.home"), ".cache")).resolve("vgl");
+        }
+        return base.resolve(name).toAbsolutePath().normalize();
+    }
+
     public static boolean isInteractive() {
         if (Boolean.parseBoolean(System.getProperty("vgl.noninteractive", "false"))) {
             return false;
@@ -42,6 +58,7 @@ public final class Utils {
             return false;
         }
         try {
+            System.out.flush();
             System.err.print(prompt);
             System.err.flush();
             BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
@@ -70,6 +87,7 @@ public final class Utils {
 
         try {
             while (true) {
+                System.out.flush();
                 System.err.print(prompt);
                 System.err.flush();
 
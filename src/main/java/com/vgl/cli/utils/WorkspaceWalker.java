@@ -0,0 +1,182 @@
+package com.vgl.cli.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+import org.eclipse.jgit.ignore.IgnoreNode;
+
+/**
+ * Shared workspace enumerator: lists the files under a root in parallel.
+ *
+ * <p>Each directory is one fork/join task, so large trees are spread by work stealing over a pool of
+ * {@code -Dvgl.walk.threads} workers (default one per core). The pool belongs to the walk: its tasks
+ * block on file system calls, which must not tie up the shared common pool. {@code .git} entries are never entered. Optionally, {@code .gitignore} files (plus the
+ * root's {@code .git/info/exclude}) are evaluated per directory as they are reached, the walk stops
+ * at nested repositories (directories containing {@code .git}), and the caller prunes directories by
+ * repo-relative path. Results are sorted, with '/' separators.
+ */
+public final class WorkspaceWalker {
+    private final Path root;
+    private boolean honorIgnores;
+    private boolean stopAtNestedRepos;
+    private Predicate<String> enterDir = dir -> true;
+
+    /** Files (regular, or links to regular files) and the nested repositories that were not entered. */
+    public record Result(List<String> files, List<String> nestedRepos) {}
+
+    private WorkspaceWalker(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public static WorkspaceWalker at(Path root) {
+        return new WorkspaceWalker(root);
+    }
+
+    /** Skip files and directories matched by gitignore rules. */
+    public WorkspaceWalker honorIgnores(boolean honor) {
+        this.honorIgnores = honor;
+        return this;
+    }
+
+    /** Report directories containing {@code .git} as nested repositories instead of entering them. */
+    public WorkspaceWalker stopAtNestedRepos(boolean stop) {
+        this.stopAtNestedRepos = stop;
+        return this;
+    }
+
+    /** Only enter directories (by repo-relative path) accepted by {@code filter}. */
+    public WorkspaceWalker enterDirsWhere(Predicate<String> filter) {
+        this.enterDir = (filter == null) ? dir -> true : filter;
+        return this;
+    }
+
+    public Result walk() {
+        if (!Files.isDirectory(root)) {
+            return new Result(List.of(), List.of());
+        }
+        ConcurrentLinkedQueue<String> files = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<String> nested = new ConcurrentLinkedQueue<>();
+        Ignores ignores = null;
+        if (honorIgnores) {
+            IgnoreNode exclude = parseIgnoreFile(root.resolve(".git").resolve("info").resolve("exclude"));
+            ignores = (exclude == null) ? null : new Ignores(null, "", exclude);
+        }
+        int threads = Math.max(1, Integer.getInteger("vgl.walk.threads", Runtime.getRuntime().availableProcessors()));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new DirTask(root, "", ignores, files, nested));
+        } finally {
+            pool.shutdown();
+        }
+
+        List<String> sortedFiles = new ArrayList<>(files);
+        Collections.sort(sortedFiles);
+        List<String> sortedNested = new ArrayList<>(nested);
+        Collections.sort(sortedNested);
+        return new Result(sortedFiles, sortedNested);
+    }
+
+    /** Gitignore rules in effect for a directory: its own node, then its ancestors'. */
+    private record Ignores(Ignores parent, String dir, IgnoreNode node) {
+        boolean isIgnored(String relPath, boolean isDirectory) {
+            for (Ignores i = this; i != null; i = i.parent()) {
+                String local = i.dir().isEmpty() ? relPath : relPath.substring(i.dir().length() + 1);
+                Boolean ignored = i.node().checkIgnored(local, isDirectory);
+                if (ignored != null) {
+                    return ignored;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final class DirTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final String rel;
+        private final Ignores inherited;
+        private final ConcurrentLinkedQueue<String> files;
+        private final ConcurrentLinkedQueue<String> nested;
+
+        DirTask(Path dir, String rel, Ignores inherited, ConcurrentLinkedQueue<String> files, ConcurrentLinkedQueue<String> nested) {
+            this.dir = dir;
+            this.rel = rel;
+            this.inherited = inherited;
+            this.files = files;
+            this.nested = nested;
+        }
+
+        @Override
+        protected void compute() {
+            Ignores ignores = inherited;
+            if (honorIgnores) {
+                IgnoreNode own = parseIgnoreFile(dir.resolve(".gitignore"));
+                if (own != null) {
+                    ignores = new Ignores(inherited, rel, own);
+                }
+            }
+
+            List<DirTask> subdirs = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    if (name.equals(".git")) {
+                        continue;
+                    }
+                    String childRel = rel.isEmpty() ? name : rel + "/" + name;
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        if (ignores != null && ignores.isIgnored(childRel, true)) {
+                            continue;
+                        }
+                        if (stopAtNestedRepos && Files.exists(entry.resolve(".git"))) {
+                            nested.add(childRel);
+                            continue;
+                        }
+                        if (enterDir.test(childRel)) {
+                            subdirs.add(new DirTask(entry, childRel, ignores, files, nested));
+                        }
+                    } else if (attrs.isRegularFile() || (attrs.isSymbolicLink() && Files.isRegularFile(entry))) {
+                        if (ignores != null && ignores.isIgnored(childRel, false)) {
+                            continue;
+                        }
+                        files.add(childRel);
+                    }
+                }
+            } catch (IOException ignored) {
+                // unreadable directory: skip it, like a failed visit
+            }
+            invokeAll(subdirs);
+        }
+    }
+
+    private static IgnoreNode parseIgnoreFile(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        IgnoreNode node = new IgnoreNode();
+        try (InputStream in = Files.newInputStream(file)) {
+            node.parse(in);
+        } catch (IOException e) {
+            return null;
+        }
+        return node.getRules().isEmpty() ? null : node;
+    }
+}
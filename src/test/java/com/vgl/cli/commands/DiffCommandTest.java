@@ -3,13 +3,18 @@ package com.vgl.cli.commands;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vgl.cli.VglMain;
+import com.vgl.cli.commands.helpers.DiffHelper;
 import com.vgl.cli.test.utils.RepoTestUtils;
 import com.vgl.cli.test.utils.StdIoCapture;
 import com.vgl.cli.test.utils.UserDirOverride;
 import com.vgl.cli.utils.VglConfig;
 import com.vgl.cli.utils.Messages;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.transport.RefSpec;
@@ -151,6 +156,86 @@ class DiffCommandTest {
         }
     }
 
+    @Test
+    void diff_betweenCommits_globLimitsToMatchingSubtree() throws Exception {
+        Path repoDir = tempDir.resolve("repo_glob_prune");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        RevCommit c1;
+        RevCommit c2;
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "svc/billing/a.txt", "one\n");
+            RepoTestUtils.writeFile(repoDir, "svc/auth/b.txt", "one\n");
+            git.add().addFilepattern("svc").call();
+            c1 = git.commit().setMessage("c1").setAuthor(ident).setCommitter(ident).call();
+
+            RepoTestUtils.writeFile(repoDir, "svc/billing/a.txt", "two\n");
+            RepoTestUtils.writeFile(repoDir, "svc/auth/b.txt", "two\n");
+            git.add().addFilepattern("svc").call();
+            c2 = git.commit().setMessage("c2").setAuthor(ident).setCommitter(ident).call();
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", c1.getName(), c2.getName(), "svc/billing/**"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            assertThat(out).contains("svc/billing/a.txt");
+            assertThat(out).doesNotContain("svc/auth/b.txt");
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-noop", c1.getName(), c2.getName(), "svc/billing/**"})).isEqualTo(0);
+            assertThat(io.stdout()).isEqualTo(Messages.diffDryRunSummary(1));
+        }
+    }
+
+    @Test
+    void diff_dirstat_summarizesChangedFilesPerDirectory() throws Exception {
+        Path repoDir = tempDir.resolve("repo_dirstat");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        RevCommit c1;
+        RevCommit c2;
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "svc/billing/a.txt", "one\n");
+            RepoTestUtils.writeFile(repoDir, "svc/billing/b.txt", "one\n");
+            RepoTestUtils.writeFile(repoDir, "svc/auth/c.txt", "one\n");
+            RepoTestUtils.writeFile(repoDir, "docs/readme.txt", "one\n");
+            git.add().addFilepattern("svc").addFilepattern("docs").call();
+            c1 = git.commit().setMessage("c1").setAuthor(ident).setCommitter(ident).call();
+
+            RepoTestUtils.writeFile(repoDir, "svc/billing/a.txt", "two\n");
+            RepoTestUtils.writeFile(repoDir, "svc/billing/b.txt", "two\nthree\n");
+            RepoTestUtils.writeFile(repoDir, "svc/auth/c.txt", "two\n");
+            git.add().addFilepattern("svc").call();
+            c2 = git.commit().setMessage("c2").setAuthor(ident).setCommitter(ident).call();
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-dirstat", c1.getName(), c2.getName()})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            assertThat(out).contains("Changed directories: 2; Changed files: 3");
+            assertThat(out).contains("66.7%      2 file(s)  svc/billing/");
+            assertThat(out).contains("33.3%      1 file(s)  svc/auth/");
+            assertThat(out).doesNotContain("docs/");
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-dirstat", "-v", c1.getName(), c2.getName()})).isEqualTo(0);
+            String out = io.stdout();
+            assertThat(out).contains("2 file(s)  +3/-2  svc/billing/");
+            assertThat(out).contains("3 file(s) changed - +4/-3");
+            assertThat(out).contains("M a.txt");
+        }
+    }
+
     @Test
     void diff_showsDiffBetweenCommitAndWorkspace() throws Exception {
         Path repoDir = tempDir.resolve("repo_commit_vs_ws");
@@ -181,6 +266,237 @@ class DiffCommandTest {
         }
     }
 
+    @Test
+    void diff_commitVsWorkspace_ignoresTouchedButUnchangedFiles() throws Exception {
+        Path repoDir = tempDir.resolve("repo_commit_vs_ws_stat");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        RevCommit c1;
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "a.txt", "one\n");
+            RepoTestUtils.writeFile(repoDir, "b.txt", "same\n");
+            git.add().addFilepattern("a.txt").addFilepattern("b.txt").call();
+            c1 = git.commit().setMessage("c1").setAuthor(ident).setCommitter(ident).call();
+        }
+
+        // a.txt changes content; b.txt is rewritten with identical content (stat-dirty only).
+        RepoTestUtils.writeFile(repoDir, "a.txt", "two\n");
+        RepoTestUtils.writeFile(repoDir, "b.txt", "same\n");
+        Files.setLastModifiedTime(repoDir.resolve("b.txt"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", c1.getName()})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            assertThat(out).contains("Changed files: 1");
+            assertThat(out).contains("a.txt");
+            assertThat(out.substring(out.indexOf("Changed files: 1"))).doesNotContain("b.txt");
+        }
+    }
+
+    @Test
+    void diff_commitVsWorkspace_stillReportsIgnoredFilesNamedExplicitly() throws Exception {
+        Path repoDir = tempDir.resolve("repo_commit_vs_ws_ignored");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        RevCommit c1;
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "a.txt", "one\n");
+            RepoTestUtils.writeFile(repoDir, ".gitignore", "*.log\n");
+            git.add().addFilepattern("a.txt").addFilepattern(".gitignore").call();
+            c1 = git.commit().setMessage("c1").setAuthor(ident).setCommitter(ident).call();
+        }
+        RepoTestUtils.writeFile(repoDir, "build.log", "out\n");
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-noop", c1.getName(), "build.log"})).isEqualTo(0);
+            assertThat(io.stdout()).isEqualTo(Messages.diffDryRunSummary(1));
+        }
+    }
+
+    @Test
+    void diff_largeFile_isSummarizedBySizeAndHashWithoutLineDiff() throws Exception {
+        Path repoDir = tempDir.resolve("repo_large");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "big.txt", "a\nb\nc\n");
+            git.add().addFilepattern("big.txt").call();
+            git.commit().setMessage("init").setAuthor(ident).setCommitter(ident).call();
+        }
+        RepoTestUtils.writeFile(repoDir, "big.txt", "a\nb\nc\nd\n");
+
+        String prior = System.getProperty("vgl.diff.largeFileThreshold");
+        System.setProperty("vgl.diff.largeFileThreshold", "4");
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-v", "big.txt"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            assertThat(out).contains("M (binary/large)");
+            assertThat(out).contains("(binary/large: sizes and hashes)");
+            assertThat(out).contains("A: 6 bytes  de980441c3");
+            assertThat(out).contains("B: 8 bytes  d68dd4031d");
+            assertThat(out).doesNotContain("Block 1 of 1");
+            assertThat(out).doesNotContain("+ d");
+        } finally {
+            if (prior == null) {
+                System.clearProperty("vgl.diff.largeFileThreshold");
+            } else {
+                System.setProperty("vgl.diff.largeFileThreshold", prior);
+            }
+        }
+    }
+
+    @Test
+    void diff_fileRenamedFromOutsideGlob_isShownAsRename() throws Exception {
+        Path repoDir = tempDir.resolve("repo_rename_glob");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 1; i <= 50; i++) {
+            body.append(i).append('\n');
+        }
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        RevCommit c1;
+        RevCommit c2;
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "a/old.txt", body.toString());
+            RepoTestUtils.writeFile(repoDir, "b/keep.txt", "x\n");
+            git.add().addFilepattern("a").addFilepattern("b").call();
+            c1 = git.commit().setMessage("c1").setAuthor(ident).setCommitter(ident).call();
+            git.rm().addFilepattern("a/old.txt").call();
+            RepoTestUtils.writeFile(repoDir, "b/new.txt", body + "51\n");
+            git.add().addFilepattern("b/new.txt").call();
+            c2 = git.commit().setMessage("c2").setAuthor(ident).setCommitter(ident).call();
+        }
+
+        // Only the new path is under the glob; the old one must still be found to pair with it.
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", c1.getName(), c2.getName(), "b/*"})).isEqualTo(0);
+            String out = io.stdout();
+            assertThat(out).contains("R (+1/-0 lines, 1 blocks)");
+            assertThat(out).contains("b/new.txt");
+            assertThat(out).doesNotContain("A (+51/-0 lines");
+        }
+    }
+
+    @Test
+    void diff_overBudgetFile_isReportedWithApproximateCounts() throws Exception {
+        Path repoDir = tempDir.resolve("repo_budget");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "big.txt", "a\nb\nc\n");
+            git.add().addFilepattern("big.txt").call();
+            git.commit().setMessage("init").setAuthor(ident).setCommitter(ident).call();
+        }
+        RepoTestUtils.writeFile(repoDir, "big.txt", "a\nb\nc\nd\n");
+
+        String prior = System.getProperty("vgl.diff.maxFileLines");
+        System.setProperty("vgl.diff.maxFileLines", "2");
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-v", "big.txt"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            assertThat(out).contains("(~+1/-0 lines)");
+            assertThat(out).contains("not line-diffed");
+            assertThat(out).contains("1 file(s) exceeded the diff budget");
+        } finally {
+            if (prior == null) {
+                System.clearProperty("vgl.diff.maxFileLines");
+            } else {
+                System.setProperty("vgl.diff.maxFileLines", prior);
+            }
+        }
+    }
+
+    @Test
+    void diff_lineDiffPastPerFileTimeLimit_isCutShortAndReported() throws Exception {
+        Path repoDir = tempDir.resolve("repo_budget_time");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        StringBuilder before = new StringBuilder();
+        StringBuilder after = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            before.append("line ").append(i).append('\n');
+            if (i % 2 == 0) {
+                after.append("line ").append(i).append('\n');
+            }
+        }
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "gen.txt", before.toString());
+            git.add().addFilepattern("gen.txt").call();
+            git.commit().setMessage("init").setAuthor(ident).setCommitter(ident).call();
+        }
+        RepoTestUtils.writeFile(repoDir, "gen.txt", after.toString());
+
+        // Under the line limit, so only the time check inside the running diff can stop it.
+        String prior = System.getProperty("vgl.diff.maxFileMs");
+        System.setProperty("vgl.diff.maxFileMs", "0");
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-v", "gen.txt"})).isEqualTo(0);
+            String out = io.stdout();
+            assertThat(out).contains("(~+0/-2500 lines)");
+            assertThat(out).contains("not line-diffed");
+            assertThat(out).contains("1 file(s) exceeded the diff budget");
+        } finally {
+            if (prior == null) {
+                System.clearProperty("vgl.diff.maxFileMs");
+            } else {
+                System.setProperty("vgl.diff.maxFileMs", prior);
+            }
+        }
+    }
+
+    @Test
+    void diff_truncatedOutput_onlyLineDiffsDisplayedFiles() throws Exception {
+        Path repoDir = tempDir.resolve("repo_lazy");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.open(repoDir.toFile())) {
+            for (int i = 10; i < 22; i++) {
+                RepoTestUtils.writeFile(repoDir, "f" + i + ".txt", "a\nb\nc\n");
+            }
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("init").setAuthor(ident).setCommitter(ident).call();
+        }
+        for (int i = 10; i < 22; i++) {
+            RepoTestUtils.writeFile(repoDir, "f" + i + ".txt", "a\nb\nc\nd\n");
+        }
+
+        // Every file is over the per-file limit, so each one that gets line-diffed is reported.
+        String prior = System.getProperty("vgl.diff.maxFileLines");
+        System.setProperty("vgl.diff.maxFileLines", "2");
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-v"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            assertThat(out).contains("Changed files: 12");
+            assertThat(out).contains("Hint: Use 'vgl diff -all' to show all changes.");
+            assertThat(out).contains("10 file(s) exceeded the diff budget");
+            assertThat(out).doesNotContain("  f20.txt");
+        } finally {
+            if (prior == null) {
+                System.clearProperty("vgl.diff.maxFileLines");
+            } else {
+                System.setProperty("vgl.diff.maxFileLines", prior);
+            }
+        }
+    }
+
     @Test
     void diff_showsDiffBetweenTwoLocalBranches() throws Exception {
         Path repoDir = tempDir.resolve("repo");
@@ -236,6 +552,41 @@ class DiffCommandTest {
         }
     }
 
+    @Test
+    void diff_betweenClonesOfSameRepo_reportsOnlyChangedFiles() throws Exception {
+        Path origin = tempDir.resolve("origin");
+        RepoTestUtils.createVglRepo(origin);
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.open(origin.toFile())) {
+            RepoTestUtils.writeFile(origin, "same.txt", "same\n");
+            RepoTestUtils.writeFile(origin, "dir/file.txt", "one\n");
+            git.add().addFilepattern("same.txt").addFilepattern("dir/file.txt").call();
+            git.commit().setMessage("init").setAuthor(ident).setCommitter(ident).call();
+        }
+
+        Path left = tempDir.resolve("left");
+        Path right = tempDir.resolve("right");
+        Git.cloneRepository().setURI(origin.toUri().toString()).setDirectory(left.toFile()).call().close();
+        Git.cloneRepository().setURI(origin.toUri().toString()).setDirectory(right.toFile()).call().close();
+        RepoTestUtils.writeFile(right, "dir/file.txt", "two\n");
+
+        try (StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"diff", "-v", "-lr", left.toString(), "-lr", right.toString()})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            assertThat(out).contains("Changed files: 1");
+            assertThat(out).contains("- one");
+            assertThat(out).contains("+ two");
+        }
+
+        // The unchanged file is matched by object id and left out of the byte snapshot, so it is
+        // never read or line-diffed; only the edited file is.
+        Set<String> identical = DiffHelper.identicalFiles(left, right, List.of("*"));
+        assertThat(identical).contains("same.txt").doesNotContain("dir/file.txt");
+        assertThat(DiffHelper.snapshotFiles(right, List.of("*"), identical).keySet())
+            .contains("dir/file.txt").doesNotContain("same.txt");
+    }
+
     @Test
     void diff_noop_summarizesWorkingTreeChanges() throws Exception {
         Path repoDir = tempDir.resolve("repo3");
@@ -315,5 +666,52 @@ class DiffCommandTest {
         }
     }
 
-    
+    @Test
+    void diff_showsDiffBetweenTwoBranchesOfOneRemote() throws Exception {
+        Path remote = tempDir.resolve("remote_branches.git");
+        RepoTestUtils.initBareRemote(remote);
+
+        // Seed main with file.txt=one and dev with file.txt=two
+        Path seed = tempDir.resolve("seed_branches");
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.init().setInitialBranch("main").setDirectory(seed.toFile()).call()) {
+            RepoTestUtils.writeFile(seed, "file.txt", "one\n");
+            git.add().addFilepattern("file.txt").call();
+            git.commit().setMessage("main").setAuthor(ident).setCommitter(ident).call();
+            git.checkout().setCreateBranch(true).setName("dev").call();
+            RepoTestUtils.writeFile(seed, "file.txt", "two\n");
+            git.add().addFilepattern("file.txt").call();
+            git.commit().setMessage("dev").setAuthor(ident).setCommitter(ident).call();
+            git.remoteAdd().setName("origin").setUri(new URIish(remote.toUri().toString())).call();
+            git.push().setRemote("origin").setRefSpecs(
+                new RefSpec("refs/heads/main:refs/heads/main"),
+                new RefSpec("refs/heads/dev:refs/heads/dev")).call();
+        }
+
+        // Same URL on both sides: both tips are fetched into one bare store.
+        try (StdIoCapture io = new StdIoCapture()) {
+            assertThat(
+                VglMain.run(
+                    new String[] {
+                        "diff",
+                        "-v",
+                        "-rr",
+                        remote.toUri().toString(),
+                        "-rb",
+                        "main",
+                        "-rr",
+                        remote.toUri().toString(),
+                        "-rb",
+                        "dev",
+                        "file.txt"
+                    }
+                )
+            ).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            assertThat(out).contains("M (+1/-1 lines, 1 blocks)");
+            assertThat(out).contains("- one");
+            assertThat(out).contains("+ two");
+        }
+    }
 }
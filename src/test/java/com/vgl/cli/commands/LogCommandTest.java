@@ -6,8 +6,14 @@ import com.vgl.cli.VglMain;
 import com.vgl.cli.test.utils.RepoTestUtils;
 import com.vgl.cli.test.utils.StdIoCapture;
 import com.vgl.cli.test.utils.UserDirOverride;
+import com.vgl.cli.utils.CommitGraphs;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -114,4 +120,337 @@ class LogCommandTest {
             assertThat(io.stdout()).contains("Hint: Run 'vgl log <commit> -vv' to show the full patch for a specific commit.");
         }
     }
+
+    @Test
+    void log_veryVerbose_all_printsWorkerSummariesInCommitOrder() throws Exception {
+        Path repoDir = tempDir.resolve("repo8");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            PersonIdent ident = new PersonIdent("test", "test@example.com");
+            for (int i = 1; i <= 12; i++) {
+                RepoTestUtils.writeFile(repoDir, "f" + i + ".txt", i + "\n");
+                git.add().addFilepattern("f" + i + ".txt").call();
+                git.commit().setMessage("commit-" + i).setAuthor(ident).setCommitter(ident).call();
+            }
+        }
+
+        System.setProperty("vgl.log.threads", "3");
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-vv", "-all"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            String out = io.stdout();
+            int at = 0;
+            for (int i = 12; i >= 1; i--) {
+                int message = out.indexOf("commit-" + i + "\n", at);
+                int file = out.indexOf("A f" + i + ".txt", message);
+                assertThat(message).isGreaterThanOrEqualTo(at);
+                assertThat(file).isGreaterThan(message);
+                at = file;
+            }
+        } finally {
+            System.clearProperty("vgl.log.threads");
+        }
+    }
+
+    @Test
+    void log_dateRange_doesNotCountNewerCommitsAgainstLimit() throws Exception {
+        Path repoDir = tempDir.resolve("repo4");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            for (int day = 1; day <= 3; day++) {
+                commitOn(git, LocalDate.of(2024, 1, day), "january-" + day);
+            }
+            for (int day = 1; day <= 12; day++) {
+                commitOn(git, LocalDate.of(2024, 3, day), "march-" + day);
+            }
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "2024-01"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout()).contains("january-1", "january-2", "january-3");
+            assertThat(io.stdout()).doesNotContain("march-", "...");
+        }
+    }
+
+    @Test
+    void log_all_streamsEveryCommitWithoutEllipsis() throws Exception {
+        Path repoDir = tempDir.resolve("repo5");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            for (int day = 1; day <= 25; day++) {
+                commitOn(git, LocalDate.of(2024, 5, day), "may-" + day);
+            }
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-all"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout().lines().count()).isEqualTo(25);
+            assertThat(io.stdout()).contains("may-1", "may-25").doesNotContain("Hint:");
+        }
+    }
+
+    @Test
+    void log_paths_listsOnlyCommitsTouchingThem() throws Exception {
+        Path repoDir = tempDir.resolve("repo6");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            PersonIdent ident = new PersonIdent("test", "test@example.com");
+            String[][] changes = {
+                {"src/a.txt", "add-a"}, {"docs/b.md", "add-b"}, {"src/c.java", "add-c"}, {"docs/b.md", "edit-b"}};
+            for (String[] change : changes) {
+                RepoTestUtils.writeFile(repoDir, change[0], change[1] + "\n");
+                git.add().addFilepattern(change[0]).call();
+                git.commit().setMessage(change[1]).setAuthor(ident).setCommitter(ident).call();
+            }
+            // With a graph the walk consults its changed-path Bloom filters first.
+            CommitGraphs.write(git.getRepository());
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-all", "--", "src"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout()).contains("add-a", "add-c").doesNotContain("add-b", "edit-b");
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "--", "docs/b.md", "src/*.java"})).isEqualTo(0);
+            assertThat(io.stdout().lines().count()).isEqualTo(3);
+            assertThat(io.stdout()).contains("add-b", "edit-b", "add-c").doesNotContain("add-a");
+        }
+    }
+
+    @Test
+    void log_follow_continuesAcrossRenamesAndCachesThem() throws Exception {
+        Path repoDir = tempDir.resolve("repo7");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            PersonIdent ident = new PersonIdent("test", "test@example.com");
+            RepoTestUtils.writeFile(repoDir, "a.txt", "one\ntwo\nthree\nfour\n");
+            RepoTestUtils.writeFile(repoDir, "c.txt", "unrelated\n");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("add-a").setAuthor(ident).setCommitter(ident).call();
+
+            Files.move(repoDir.resolve("a.txt"), Files.createDirectories(repoDir.resolve("dir")).resolve("b.txt"));
+            git.add().addFilepattern(".").call();
+            git.rm().addFilepattern("a.txt").call();
+            git.commit().setMessage("move-a").setAuthor(ident).setCommitter(ident).call();
+
+            RepoTestUtils.writeFile(repoDir, "dir/b.txt", "one\ntwo\nthree\nfour\nfive\n");
+            git.add().addFilepattern("dir/b.txt").call();
+            git.commit().setMessage("edit-b").setAuthor(ident).setCommitter(ident).call();
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-follow", "dir/b.txt"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout().lines().count()).isEqualTo(3);
+            assertThat(io.stdout()).contains("edit-b", "move-a", "add-a");
+        }
+        assertThat(Files.readString(repoDir.resolve(".git/vgl/rename-edges"))).contains("a.txt\tdir/b.txt");
+    }
+
+    @Test
+    void log_follow_withDateWindowBeforeTheRename_listsCommitsUnderTheOldName() throws Exception {
+        Path repoDir = tempDir.resolve("repo7b");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "old.txt", "one\ntwo\nthree\nfour\n");
+            git.add().addFilepattern("old.txt").call();
+            commitOn(git, LocalDate.of(2023, 3, 1), "add-old");
+
+            RepoTestUtils.writeFile(repoDir, "old.txt", "one\ntwo\nthree\nfour\nfive\n");
+            git.add().addFilepattern("old.txt").call();
+            commitOn(git, LocalDate.of(2023, 6, 1), "edit-old");
+
+            Files.move(repoDir.resolve("old.txt"), repoDir.resolve("new.txt"));
+            git.add().addFilepattern("new.txt").call();
+            git.rm().addFilepattern("old.txt").call();
+            commitOn(git, LocalDate.of(2024, 2, 1), "rename");
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-follow", "new.txt", "2023-01..2023-12"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout().lines().count()).isEqualTo(2);
+            assertThat(io.stdout()).contains("edit-old", "add-old").doesNotContain("rename");
+        }
+    }
+
+    @Test
+    void log_grep_findsTextDeepInsideALongWord() throws Exception {
+        Path repoDir = tempDir.resolve("repo9b");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.open(repoDir.toFile())) {
+            String word = "x".repeat(80) + "needle" + "y".repeat(20);
+            git.commit().setAllowEmpty(true).setMessage("Vendored " + word).setAuthor(ident).setCommitter(ident).call();
+            git.commit().setAllowEmpty(true).setMessage("Unrelated").setAuthor(ident).setCommitter(ident).call();
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-grep", "needle"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout()).contains("Vendored").doesNotContain("Unrelated");
+        }
+        assertThat(repoDir.resolve(".git/vgl/search-index")).exists();
+        assertThat(repoDir.resolve(".git/vgl/search-index.lock")).doesNotExist();
+    }
+
+    @Test
+    void log_graph_drawsBranchAndMergeLanes() throws Exception {
+        Path repoDir = tempDir.resolve("repo8");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            RepoTestUtils.writeFile(repoDir, "a.txt", "base\n");
+            git.add().addFilepattern("a.txt").call();
+            commitOn(git, LocalDate.of(2024, 6, 1), "base");
+            git.branchCreate().setName("topic").call();
+
+            git.checkout().setName("topic").call();
+            RepoTestUtils.writeFile(repoDir, "b.txt", "topic\n");
+            git.add().addFilepattern("b.txt").call();
+            commitOn(git, LocalDate.of(2024, 6, 2), "topic-1");
+
+            git.checkout().setName("main").call();
+            RepoTestUtils.writeFile(repoDir, "a.txt", "main\n");
+            git.add().addFilepattern("a.txt").call();
+            commitOn(git, LocalDate.of(2024, 6, 3), "main-1");
+
+            git.merge().include(git.getRepository().resolve("topic")).setFastForward(MergeCommand.FastForwardMode.NO_FF).setCommit(false).call();
+            commitOn(git, LocalDate.of(2024, 6, 4), "merge-topic");
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-graph"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout().replaceAll("[0-9a-f]{7}", "ID").lines()).containsExactly(
+                "* ID  merge-topic",
+                "|\\",
+                "* | ID  main-1",
+                "| * ID  topic-1",
+                "|/",
+                "* ID  base");
+        }
+    }
+
+    @Test
+    void log_grepAndAuthor_searchIndexedHistoryAndNewCommits() throws Exception {
+        Path repoDir = tempDir.resolve("repo9");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        PersonIdent alice = new PersonIdent("Alice", "alice@example.com");
+        PersonIdent bob = new PersonIdent("Bob", "bob@example.com");
+        try (Git git = Git.open(repoDir.toFile())) {
+            String[][] commits = {{"ABC-101 fix parser", "Alice"}, {"ABC-102 update docs", "Bob"}, {"Refactor lexer", "Alice"}};
+            for (String[] commit : commits) {
+                PersonIdent who = commit[1].equals("Alice") ? alice : bob;
+                git.commit().setAllowEmpty(true).setMessage(commit[0]).setAuthor(who).setCommitter(who).call();
+            }
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-grep", "abc-101"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout()).contains("ABC-101 fix parser").doesNotContain("ABC-102", "lexer");
+        }
+        assertThat(repoDir.resolve(".git/vgl/search-index")).exists();
+        // One fixed-width id and '\n' per commit, on every platform.
+        assertThat(Files.size(repoDir.resolve(".git/vgl/search-commits")) % 41).isZero();
+        assertThat(Files.readString(repoDir.resolve(".git/vgl/search-index"))).doesNotContain("\r");
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            git.commit().setAllowEmpty(true).setMessage("Follow-up for abc-101").setAuthor(bob).setCommitter(bob).call();
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-grep", "ABC-101"})).isEqualTo(0);
+            assertThat(io.stdout().lines().count()).isEqualTo(2);
+            assertThat(io.stdout()).contains("Follow-up for abc-101", "ABC-101 fix parser");
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-author", "bob@", "-grep", "abc"})).isEqualTo(0);
+            assertThat(io.stdout().lines().count()).isEqualTo(2);
+            assertThat(io.stdout()).contains("Follow-up for abc-101", "ABC-102 update docs");
+        }
+    }
+
+    @Test
+    void log_pickaxe_listsCommitsThatAddOrRemoveText() throws Exception {
+        Path repoDir = tempDir.resolve("repo10");
+        RepoTestUtils.createVglRepo(repoDir);
+
+        try (Git git = Git.open(repoDir.toFile())) {
+            PersonIdent ident = new PersonIdent("test", "test@example.com");
+            RepoTestUtils.writeFile(repoDir, "a.txt", "one\nTODO fix\n");
+            git.add().addFilepattern("a.txt").call();
+            git.commit().setMessage("add-todo").setAuthor(ident).setCommitter(ident).call();
+
+            RepoTestUtils.writeFile(repoDir, "a.txt", "TODO fix\none\n");
+            git.add().addFilepattern("a.txt").call();
+            git.commit().setMessage("reorder").setAuthor(ident).setCommitter(ident).call();
+
+            Files.move(repoDir.resolve("a.txt"), repoDir.resolve("b.txt"));
+            git.add().addFilepattern("b.txt").call();
+            git.rm().addFilepattern("a.txt").call();
+            git.commit().setMessage("rename").setAuthor(ident).setCommitter(ident).call();
+
+            Files.write(repoDir.resolve("c.bin"), new byte[] {0, 'T', 'O', 'D', 'O', ' ', 'f', 'i', 'x'});
+            git.add().addFilepattern("c.bin").call();
+            git.commit().setMessage("binary").setAuthor(ident).setCommitter(ident).call();
+
+            RepoTestUtils.writeFile(repoDir, "b.txt", "one\n");
+            git.add().addFilepattern("b.txt").call();
+            git.commit().setMessage("done").setAuthor(ident).setCommitter(ident).call();
+        }
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-S", "TODO fix"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout().lines().map(line -> line.substring(line.lastIndexOf(' ') + 1)))
+                .containsExactly("done", "add-todo");
+        }
+
+        // Whitespace is text like any other; only an empty search is rejected.
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-S", " "})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout()).contains("done", "add-todo").doesNotContain("reorder", "rename");
+        }
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"log", "-S", ""})).isEqualTo(1);
+            assertThat(io.stderr()).contains("-S needs text");
+        }
+    }
+
+    private static void commitOn(Git git, LocalDate date, String message) throws Exception {
+        Instant when = date.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant();
+        PersonIdent ident = new PersonIdent("test", "test@example.com", when, ZoneId.systemDefault());
+        git.commit().setMessage(message).setAuthor(ident).setCommitter(ident).call();
+    }
 }
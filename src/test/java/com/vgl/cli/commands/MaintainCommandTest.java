@@ -0,0 +1,35 @@
+package com.vgl.cli.commands;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vgl.cli.VglMain;
+import com.vgl.cli.test.utils.RepoTestUtils;
+import com.vgl.cli.test.utils.StdIoCapture;
+import com.vgl.cli.test.utils.UserDirOverride;
+import com.vgl.cli.utils.Messages;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MaintainCommandTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void maintain_writesCommitGraph() throws Exception {
+        Path repoDir = tempDir.resolve("repo");
+        RepoTestUtils.createVglRepo(repoDir);
+        RepoTestUtils.seedEmptyCommit(repoDir, "init");
+
+        try (UserDirOverride ignored = new UserDirOverride(repoDir);
+            StdIoCapture io = new StdIoCapture()) {
+            assertThat(VglMain.run(new String[] {"maintain"})).isEqualTo(0);
+            assertThat(io.stderr()).isEmpty();
+            assertThat(io.stdout()).isEqualTo(Messages.maintainCommitGraphWritten(1));
+        }
+
+        assertThat(Files.isRegularFile(repoDir.resolve(".git/objects/info/commit-graph"))).isTrue();
+    }
+}
@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.vgl.cli.test.utils.StdIoCapture;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -26,10 +27,10 @@ class DiffHelperTest {
         Files.writeString(right.resolve("a.txt"), "two\n");
         Files.writeString(right.resolve("b.txt"), "only\nline\n");
 
-        Map<String, byte[]> lmap = DiffHelper.snapshotFiles(left, List.of("**"));
-        Map<String, byte[]> rmap = DiffHelper.snapshotFiles(right, List.of("**"));
+        Map<String, DiffHelper.Content> lmap = DiffHelper.snapshotFiles(left, List.of("**"));
+        Map<String, DiffHelper.Content> rmap = DiffHelper.snapshotFiles(right, List.of("**"));
 
-        DiffHelper.DiffSummary s = DiffHelper.computeDiffSummary(lmap, rmap);
+        DiffHelper.DiffSummary s = DiffHelper.computeContentSummary(lmap, rmap);
         assertThat(s.perFileCounts).containsKeys("a.txt", "b.txt");
         assertThat(s.totalAdded).isGreaterThanOrEqualTo(1);
 
@@ -45,4 +46,47 @@ class DiffHelperTest {
             assertThat(out).contains("b.txt");
         }
     }
+
+    @Test
+    void manifestSkipsFilesWhoseStatIsUnchanged() throws Exception {
+        Path left = tempDir.resolve("left");
+        Path right = tempDir.resolve("right");
+        Files.createDirectories(left);
+        Files.createDirectories(right);
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60_000L);
+        for (Path root : List.of(left, right)) {
+            Files.writeString(root.resolve("same.txt"), "same\n");
+            Files.writeString(root.resolve("edit.txt"), "aaaa\n");
+            Files.setLastModifiedTime(root.resolve("same.txt"), old);
+            Files.setLastModifiedTime(root.resolve("edit.txt"), old);
+        }
+
+        String priorManifests = System.getProperty("vgl.diff.manifests");
+        String priorCacheDir = System.getProperty("vgl.cache.dir");
+        System.setProperty("vgl.diff.manifests", "true");
+        System.setProperty("vgl.cache.dir", tempDir.resolve("cache").toString());
+        try {
+            assertThat(DiffHelper.identicalFiles(left, right, List.of("*"))).containsExactlyInAnyOrder("same.txt", "edit.txt");
+
+            // Same size and mtime: the recorded hash is trusted and the file is not re-read.
+            Files.writeString(right.resolve("edit.txt"), "bbbb\n");
+            Files.setLastModifiedTime(right.resolve("edit.txt"), old);
+            assertThat(DiffHelper.identicalFiles(left, right, List.of("*"))).contains("edit.txt");
+
+            // A changed stat signature forces a re-hash.
+            Files.setLastModifiedTime(right.resolve("edit.txt"), FileTime.fromMillis(old.toMillis() + 1_000L));
+            assertThat(DiffHelper.identicalFiles(left, right, List.of("*"))).containsExactly("same.txt");
+        } finally {
+            restoreProperty("vgl.diff.manifests", priorManifests);
+            restoreProperty("vgl.cache.dir", priorCacheDir);
+        }
+    }
+
+    private static void restoreProperty(String key, String value) {
+        if (value == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, value);
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fieldsWithTabsNewlinesAndBackslashesReadBackUnchanged() throws Exception {
+        Path path = tempDir.resolve("vgl/cache");
+        CacheFile file = new CacheFile(path, 1024);
+        List<String> record = List.of("key", "tab\there", "line\nbreak\r", "back\\slash\\t", "");
+        assertThat(file.append(record)).isEqualTo(1);
+        assertThat(file.append(List.of("plain"))).isEqualTo(2);
+        file.flush();
+        assertThat(Files.readAllLines(path)).hasSize(2);
+
+        List<List<String>> read = new ArrayList<>();
+        new CacheFile(path, 1024).read(read::add);
+        assertThat(read).containsExactly(record, List.of("plain"));
+    }
+
+    @Test
+    void recordCutShortIsSkippedAndTheNextBatchStartsOnAFreshLine() throws Exception {
+        Path path = tempDir.resolve("cache");
+        CacheFile file = new CacheFile(path, 1024);
+        file.append(List.of("key1", "a.txt", "b.txt"));
+        file.flush();
+        String whole = Files.readString(path);
+        // A second copy of the record, cut off mid-field as by a crash during the write.
+        Files.writeString(path, whole + whole.substring(0, whole.indexOf("b.t")).replace("key1", "key2"));
+        file.append(List.of("key3", "c.txt"));
+        file.flush();
+
+        List<List<String>> read = new ArrayList<>();
+        file.read(read::add);
+        assertThat(read).containsExactly(List.of("key1", "a.txt", "b.txt"), List.of("key3", "c.txt"));
+    }
+
+    @Test
+    void fileStartsOverOncePastItsCap() throws Exception {
+        Path path = tempDir.resolve("cache");
+        CacheFile file = new CacheFile(path, 8);
+        file.append(List.of("first", "record"));
+        file.flush();
+        file.append(List.of("second"));
+        file.flush();
+
+        List<List<String>> read = new ArrayList<>();
+        file.read(read::add);
+        assertThat(read).containsExactly(List.of("second"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChangeSummariesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void summariesAreRecordedPerCommitAndReadBackInsteadOfDiffing() throws Exception {
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.init().setDirectory(tempDir.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(tempDir.resolve("a.txt"), "one\ntwo\nthree\n");
+            Files.writeString(tempDir.resolve("c.txt"), "c\n");
+            git.add().addFilepattern(".").call();
+            RevCommit first = git.commit().setMessage("first").setAuthor(ident).setCommitter(ident).call();
+
+            Files.move(tempDir.resolve("a.txt"), tempDir.resolve("b.txt"));
+            Files.writeString(tempDir.resolve("c.txt"), "c2\n");
+            git.add().addFilepattern(".").call();
+            git.rm().addFilepattern("a.txt").call();
+            RevCommit second = git.commit().setMessage("second").setAuthor(ident).setCommitter(ident).call();
+
+            // A recorded entry wins over the real diff: the first commit is never diffed.
+            Path cacheFile = tempDir.resolve(".git/vgl/change-summaries");
+            CacheFile recorded = new CacheFile(cacheFile, Long.MAX_VALUE);
+            recorded.append(List.of(first.name() + " " + RenameDetection.settings(), "Arecorded.txt"));
+            recorded.flush();
+
+            try (RevWalk walk = new RevWalk(git.getRepository())) {
+                assertThat(ChangeSummaries.changes(git.getRepository(), walk, first))
+                    .containsExactly(new ChangeSummaries.Change(DiffEntry.ChangeType.ADD, DiffEntry.DEV_NULL, "recorded.txt"));
+
+                List<ChangeSummaries.Change> changes = ChangeSummaries.changes(git.getRepository(), walk, second);
+                assertThat(changes).containsExactly(
+                    new ChangeSummaries.Change(DiffEntry.ChangeType.RENAME, "a.txt", "b.txt"),
+                    new ChangeSummaries.Change(DiffEntry.ChangeType.MODIFY, "c.txt", "c.txt"));
+            }
+            ChangeSummaries.save(git.getRepository());
+            assertThat(Files.readString(cacheFile)).contains(second.name() + " " + RenameDetection.settings() + "\tRa.txt\tb.txt\tMc.txt");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommitGraphsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writtenGraphAnswersAncestryIncludingCommitsNewerThanTheGraph() throws Exception {
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.init().setDirectory(tempDir.toFile()).setInitialBranch("main").call()) {
+            RevCommit base = git.commit().setMessage("base").setAuthor(ident).setCommitter(ident).call();
+            git.checkout().setCreateBranch(true).setName("feature").call();
+            RevCommit feature = git.commit().setMessage("feature").setAuthor(ident).setCommitter(ident).call();
+            git.checkout().setName("main").call();
+            RevCommit main = git.commit().setMessage("main").setAuthor(ident).setCommitter(ident).call();
+
+            assertThat(CommitGraphs.write(git.getRepository())).isEqualTo(3);
+            assertThat(Files.isRegularFile(tempDir.resolve(".git/objects/info/commit-graph"))).isTrue();
+            assertThat(git.getRepository().getConfig().getBoolean("core", "commitGraph", false)).isTrue();
+
+            // Not in the graph yet: the walk parses it, then continues over graph positions.
+            RevCommit newer = git.commit().setMessage("newer").setAuthor(ident).setCommitter(ident).call();
+
+            try (RevWalk walk = new RevWalk(git.getRepository())) {
+                assertThat(CommitGraphs.isAncestor(walk, walk.parseCommit(base), walk.parseCommit(newer))).isTrue();
+                assertThat(CommitGraphs.isAncestor(walk, walk.parseCommit(main), walk.parseCommit(newer))).isTrue();
+                assertThat(CommitGraphs.isAncestor(walk, walk.parseCommit(feature), walk.parseCommit(newer))).isFalse();
+                assertThat(CommitGraphs.isAncestor(walk, walk.parseCommit(main), walk.parseCommit(feature))).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void refreshRewritesOnlyOnceTheGraphFallsBehind() throws Exception {
+        String prior = System.getProperty("vgl.commitGraph.refreshAfter");
+        System.setProperty("vgl.commitGraph.refreshAfter", "2");
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        try (Git git = Git.init().setDirectory(tempDir.toFile()).setInitialBranch("main").call()) {
+            git.commit().setMessage("one").setAuthor(ident).setCommitter(ident).call();
+            CommitGraphs.refreshIfStale(git.getRepository());
+            Path graph = tempDir.resolve(".git/objects/info/commit-graph");
+            assertThat(Files.exists(graph)).isFalse();
+            assertThat(git.getRepository().getConfig().getString("core", null, "commitGraph")).isNull();
+
+            CommitGraphs.write(git.getRepository());
+            assertThat(Files.isRegularFile(graph)).isTrue();
+            long written = Files.size(graph);
+
+            git.commit().setMessage("two").setAuthor(ident).setCommitter(ident).call();
+            CommitGraphs.refreshIfStale(git.getRepository());
+            assertThat(Files.size(graph)).isEqualTo(written);
+
+            git.commit().setMessage("three").setAuthor(ident).setCommitter(ident).call();
+            CommitGraphs.refreshIfStale(git.getRepository());
+            assertThat(Files.size(graph)).isGreaterThan(written);
+        } finally {
+            if (prior == null) {
+                System.clearProperty("vgl.commitGraph.refreshAfter");
+            } else {
+                System.setProperty("vgl.commitGraph.refreshAfter", prior);
+            }
+        }
+    }
+}
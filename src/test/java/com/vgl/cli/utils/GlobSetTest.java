@@ -0,0 +1,42 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class GlobSetTest {
+
+    @Test
+    void literalsMatchThemselvesTheirSubtreeAndBareBasenames() {
+        GlobSet set = GlobSet.compile(List.of("src/main", "README.md"));
+
+        assertThat(set.matches("src/main")).isTrue();
+        assertThat(set.matches("src/main/App.java")).isTrue();
+        assertThat(set.matches("src/mainx/App.java")).isFalse();
+        assertThat(set.matches("README.md")).isTrue();
+        assertThat(set.matches("docs/README.md")).isTrue();
+        assertThat(set.matches("docs/README.md.bak")).isFalse();
+    }
+
+    @Test
+    void wildcardsShareOnePatternWithGlobSemantics() {
+        GlobSet set = GlobSet.compile(List.of("*.java", "docs/**/*.md", "a?c", "svc\\auth"));
+
+        assertThat(set.matches("App.java")).isTrue();
+        assertThat(set.matches("src/App.java")).isFalse();
+        assertThat(set.matches("docs/x/y.md")).isTrue();
+        assertThat(set.matches("docs/y.md")).isFalse();
+        assertThat(set.matches("abc")).isTrue();
+        assertThat(set.matches("a/abc")).isFalse();
+        assertThat(set.matches("svc/auth/b.txt")).isTrue();
+        assertThat(set.matches("svc/authx")).isFalse();
+    }
+
+    @Test
+    void starOrDotMatchesEverything() {
+        assertThat(GlobSet.compile(List.of("x.txt", "*")).matchesAll()).isTrue();
+        assertThat(GlobSet.compile(List.of(".")).matches("any/path")).isTrue();
+        assertThat(GlobSet.compile(List.of()).matches("any/path")).isFalse();
+    }
+}
@@ -0,0 +1,36 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GlobUtilsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void expandGlobsSkipsIgnoredDirsAndNestedRepos() throws Exception {
+        try (Git ignored = Git.init().setDirectory(tempDir.toFile()).call()) {
+            Files.writeString(tempDir.resolve(".gitignore"), "build/\n");
+            for (String f : List.of("src/foo/A.java", "src/foo/b.txt", "src/bar/deep/C.java", "build/D.java", "top.java", "nested/E.java")) {
+                Path p = tempDir.resolve(f);
+                Files.createDirectories(p.getParent());
+                Files.writeString(p, "x\n");
+            }
+            Git.init().setDirectory(tempDir.resolve("nested").toFile()).call().close();
+
+            assertThat(GlobUtils.expandGlobsToFiles(List.of("src/foo/*.java"), tempDir))
+                .containsExactly("src/foo/A.java");
+            assertThat(GlobUtils.expandGlobsToFiles(List.of("src"), tempDir))
+                .containsExactly("src/bar/deep/C.java", "src/foo/A.java", "src/foo/b.txt");
+            assertThat(GlobUtils.expandGlobsToFiles(List.of("*.java"), tempDir))
+                .containsExactly("src/bar/deep/C.java", "src/foo/A.java", "top.java");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MirrorCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, String> priorProps = new HashMap<>();
+
+    @BeforeEach
+    void enableMirrors() {
+        setProperty("vgl.mirrors", "true");
+        setProperty("vgl.mirrors.dir", tempDir.resolve("mirrors").toString());
+    }
+
+    @AfterEach
+    void restoreProperties() {
+        priorProps.forEach((k, v) -> {
+            if (v == null) {
+                System.clearProperty(k);
+            } else {
+                System.setProperty(k, v);
+            }
+        });
+    }
+
+    @Test
+    void mirrorIsUpdatedIncrementallyAndServesClones() throws Exception {
+        Path upstream = tempDir.resolve("upstream");
+        String url = upstream.toUri().toString();
+        try (Git git = Git.init().setDirectory(upstream.toFile()).setInitialBranch("main").call()) {
+            commit(git, upstream, "a.txt", "one\n");
+            try (MirrorCache.Lease mirror = MirrorCache.acquire(url, System.err)) {
+                assertThat(mirror.gitDir()).startsWith(MirrorCache.root());
+            }
+
+            RevCommit second = commit(git, upstream, "a.txt", "two\n");
+            try (MirrorCache.Lease mirror = MirrorCache.acquire(url, System.err);
+                Git mirrorGit = Git.open(mirror.gitDir().toFile())) {
+                assertThat(mirrorGit.getRepository().resolve("refs/heads/main")).isEqualTo(second.getId());
+            }
+        }
+
+        Path clone = tempDir.resolve("clone");
+        Files.createDirectories(clone);
+        assertThat(GitRemoteOps.cloneInto(clone, url, "main", System.err)).isTrue();
+        assertThat(Files.readString(clone.resolve("a.txt"))).isEqualTo("two\n");
+        try (Git cloned = Git.open(clone.toFile())) {
+            assertThat(cloned.getRepository().getConfig().getString("remote", "origin", "url")).isEqualTo(url);
+        }
+    }
+
+    @Test
+    void evictionSkipsMirrorsInUse() throws Exception {
+        Path first = tempDir.resolve("first");
+        Path second = tempDir.resolve("second");
+        try (Git a = Git.init().setDirectory(first.toFile()).setInitialBranch("main").call();
+            Git b = Git.init().setDirectory(second.toFile()).setInitialBranch("main").call()) {
+            commit(a, first, "a.txt", "a\n");
+            commit(b, second, "b.txt", "b\n");
+        }
+
+        MirrorCache.acquire(first.toUri().toString(), System.err).close();
+        setProperty("vgl.mirrors.maxMb", "0");
+        try (MirrorCache.Lease held = MirrorCache.acquire(second.toUri().toString(), System.err)) {
+            MirrorCache.evict();
+            try (var list = Files.list(MirrorCache.root())) {
+                assertThat(list.filter(p -> p.toString().endsWith(".git"))).containsExactly(held.gitDir());
+            }
+        }
+    }
+
+    @Test
+    void evictionKeepsTheLockOfAHeldLease() throws Exception {
+        Path first = tempDir.resolve("first");
+        Path second = tempDir.resolve("second");
+        try (Git a = Git.init().setDirectory(first.toFile()).setInitialBranch("main").call();
+            Git b = Git.init().setDirectory(second.toFile()).setInitialBranch("main").call()) {
+            commit(a, first, "a.txt", "a\n");
+            commit(b, second, "b.txt", "b\n");
+        }
+
+        MirrorCache.acquire(first.toUri().toString(), System.err).close();
+        setProperty("vgl.mirrors.maxMb", "0");
+        String url = second.toUri().toString();
+        Path lockFile;
+        try (MirrorCache.Lease held = MirrorCache.acquire(url, System.err)) {
+            String name = held.gitDir().getFileName().toString();
+            lockFile = held.gitDir().resolveSibling(name.substring(0, name.length() - ".git".length()) + ".lock");
+            try (MirrorCache.Lease again = MirrorCache.acquire(url, System.err)) {
+                MirrorCache.evict();
+                assertThat(lockedByAnotherProcess(lockFile)).isTrue();
+            }
+            // Other processes must still see the mirror as in use, or their eviction deletes it.
+            assertThat(Files.isDirectory(held.gitDir())).isTrue();
+            assertThat(lockedByAnotherProcess(lockFile)).isTrue();
+        }
+        assertThat(lockedByAnotherProcess(lockFile)).isFalse();
+    }
+
+    /** Run in a child JVM: exits 0 when the file is locked elsewhere, 1 when it is free. */
+    public static final class LockProbe {
+        public static void main(String[] args) throws Exception {
+            try (FileChannel channel = FileChannel.open(Path.of(args[0]), StandardOpenOption.WRITE)) {
+                FileLock lock = channel.tryLock();
+                System.exit(lock == null ? 0 : 1);
+            }
+        }
+    }
+
+    // Locks are per process, so only a separate process can tell whether one is still held.
+    private static boolean lockedByAnotherProcess(Path file) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process probe = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            LockProbe.class.getName(), file.toString()).inheritIO().start();
+        return probe.waitFor() == 0;
+    }
+
+    private void setProperty(String key, String value) {
+        priorProps.putIfAbsent(key, System.getProperty(key));
+        System.setProperty(key, value);
+    }
+
+    private static RevCommit commit(Git git, Path dir, String file, String content) throws Exception {
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        Files.writeString(dir.resolve(file), content);
+        git.add().addFilepattern(file).call();
+        return git.commit().setMessage(content.trim()).setAuthor(ident).setCommitter(ident).call();
+    }
+}
@@ -0,0 +1,79 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vgl.cli.test.utils.StdIoCapture;
+import java.io.PrintStream;
+import org.junit.jupiter.api.Test;
+
+class OutputSinkTest {
+
+    @Test
+    void holdsOutputUntilFlushAndRestoresStdoutOnRestore() {
+        try (StdIoCapture io = new StdIoCapture()) {
+            PrintStream original = System.out;
+            OutputSink sink = OutputSink.install();
+            try {
+                assertThat(System.out).isNotSameAs(original);
+                System.out.println("first");
+                assertThat(io.stdout()).isEmpty();
+
+                OutputSink.flush();
+                assertThat(io.stdout()).isEqualTo("first");
+
+                System.out.println("second → utf8");
+            } finally {
+                sink.restore();
+            }
+            assertThat(System.out).isSameAs(original);
+            assertThat(io.stdout()).isEqualTo("first\nsecond → utf8");
+        }
+    }
+
+    @Test
+    void flushesOutputBeforeWritingToStderr() {
+        try (StdIoCapture io = new StdIoCapture()) {
+            PrintStream originalErr = System.err;
+            OutputSink sink = OutputSink.install();
+            try {
+                System.out.println("report");
+                assertThat(io.stdout()).isEmpty();
+
+                System.err.println("Warning: late");
+                assertThat(io.stdout()).isEqualTo("report");
+                assertThat(io.stderr()).isEqualTo("Warning: late");
+            } finally {
+                sink.restore();
+            }
+            assertThat(System.err).isSameAs(originalErr);
+        }
+    }
+
+    @Test
+    void printsEachNoteOnceAfterTheOutput() {
+        try (StdIoCapture io = new StdIoCapture()) {
+            OutputSink sink = OutputSink.install();
+            try {
+                OutputSink.note("limit", "Note: first");
+                System.out.println("report");
+                OutputSink.note("limit", "Note: second");
+                assertThat(io.stderr()).isEmpty();
+            } finally {
+                sink.restore();
+            }
+            assertThat(io.stdout()).isEqualTo("report");
+            assertThat(io.stderr()).isEqualTo("Note: first");
+        }
+
+        // The next command run reports it again.
+        try (StdIoCapture io = new StdIoCapture()) {
+            OutputSink sink = OutputSink.install();
+            try {
+                OutputSink.note("limit", "Note: again");
+            } finally {
+                sink.restore();
+            }
+            assertThat(io.stderr()).isEqualTo("Note: again");
+        }
+    }
+}
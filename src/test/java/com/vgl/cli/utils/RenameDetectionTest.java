@@ -0,0 +1,95 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RenameDetectionTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void pairsSimilarFilesAndCachesTheirScore() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir.toFile()).setInitialBranch("main").call()) {
+            RevCommit[] commits = renameWithEdit(git);
+            List<DiffEntry> diffs = detect(git.getRepository(), commits[0], commits[1]);
+
+            assertThat(diffs).hasSize(1);
+            assertThat(diffs.get(0).getChangeType()).isEqualTo(DiffEntry.ChangeType.RENAME);
+            assertThat(diffs.get(0).getOldPath()).isEqualTo("old.txt");
+            assertThat(diffs.get(0).getNewPath()).isEqualTo("new.txt");
+            assertThat(diffs.get(0).getScore()).isBetween(60, 99);
+
+            Path cache = git.getRepository().getDirectory().toPath().resolve("vgl/rename-scores");
+            assertThat(Files.readAllLines(cache)).hasSize(1);
+
+            // A second pass is answered from the cache and does not append a duplicate score.
+            assertThat(detect(git.getRepository(), commits[0], commits[1]).get(0).getChangeType())
+                .isEqualTo(DiffEntry.ChangeType.RENAME);
+            assertThat(Files.readAllLines(cache)).hasSize(1);
+        }
+    }
+
+    @Test
+    void exactModeOnlyPairsIdenticalContent() throws Exception {
+        String prior = System.getProperty("vgl.renames");
+        System.setProperty("vgl.renames", "exact");
+        try (Git git = Git.init().setDirectory(tempDir.toFile()).setInitialBranch("main").call()) {
+            RevCommit[] commits = renameWithEdit(git);
+            List<DiffEntry> diffs = detect(git.getRepository(), commits[0], commits[1]);
+
+            assertThat(diffs).extracting(DiffEntry::getChangeType)
+                .containsExactlyInAnyOrder(DiffEntry.ChangeType.ADD, DiffEntry.ChangeType.DELETE);
+        } finally {
+            if (prior == null) {
+                System.clearProperty("vgl.renames");
+            } else {
+                System.setProperty("vgl.renames", prior);
+            }
+        }
+    }
+
+    private RevCommit[] renameWithEdit(Git git) throws Exception {
+        PersonIdent ident = new PersonIdent("test", "test@example.com");
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            body.append("line ").append(i).append('\n');
+        }
+        Files.writeString(tempDir.resolve("old.txt"), body);
+        git.add().addFilepattern("old.txt").call();
+        RevCommit c1 = git.commit().setMessage("c1").setAuthor(ident).setCommitter(ident).call();
+
+        Files.delete(tempDir.resolve("old.txt"));
+        Files.writeString(tempDir.resolve("new.txt"), body + "one more\n");
+        git.add().addFilepattern("new.txt").call();
+        git.rm().addFilepattern("old.txt").call();
+        RevCommit c2 = git.commit().setMessage("c2").setAuthor(ident).setCommitter(ident).call();
+        return new RevCommit[] {c1, c2};
+    }
+
+    private static List<DiffEntry> detect(Repository repo, RevCommit from, RevCommit to) throws Exception {
+        try (ObjectReader reader = repo.newObjectReader();
+            DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            df.setRepository(repo);
+            CanonicalTreeParser oldTree = new CanonicalTreeParser();
+            oldTree.reset(reader, from.getTree());
+            CanonicalTreeParser newTree = new CanonicalTreeParser();
+            newTree.reset(reader, to.getTree());
+            return RenameDetection.detect(repo, reader, df.scan(oldTree, newTree));
+        }
+    }
+}
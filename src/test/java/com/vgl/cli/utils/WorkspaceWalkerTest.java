@@ -0,0 +1,38 @@
+package com.vgl.cli.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WorkspaceWalkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void honorsNestedGitignoresAndStopsAtNestedRepos() throws Exception {
+        for (String f : List.of("a.txt", "b.log", "build/out.bin", "src/keep.java", "src/gen.txt", "sub/x.txt")) {
+            Path p = tempDir.resolve(f);
+            Files.createDirectories(p.getParent());
+            Files.writeString(p, "x\n");
+        }
+        Files.writeString(tempDir.resolve(".gitignore"), "*.log\nbuild/\n");
+        Files.writeString(tempDir.resolve("src/.gitignore"), "gen.txt\n");
+        Files.createDirectories(tempDir.resolve("sub/.git"));
+
+        WorkspaceWalker.Result all = WorkspaceWalker.at(tempDir).walk();
+        assertThat(all.files()).containsExactly(
+            ".gitignore", "a.txt", "b.log", "build/out.bin", "src/.gitignore", "src/gen.txt", "src/keep.java", "sub/x.txt");
+
+        WorkspaceWalker.Result filtered = WorkspaceWalker.at(tempDir).honorIgnores(true).stopAtNestedRepos(true).walk();
+        assertThat(filtered.files()).containsExactly(".gitignore", "a.txt", "src/.gitignore", "src/keep.java");
+        assertThat(filtered.nestedRepos()).containsExactly("sub");
+
+        WorkspaceWalker.Result pruned = WorkspaceWalker.at(tempDir).enterDirsWhere(dir -> dir.equals("src")).walk();
+        assertThat(pruned.files()).contains("src/keep.java").doesNotContain("build/out.bin", "sub/x.txt");
+    }
+}